@@ -23,6 +23,7 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     List<Account> findByCustomerCustomerIdAndIsActiveTrue(Long customerId);
     Boolean existsByAccountNumber(String accountNumber);
     Boolean existsByMeterNumber(String meterNumber);
+    Boolean existsByAccountIdAndCustomerCustomerId(Long accountId, Long customerId);
     long countByIsActiveTrue();
     long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
     Optional<Account> findTopByOrderByMeterNumberDesc();
@@ -1,20 +1,24 @@
 package com.msedcl.billing.admin.billing.controller;
 
+import com.msedcl.billing.admin.billing.dto.BillDocumentProjection;
 import com.msedcl.billing.shared.entity.Bill;
 import com.msedcl.billing.shared.entity.User;
 import com.msedcl.billing.admin.billing.repository.BillRepository;
 import com.msedcl.billing.shared.repository.UserRepository;
 import com.msedcl.billing.admin.billing.service.BillingService;
+import com.msedcl.billing.shared.service.BillPdfCacheService;
+import com.msedcl.billing.shared.service.DocumentDownloadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 @RestController
@@ -25,14 +29,20 @@ public class BillController {
     private final BillingService billingService;
     private final BillRepository billRepository;
     private final UserRepository userRepository;
+    private final DocumentDownloadService documentDownloadService;
+    private final BillPdfCacheService billPdfCacheService;
 
     @PostMapping("/generate/{readingId}")
-    public ResponseEntity<?> generateBill(@PathVariable Long readingId, Authentication authentication) {
+    public ResponseEntity<?> generateBill(@PathVariable Long readingId,
+                                          @RequestParam(required = false) Boolean prerenderPdf,
+                                          Authentication authentication) {
         try {
             User currentUser = userRepository.findByUsername(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Bill bill = billingService.generateBill(readingId, currentUser);
+            Bill bill = prerenderPdf == null
+                ? billingService.generateBill(readingId, currentUser)
+                : billingService.generateBill(readingId, currentUser, prerenderPdf);
 
             return ResponseEntity.ok(bill);
 
@@ -67,23 +77,17 @@ public class BillController {
     }
 
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<Resource> downloadBillPdf(@PathVariable Long id) {
-        Bill bill = billRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Bill not found"));
-
-        if (!StringUtils.hasText(bill.getPdfPath())) {
-            return ResponseEntity.notFound().build();
-        }
-
-        FileSystemResource resource = new FileSystemResource(bill.getPdfPath());
-        if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
+    public void downloadBillPdf(@PathVariable Long id,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        BillDocumentProjection document = billRepository.findDocumentByBillId(id).orElse(null);
+        if (document == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
         }
 
-        return ResponseEntity.ok()
-            .contentType(MediaType.APPLICATION_PDF)
-            .header(HttpHeaders.CONTENT_DISPOSITION,
-                "attachment; filename=" + resource.getFilename())
-            .body(resource);
+        Path pdfPath = billPdfCacheService.pinPdf(document);
+        documentDownloadService.serve(request, response, pdfPath.toString(), MediaType.APPLICATION_PDF_VALUE, false,
+            () -> billPdfCacheService.releaseDownload(pdfPath));
     }
 }
@@ -37,7 +37,8 @@ public class BillingBatchController {
 
         BillBatchGenerationResponse result = billingService.generateBillsForBillingMonth(
             request.billingMonth(),
-            currentUser
+            currentUser,
+            request.prerenderPdf()
         );
 
         Map<String, Object> payload = new HashMap<>();
@@ -0,0 +1,42 @@
+package com.msedcl.billing.admin.billing.controller;
+
+import com.msedcl.billing.admin.billing.dto.ReminderRunReport;
+import com.msedcl.billing.admin.billing.service.BillingReminderScheduler;
+import com.msedcl.billing.shared.entity.ReminderRun;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/reminders")
+@RequiredArgsConstructor
+public class ReminderRunController {
+
+    private final BillingReminderScheduler reminderScheduler;
+
+    @GetMapping("/runs")
+    public ResponseEntity<List<ReminderRunReport>> getRecentRuns() {
+        return ResponseEntity.ok(reminderScheduler.recentRuns());
+    }
+
+    @PostMapping("/run")
+    public ResponseEntity<?> runReminders(@RequestParam ReminderRun.RunType type,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                          Authentication authentication) {
+        try {
+            return ResponseEntity.ok(reminderScheduler.run(type, date != null ? date : LocalDate.now(), authentication.getName()));
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.msedcl.billing.admin.billing.dto;
+
+import java.math.BigDecimal;
+
+public interface BillDocumentProjection {
+    Long getBillId();
+    Long getCustomerId();
+    String getInvoiceNumber();
+    String getPdfPath();
+    String getQrCodePath();
+    BigDecimal getNetPayable();
+    BigDecimal getBalanceAmount();
+}
@@ -0,0 +1,17 @@
+package com.msedcl.billing.admin.billing.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface ReminderBillProjection {
+    Long getBillId();
+    String getInvoiceNumber();
+    LocalDate getDueDate();
+    BigDecimal getAmountDue();
+    String getAccountNumber();
+    Long getCustomerId();
+    String getCustomerNumber();
+    String getCustomerName();
+    String getEmail();
+    String getPhoneNumber();
+}
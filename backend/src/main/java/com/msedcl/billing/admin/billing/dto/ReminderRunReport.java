@@ -0,0 +1,34 @@
+package com.msedcl.billing.admin.billing.dto;
+
+import com.msedcl.billing.shared.entity.ReminderRun;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public record ReminderRunReport(Long runId,
+                                ReminderRun.RunType runType,
+                                LocalDate runDate,
+                                ReminderRun.Status status,
+                                int attempts,
+                                long lastCustomerId,
+                                int pages,
+                                int billsQueued,
+                                int billsSkipped,
+                                int billsFailed,
+                                int messagesQueued,
+                                int messagesSuppressed,
+                                long elapsedMillis,
+                                double billsPerSecond,
+                                String lastError,
+                                LocalDateTime startedAt,
+                                LocalDateTime completedAt) {
+
+    public static ReminderRunReport from(ReminderRun run) {
+        long processed = (long) run.getBillsQueued() + run.getBillsSkipped() + run.getBillsFailed();
+        double perSecond = run.getElapsedMs() > 0 ? processed * 1000.0 / run.getElapsedMs() : 0;
+        return new ReminderRunReport(run.getRunId(), run.getRunType(), run.getRunDate(), run.getStatus(),
+            run.getAttempts(), run.getLastCustomerId(), run.getPages(), run.getBillsQueued(), run.getBillsSkipped(),
+            run.getBillsFailed(), run.getMessagesQueued(), run.getMessagesSuppressed(), run.getElapsedMs(), Math.round(perSecond * 10) / 10.0, run.getLastError(),
+            run.getStartedAt(), run.getCompletedAt());
+    }
+}
@@ -1,7 +1,14 @@
 package com.msedcl.billing.admin.billing.repository;
 
+import com.msedcl.billing.admin.billing.dto.BillDocumentProjection;
+import com.msedcl.billing.admin.billing.dto.ReminderBillProjection;
+import com.msedcl.billing.admin.reconciliation.dto.SettlementBillProjection;
 import com.msedcl.billing.shared.entity.Bill;
+import com.msedcl.billing.user.payment.dto.OpenBillProjection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.repository.query.Param;
@@ -43,10 +50,6 @@ public interface BillRepository extends JpaRepository<Bill, Long> {
 
     long countByBillStatusIn(Collection<Bill.BillStatus> statuses);
 
-    List<Bill> findByDueDateBetweenAndBillStatusIn(LocalDate start, LocalDate end, Collection<Bill.BillStatus> statuses);
-
-    List<Bill> findByBillStatusInAndDueDateBefore(Collection<Bill.BillStatus> statuses, LocalDate date);
-
     List<Bill> findByAccountCustomerCustomerIdOrderByBillDateDesc(Long customerId);
 
     Optional<Bill> findTopByAccountCustomerCustomerIdOrderByBillDateDesc(Long customerId);
@@ -58,4 +61,66 @@ public interface BillRepository extends JpaRepository<Bill, Long> {
     List<Bill> findTop6ByAccountCustomerCustomerIdOrderByBillDateDesc(Long customerId);
 
     Optional<Bill> findTopByAccountCustomerCustomerIdAndBillStatusInOrderByDueDateAsc(Long customerId, Collection<Bill.BillStatus> statuses);
+
+    @Query("SELECT b.billId AS billId, c.customerId AS customerId, b.invoiceNumber AS invoiceNumber, " +
+           "b.pdfPath AS pdfPath, b.qrCodePath AS qrCodePath, b.netPayable AS netPayable, b.balanceAmount AS balanceAmount " +
+           "FROM Bill b JOIN b.account a JOIN a.customer c WHERE b.billId = :billId")
+    Optional<BillDocumentProjection> findDocumentByBillId(@Param("billId") Long billId);
+
+    /**
+     * One keyset page of customers with an open bill due in {@code [from, to]}, walked in
+     * customer_id order.
+     */
+    @Query("SELECT DISTINCT c.customerId FROM Bill b JOIN b.account a JOIN a.customer c " +
+           "WHERE c.customerId > :afterCustomerId AND b.dueDate BETWEEN :from AND :to AND b.billStatus IN :statuses " +
+           "ORDER BY c.customerId")
+    List<Long> findReminderCustomerIds(@Param("afterCustomerId") Long afterCustomerId,
+                                       @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to,
+                                       @Param("statuses") Collection<Bill.BillStatus> statuses,
+                                       Pageable pageable);
+
+    /**
+     * The matching open bills of those customers, grouped by customer, with the contact
+     * details reminders need so no entities are loaded. The amount due is the open balance,
+     * so part payments and wallet credit applied at generation are not asked for again.
+     */
+    @Query("SELECT b.billId AS billId, b.invoiceNumber AS invoiceNumber, b.dueDate AS dueDate, " +
+           "COALESCE(b.balanceAmount, b.netPayable) AS amountDue, a.accountNumber AS accountNumber, c.customerId AS customerId, " +
+           "c.customerNumber AS customerNumber, c.fullName AS customerName, c.email AS email, " +
+           "c.phoneNumber AS phoneNumber " +
+           "FROM Bill b JOIN b.account a JOIN a.customer c " +
+           "WHERE c.customerId IN :customerIds AND b.dueDate BETWEEN :from AND :to AND b.billStatus IN :statuses " +
+           "ORDER BY c.customerId, b.billId")
+    List<ReminderBillProjection> findReminderBills(@Param("customerIds") Collection<Long> customerIds,
+                                                   @Param("from") LocalDate from,
+                                                   @Param("to") LocalDate to,
+                                                   @Param("statuses") Collection<Bill.BillStatus> statuses);
+
+    @Query("SELECT b.account.accountId FROM Bill b WHERE b.billId = :billId")
+    Optional<Long> findAccountIdByBillId(@Param("billId") Long billId);
+
+    @EntityGraph(attributePaths = {"account", "account.customer", "account.customer.areaDetails", "meterReading"})
+    Optional<Bill> findWithAccountByBillId(Long billId);
+
+    @Modifying
+    @Query("UPDATE Bill b SET b.pdfPath = :pdfPath WHERE b.billId = :billId")
+    int updatePdfPath(@Param("billId") Long billId, @Param("pdfPath") String pdfPath);
+
+    @Query("SELECT b.billId AS billId, b.invoiceNumber AS invoiceNumber, a.accountId AS accountId, " +
+           "c.customerId AS customerId, b.netPayable AS netPayable, b.amountPaid AS amountPaid, " +
+           "b.balanceAmount AS balanceAmount, b.billStatus AS billStatus, b.version AS version " +
+           "FROM Bill b JOIN b.account a JOIN a.customer c WHERE b.invoiceNumber IN :invoiceNumbers")
+    List<SettlementBillProjection> findSettlementTargets(@Param("invoiceNumbers") Collection<String> invoiceNumbers);
+
+    @Query("SELECT b.billId FROM Bill b WHERE b.billStatus IN ('UNPAID', 'PARTIALLY_PAID') " +
+           "AND b.balanceAmount >= :minBalance ORDER BY b.billId")
+    List<Long> findOpenBillIds(@Param("minBalance") BigDecimal minBalance, Pageable pageable);
+
+    @Query("SELECT b.billId AS billId, b.invoiceNumber AS invoiceNumber, b.billDate AS billDate, b.dueDate AS dueDate, " +
+           "b.netPayable AS netPayable, b.amountPaid AS amountPaid, b.balanceAmount AS balanceAmount, " +
+           "b.billStatus AS billStatus, b.version AS version FROM Bill b " +
+           "WHERE b.account.accountId = :accountId AND b.billStatus IN ('UNPAID', 'PARTIALLY_PAID', 'OVERDUE') " +
+           "AND COALESCE(b.balanceAmount, b.netPayable) > 0 ORDER BY b.billDate, b.billId")
+    List<OpenBillProjection> findOpenBillsForAccount(@Param("accountId") Long accountId);
 }
@@ -0,0 +1,61 @@
+package com.msedcl.billing.admin.billing.repository;
+
+import com.msedcl.billing.shared.entity.ReminderRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReminderRunRepository extends JpaRepository<ReminderRun, Long> {
+
+    Optional<ReminderRun> findByRunTypeAndRunDate(ReminderRun.RunType runType, LocalDate runDate);
+
+    List<ReminderRun> findByRunDateAndStatusIn(LocalDate runDate, Collection<ReminderRun.Status> statuses);
+
+    List<ReminderRun> findTop20ByOrderByRunDateDescRunIdDesc();
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO reminder_runs (run_type, run_date, status, started_at, heartbeat_at) " +
+                   "VALUES (:runType, :runDate, 'PENDING', :now, :now)", nativeQuery = true)
+    int createIfMissing(@Param("runType") String runType, @Param("runDate") LocalDate runDate,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * Takes ownership of the day's run unless it has completed or another instance is
+     * still heartbeating it. A run whose owner died is picked up once its heartbeat is
+     * older than {@code staleBefore}.
+     */
+    @Modifying
+    @Query(value = "UPDATE reminder_runs SET status = 'RUNNING', attempts = attempts + 1, heartbeat_at = :now, " +
+                   "last_error = NULL WHERE run_type = :runType AND run_date = :runDate " +
+                   "AND (status IN ('PENDING', 'FAILED') OR (status = 'RUNNING' AND heartbeat_at < :staleBefore))",
+           nativeQuery = true)
+    int claim(@Param("runType") String runType, @Param("runDate") LocalDate runDate,
+              @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE ReminderRun r SET r.lastCustomerId = :lastCustomerId, r.pages = r.pages + 1, " +
+           "r.billsQueued = r.billsQueued + :queued, r.billsSkipped = r.billsSkipped + :skipped, " +
+           "r.billsFailed = r.billsFailed + :failed, r.messagesQueued = r.messagesQueued + :messagesQueued, " +
+           "r.messagesSuppressed = r.messagesSuppressed + :messagesSuppressed, r.heartbeatAt = :now " +
+           "WHERE r.runId = :runId")
+    int checkpoint(@Param("runId") Long runId, @Param("lastCustomerId") Long lastCustomerId, @Param("queued") int queued,
+                   @Param("skipped") int skipped, @Param("failed") int failed,
+                   @Param("messagesQueued") int messagesQueued, @Param("messagesSuppressed") int messagesSuppressed,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ReminderRun r SET r.status = :status, r.elapsedMs = r.elapsedMs + :elapsedMs, " +
+           "r.lastError = :error, r.heartbeatAt = :now, r.completedAt = :completedAt WHERE r.runId = :runId")
+    int finish(@Param("runId") Long runId, @Param("status") ReminderRun.Status status, @Param("elapsedMs") long elapsedMs,
+               @Param("error") String error, @Param("now") LocalDateTime now,
+               @Param("completedAt") LocalDateTime completedAt);
+}
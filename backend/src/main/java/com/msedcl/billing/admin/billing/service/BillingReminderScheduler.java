@@ -1,58 +1,256 @@
 package com.msedcl.billing.admin.billing.service;
 
-import com.msedcl.billing.shared.entity.Bill;
+import com.msedcl.billing.admin.billing.dto.ReminderBillProjection;
+import com.msedcl.billing.admin.billing.dto.ReminderRunReport;
+import com.msedcl.billing.admin.billing.repository.ReminderRunRepository;
 import com.msedcl.billing.shared.entity.Bill.BillStatus;
 import com.msedcl.billing.admin.billing.repository.BillRepository;
+import com.msedcl.billing.shared.config.ExecutorRegistry;
+import com.msedcl.billing.shared.dto.ReminderDigestResult;
+import com.msedcl.billing.shared.entity.ReminderRun;
 import com.msedcl.billing.shared.service.NotificationService;
 import com.msedcl.billing.admin.audit.service.AuditLogService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Daily due-date and overdue reminder runs. Customers with open bills are read in
+ * keyset pages (by customer_id) with their bills as flat projections, and each page is
+ * turned into one digest per customer and channel and queued to the outbox on the
+ * reminder executor, in its own transaction, while the next page is being read.
+ * At most {@code reminders.workers} pages are in flight at once; the pool's threads and
+ * queue should hold that many.
+ * <p>
+ * Pages complete in order into a checkpoint on the run's {@code reminder_runs} row, so
+ * a run that dies part way is resumed from the last checkpoint by the next trigger (or
+ * by another instance once the heartbeat goes stale) rather than starting over.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class BillingReminderScheduler {
 
     private static final EnumSet<BillStatus> PENDING_STATUSES = EnumSet.of(BillStatus.UNPAID, BillStatus.PARTIALLY_PAID);
 
     private final BillRepository billRepository;
+    private final ReminderRunRepository reminderRunRepository;
     private final NotificationService notificationService;
     private final AuditLogService auditLogService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+    private final int workerCount;
 
-    @Scheduled(cron = "0 0 9 * * ?")
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${reminders.page-size:500}")
+    private int pageSize;
+
+    @Value("${reminders.upcoming-window-days:3}")
+    private int upcomingWindowDays;
+
+    @Value("${reminders.stale-after-seconds:600}")
+    private long staleAfterSeconds;
+
+    @Value("${reminders.max-attempts:5}")
+    private int maxAttempts;
+
+    public BillingReminderScheduler(BillRepository billRepository,
+                                    ReminderRunRepository reminderRunRepository,
+                                    NotificationService notificationService,
+                                    AuditLogService auditLogService,
+                                    PlatformTransactionManager transactionManager,
+                                    ExecutorRegistry executorRegistry,
+                                    @Value("${reminders.workers:4}") int workerCount) {
+        this.billRepository = billRepository;
+        this.reminderRunRepository = reminderRunRepository;
+        this.notificationService = notificationService;
+        this.auditLogService = auditLogService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerCount = workerCount;
+        this.workers = executorRegistry.get(ExecutorRegistry.REMINDER);
+    }
+
+    @Scheduled(cron = "${reminders.upcoming-cron:0 0 9 * * ?}")
     public void sendUpcomingDueReminders() {
-        LocalDate today = LocalDate.now();
-        LocalDate windowEnd = today.plusDays(3);
-        List<Bill> upcomingBills = billRepository.findByDueDateBetweenAndBillStatusIn(today, windowEnd, PENDING_STATUSES);
-        upcomingBills.forEach(bill -> {
-            try {
-                notificationService.sendBillReminderEmail(bill, false);
-                auditLogService.record("SYSTEM", "BILL_REMINDER", "Bill", bill.getBillId(),
-                    "Sent upcoming due reminder for invoice " + bill.getInvoiceNumber(), null);
-            } catch (Exception ex) {
-                log.error("Failed to send upcoming due reminder for invoice {}", bill.getInvoiceNumber(), ex);
-            }
-        });
+        runScheduled(ReminderRun.RunType.UPCOMING);
     }
 
-    @Scheduled(cron = "0 0 18 * * ?")
+    @Scheduled(cron = "${reminders.overdue-cron:0 0 18 * * ?}")
     public void sendOverdueReminders() {
-        LocalDate today = LocalDate.now();
-        List<Bill> overdueBills = billRepository.findByBillStatusInAndDueDateBefore(PENDING_STATUSES, today);
-        overdueBills.forEach(bill -> {
+        runScheduled(ReminderRun.RunType.OVERDUE);
+    }
+
+    /**
+     * Picks up today's runs that failed or whose owner died, from their checkpoint.
+     */
+    @Scheduled(fixedDelayString = "${reminders.resume-check-ms:300000}")
+    public void resumeInterruptedRuns() {
+        if (running.get()) {
+            return;
+        }
+        List<ReminderRun> unfinished = reminderRunRepository.findByRunDateAndStatusIn(LocalDate.now(),
+            EnumSet.of(ReminderRun.Status.RUNNING, ReminderRun.Status.FAILED));
+        LocalDateTime staleBefore = LocalDateTime.now().minusSeconds(staleAfterSeconds);
+        for (ReminderRun run : unfinished) {
+            boolean abandoned = run.getStatus() == ReminderRun.Status.FAILED || run.getHeartbeatAt().isBefore(staleBefore);
+            if (abandoned && run.getAttempts() < maxAttempts) {
+                runScheduled(run.getRunType());
+            }
+        }
+    }
+
+    public List<ReminderRunReport> recentRuns() {
+        return reminderRunRepository.findTop20ByOrderByRunDateDescRunIdDesc().stream()
+            .map(ReminderRunReport::from)
+            .toList();
+    }
+
+    private void runScheduled(ReminderRun.RunType type) {
+        try {
+            run(type, LocalDate.now(), "SYSTEM");
+        } catch (IllegalStateException ex) {
+            log.warn("Skipping scheduled {} reminder run: {}", type, ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.error("{} reminder run failed; it will resume from its last checkpoint", type, ex);
+        }
+    }
+
+    /**
+     * Runs (or resumes) the reminder run of {@code type} for {@code runDate}. A run that
+     * already completed is not repeated; its report is returned as is.
+     */
+    public ReminderRunReport run(ReminderRun.RunType type, LocalDate runDate, String triggeredBy) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A reminder run is already in progress");
+        }
+        try {
+            ReminderRun run = claim(type, runDate);
+            if (run.getStatus() == ReminderRun.Status.COMPLETED) {
+                return ReminderRunReport.from(run);
+            }
+
+            long started = System.currentTimeMillis();
             try {
-                notificationService.sendBillReminderEmail(bill, true);
-                auditLogService.record("SYSTEM", "BILL_OVERDUE_REMINDER", "Bill", bill.getBillId(),
-                    "Sent overdue reminder for invoice " + bill.getInvoiceNumber(), null);
-            } catch (Exception ex) {
-                log.error("Failed to send overdue reminder for invoice {}", bill.getInvoiceNumber(), ex);
+                walk(run);
+            } catch (RuntimeException ex) {
+                finish(run, ReminderRun.Status.FAILED, System.currentTimeMillis() - started, ex.getMessage());
+                throw ex;
             }
+            finish(run, ReminderRun.Status.COMPLETED, System.currentTimeMillis() - started, null);
+
+            ReminderRunReport report = ReminderRunReport.from(reminderRunRepository.findById(run.getRunId()).orElseThrow());
+            auditLogService.record(triggeredBy,
+                type == ReminderRun.RunType.OVERDUE ? "BILL_OVERDUE_REMINDER_RUN" : "BILL_REMINDER_RUN",
+                "ReminderRun",
+                report.runId(),
+                String.format("%s reminder run for %s: %d bills reminded, %d skipped, %d failed; %d messages queued, %d suppressed by frequency caps; %d pages in %d ms (attempt %d)",
+                    type, runDate, report.billsQueued(), report.billsSkipped(), report.billsFailed(),
+                    report.messagesQueued(), report.messagesSuppressed(), report.pages(), report.elapsedMillis(),
+                    report.attempts()),
+                null);
+            log.info("{} reminder run for {} finished: {} bills reminded with {} messages ({} suppressed), {} failed, {} bills/s",
+                type, runDate, report.billsQueued(), report.messagesQueued(), report.messagesSuppressed(),
+                report.billsFailed(), report.billsPerSecond());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReminderRun claim(ReminderRun.RunType type, LocalDate runDate) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> {
+            reminderRunRepository.createIfMissing(type.name(), runDate, now);
+            return reminderRunRepository.claim(type.name(), runDate, now, now.minusSeconds(staleAfterSeconds));
         });
+        ReminderRun run = reminderRunRepository.findByRunTypeAndRunDate(type, runDate)
+            .orElseThrow(() -> new IllegalStateException("Reminder run row missing for " + type + " " + runDate));
+        if ((claimed == null || claimed == 0) && run.getStatus() != ReminderRun.Status.COMPLETED) {
+            throw new IllegalStateException(type + " reminder run for " + runDate + " is running on another instance");
+        }
+        return run;
+    }
+
+    private void walk(ReminderRun run) {
+        boolean overdue = run.getRunType() == ReminderRun.RunType.OVERDUE;
+        LocalDate from = overdue ? LocalDate.EPOCH : run.getRunDate();
+        LocalDate to = overdue ? run.getRunDate().minusDays(1) : run.getRunDate().plusDays(upcomingWindowDays);
+        // Pages after the checkpoint may have been sent by the attempt that died
+        LocalDateTime resumeSince = run.getAttempts() > 1 ? run.getStartedAt() : null;
+        if (resumeSince != null) {
+            log.info("Resuming {} reminder run for {} after customer {}", run.getRunType(), run.getRunDate(),
+                run.getLastCustomerId());
+        }
+
+        Deque<PageTask> inFlight = new ArrayDeque<>();
+        long cursor = run.getLastCustomerId();
+        while (true) {
+            List<Long> customerIds = billRepository.findReminderCustomerIds(cursor, from, to, PENDING_STATUSES,
+                PageRequest.of(0, pageSize));
+            if (customerIds.isEmpty()) {
+                break;
+            }
+            cursor = customerIds.get(customerIds.size() - 1);
+            List<ReminderBillProjection> page = billRepository.findReminderBills(customerIds, from, to, PENDING_STATUSES);
+            if (inFlight.size() >= workerCount) {
+                complete(run, inFlight.poll());
+            }
+            Future<ReminderDigestResult> result = workers.submit(() -> transactionTemplate.execute(status ->
+                notificationService.sendBillReminders(page, overdue, resumeSince)));
+            inFlight.add(new PageTask(cursor, page.size(), result));
+            if (customerIds.size() < pageSize) {
+                break;
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            complete(run, inFlight.poll());
+        }
+    }
+
+    private void complete(ReminderRun run, PageTask task) {
+        ReminderDigestResult result = await(task);
+        int failed = result == null ? task.bills : 0;
+        ReminderDigestResult counts = result != null ? result : new ReminderDigestResult(0, 0, 0);
+        transactionTemplate.executeWithoutResult(status -> reminderRunRepository.checkpoint(run.getRunId(),
+            task.lastCustomerId, counts.billsCovered(), task.bills - counts.billsCovered() - failed, failed,
+            counts.messagesQueued(), counts.messagesSuppressed(), LocalDateTime.now()));
+    }
+
+    private ReminderDigestResult await(PageTask task) {
+        try {
+            return task.result.get();
+        } catch (ExecutionException ex) {
+            // The page's transaction rolled back; its customers are picked up by the next day's run
+            log.warn("Reminder page ending at customer {} failed: {}", task.lastCustomerId, ex.getCause().getMessage());
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for reminder page", ex);
+        }
+    }
+
+    private void finish(ReminderRun run, ReminderRun.Status status, long elapsedMillis, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        String message = error == null || error.length() <= 500 ? error : error.substring(0, 500);
+        transactionTemplate.executeWithoutResult(tx -> reminderRunRepository.finish(run.getRunId(), status, elapsedMillis,
+            message, now, status == ReminderRun.Status.COMPLETED ? now : null));
+    }
+
+    private record PageTask(long lastCustomerId, int bills, Future<ReminderDigestResult> result) {
     }
 }
@@ -9,11 +9,15 @@ import com.msedcl.billing.admin.tariff.repository.TariffSlabRepository;
 import com.msedcl.billing.admin.tariff.repository.AdditionalChargeRepository;
 import com.msedcl.billing.admin.tariff.repository.SubsidyRuleRepository;
 import com.msedcl.billing.admin.tariff.repository.LateFeePolicyRepository;
-import com.msedcl.billing.shared.service.PdfService;
+import com.msedcl.billing.shared.service.BillPdfCacheService;
 import com.msedcl.billing.shared.service.QrCodeService;
+import com.msedcl.billing.shared.service.WalletService;
 import com.msedcl.billing.admin.audit.service.AuditLogService;
+import com.msedcl.billing.shared.event.BillGeneratedEvent;
 import com.msedcl.billing.shared.service.NotificationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -37,15 +41,27 @@ public class BillingService {
     private final AdditionalChargeRepository additionalChargeRepository;
     private final SubsidyRuleRepository subsidyRuleRepository;
     private final LateFeePolicyRepository lateFeePolicyRepository;
-    private final PdfService pdfService;
+    private final BillPdfCacheService billPdfCacheService;
     private final QrCodeService qrCodeService;
     private final AuditLogService auditLogService;
     private final NotificationService notificationService;
-    private final com.msedcl.billing.admin.customer.repository.CustomerRepository customerRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WalletService walletService;
     private final com.msedcl.billing.user.payment.repository.PaymentRepository paymentRepository;
 
+    @Value("${pdf.prerender:false}")
+    private boolean prerenderPdfByDefault;
+
     @Transactional
     public Bill generateBill(Long readingId, User generatedBy) {
+        return generateBill(readingId, generatedBy, prerenderPdfByDefault);
+    }
+
+    /**
+     * @param prerenderPdf render the PDF now; otherwise it is rendered on first download
+     */
+    @Transactional
+    public Bill generateBill(Long readingId, User generatedBy, boolean prerenderPdf) {
         MeterReading reading = meterReadingRepository.findById(readingId)
             .orElseThrow(() -> new RuntimeException("Reading not found"));
 
@@ -115,28 +131,20 @@ public class BillingService {
 
         // Auto-apply customer advance (wallet) to the newly created bill, if available
         try {
-            com.msedcl.billing.shared.entity.Customer customer = account.getCustomer();
-            java.math.BigDecimal advanceAvailable = java.math.BigDecimal.ZERO;
-            if (customer.getAdvancePayment() != null && customer.getAdvancePayment() > 0) {
-                advanceAvailable = java.math.BigDecimal.valueOf(customer.getAdvancePayment()).setScale(2, java.math.RoundingMode.HALF_UP);
-            }
-
             java.math.BigDecimal outstanding = Optional.ofNullable(savedBill.getBalanceAmount()).orElse(savedBill.getNetPayable());
+            java.math.BigDecimal applyFromAdvance = outstanding.compareTo(java.math.BigDecimal.ZERO) > 0
+                ? walletService.debitForBill(account.getCustomer().getCustomerId(), outstanding, savedBill,
+                    "Auto-applied to invoice " + savedBill.getInvoiceNumber(), generatedBy)
+                : java.math.BigDecimal.ZERO;
 
-            if (advanceAvailable.compareTo(java.math.BigDecimal.ZERO) > 0 && outstanding.compareTo(java.math.BigDecimal.ZERO) > 0) {
-                java.math.BigDecimal applyFromAdvance = advanceAvailable.min(outstanding).setScale(2, java.math.RoundingMode.HALF_UP);
-
-                // deduct from customer wallet
-                double newAdvance = customer.getAdvancePayment() - applyFromAdvance.doubleValue();
-                customer.setAdvancePayment(newAdvance);
-                customerRepository.save(customer);
-
+            if (applyFromAdvance.compareTo(java.math.BigDecimal.ZERO) > 0) {
                 // update bill amounts/status
                 java.math.BigDecimal safeAmountPaid = Optional.ofNullable(savedBill.getAmountPaid()).orElse(java.math.BigDecimal.ZERO);
                 java.math.BigDecimal newAmountPaid = safeAmountPaid.add(applyFromAdvance).setScale(2, java.math.RoundingMode.HALF_UP);
                 java.math.BigDecimal newBalance = Optional.ofNullable(savedBill.getBalanceAmount()).orElse(savedBill.getNetPayable()).subtract(applyFromAdvance).setScale(2, java.math.RoundingMode.HALF_UP);
 
                 savedBill.setAmountPaid(newAmountPaid);
+                savedBill.setAdvanceApplied(applyFromAdvance);
                 savedBill.setBalanceAmount(newBalance.max(java.math.BigDecimal.ZERO));
                 if (newBalance.compareTo(java.math.BigDecimal.ZERO) <= 0) {
                     savedBill.setBillStatus(Bill.BillStatus.PAID);
@@ -175,11 +183,10 @@ public class BillingService {
         }
 
         try {
-            String pdfPath = pdfService.generateBillPdf(savedBill);
-            String qrPath = qrCodeService.generateQrCode(savedBill);
-
-            savedBill.setPdfPath(pdfPath);
-            savedBill.setQrCodePath(qrPath);
+            if (prerenderPdf) {
+                savedBill.setPdfPath(billPdfCacheService.store(savedBill));
+            }
+            savedBill.setQrCodePath(qrCodeService.generateQrCode(savedBill));
 
             billRepository.save(savedBill);
         } catch (Exception e) {
@@ -187,6 +194,7 @@ public class BillingService {
         }
 
         notificationService.sendBillGeneratedEmail(savedBill);
+        eventPublisher.publishEvent(BillGeneratedEvent.of(savedBill));
 
         auditLogService.record(generatedBy,
             "GENERATE_BILL",
@@ -199,7 +207,8 @@ public class BillingService {
     }
 
     @Transactional
-    public BillBatchGenerationResponse generateBillsForBillingMonth(String billingMonth, User generatedBy) {
+    public BillBatchGenerationResponse generateBillsForBillingMonth(String billingMonth, User generatedBy, Boolean prerenderPdf) {
+        boolean prerender = prerenderPdf != null ? prerenderPdf : prerenderPdfByDefault;
         List<MeterReading> readings = meterReadingRepository.findByBillingMonth(billingMonth);
 
         int evaluated = readings.size();
@@ -218,7 +227,7 @@ public class BillingService {
                     continue;
                 }
 
-                generateBill(reading.getReadingId(), generatedBy);
+                generateBill(reading.getReadingId(), generatedBy, prerender);
                 created++;
             } catch (Exception ex) {
                 skipped++;
@@ -0,0 +1,64 @@
+package com.msedcl.billing.admin.collection.controller;
+
+import com.msedcl.billing.admin.collection.dto.CollectionCloseResponse;
+import com.msedcl.billing.admin.collection.service.CollectionCloseService;
+import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.shared.repository.UserRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/collections/closes")
+@RequiredArgsConstructor
+public class CollectionCloseController {
+
+    private final CollectionCloseService collectionCloseService;
+    private final UserRepository userRepository;
+
+    @GetMapping
+    public ResponseEntity<List<CollectionCloseResponse>> listCloses(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(30);
+        return ResponseEntity.ok(collectionCloseService.listCloses(start, end));
+    }
+
+    @GetMapping("/{businessDate}")
+    public ResponseEntity<?> getClose(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        try {
+            return ResponseEntity.ok(collectionCloseService.getClose(businessDate));
+        } catch (RuntimeException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        }
+    }
+
+    @PostMapping("/{businessDate}")
+    public ResponseEntity<?> closeDay(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate,
+                                      Authentication authentication,
+                                      HttpServletRequest request) {
+        User currentUser = userRepository.findByUsername(authentication.getName())
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        try {
+            return ResponseEntity.ok(collectionCloseService.closeDay(businessDate, currentUser, request.getRemoteAddr()));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.msedcl.billing.admin.collection.dto;
+
+import com.msedcl.billing.shared.entity.CollectionCloseTotal;
+import com.msedcl.billing.shared.entity.CollectionDayClose;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record CollectionCloseResponse(LocalDate businessDate,
+                                      int paymentCount,
+                                      BigDecimal totalAmount,
+                                      BigDecimal totalFee,
+                                      BigDecimal totalNet,
+                                      String closedBy,
+                                      LocalDateTime closedAt,
+                                      List<Breakdown> breakdown) {
+
+    public record Breakdown(CollectionCloseTotal.Dimension dimension,
+                            String key,
+                            int paymentCount,
+                            BigDecimal amount,
+                            BigDecimal fee,
+                            BigDecimal net) {
+
+        public static Breakdown from(CollectionCloseTotal total) {
+            return new Breakdown(total.getDimension(), total.getDimensionKey(), total.getPaymentCount(),
+                total.getAmount(), total.getFee(), total.getNet());
+        }
+    }
+
+    public static CollectionCloseResponse from(CollectionDayClose close, List<CollectionCloseTotal> totals) {
+        return new CollectionCloseResponse(
+            close.getBusinessDate(),
+            close.getPaymentCount(),
+            close.getTotalAmount(),
+            close.getTotalFee(),
+            close.getTotalNet(),
+            close.getClosedBy() != null ? close.getClosedBy().getUsername() : "SYSTEM",
+            close.getClosedAt(),
+            totals == null ? List.of() : totals.stream().map(Breakdown::from).toList()
+        );
+    }
+}
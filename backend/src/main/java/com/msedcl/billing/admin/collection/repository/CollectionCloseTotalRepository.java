@@ -0,0 +1,14 @@
+package com.msedcl.billing.admin.collection.repository;
+
+import com.msedcl.billing.shared.entity.CollectionCloseTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CollectionCloseTotalRepository extends JpaRepository<CollectionCloseTotal, Long> {
+
+    List<CollectionCloseTotal> findByBusinessDateOrderByDimensionAscAmountDesc(LocalDate businessDate);
+}
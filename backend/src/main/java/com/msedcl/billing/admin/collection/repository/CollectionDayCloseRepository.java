@@ -0,0 +1,31 @@
+package com.msedcl.billing.admin.collection.repository;
+
+import com.msedcl.billing.shared.entity.CollectionDayClose;
+import com.msedcl.billing.user.payment.dto.MonthlyCollectionProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CollectionDayCloseRepository extends JpaRepository<CollectionDayClose, LocalDate> {
+
+    Optional<CollectionDayClose> findTopByOrderByBusinessDateDesc();
+
+    Optional<CollectionDayClose> findTopByOrderByBusinessDateAsc();
+
+    List<CollectionDayClose> findByBusinessDateBetweenOrderByBusinessDateDesc(LocalDate from, LocalDate to);
+
+    @Query("SELECT COALESCE(SUM(c.totalAmount), 0) FROM CollectionDayClose c WHERE c.businessDate BETWEEN :from AND :to")
+    BigDecimal sumTotalAmountBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT YEAR(c.businessDate) AS year, MONTH(c.businessDate) AS month, COALESCE(SUM(c.totalAmount), 0) AS totalAmount " +
+           "FROM CollectionDayClose c WHERE c.businessDate >= :since " +
+           "GROUP BY YEAR(c.businessDate), MONTH(c.businessDate) ORDER BY year, month")
+    List<MonthlyCollectionProjection> findMonthlyTotals(@Param("since") LocalDate since);
+}
@@ -0,0 +1,326 @@
+package com.msedcl.billing.admin.collection.service;
+
+import com.msedcl.billing.admin.audit.service.AuditLogService;
+import com.msedcl.billing.admin.collection.dto.CollectionCloseResponse;
+import com.msedcl.billing.admin.collection.repository.CollectionCloseTotalRepository;
+import com.msedcl.billing.admin.collection.repository.CollectionDayCloseRepository;
+import com.msedcl.billing.shared.entity.CollectionCloseTotal;
+import com.msedcl.billing.shared.entity.CollectionDayClose;
+import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.user.payment.dto.MonthlyCollectionProjection;
+import com.msedcl.billing.user.payment.repository.PaymentRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Day-end collection close. Each business day's successful payments are streamed once,
+ * totalled per payment mode, channel and processing user, and written to immutable
+ * snapshot tables. Closed days form a contiguous range from the first close to the
+ * latest one, and nothing dated inside it may be posted afterwards. Days before the
+ * first close have no snapshot: they stay open and, like the open tail after the latest
+ * close, are aggregated from raw payments in collection reports.
+ * <p>
+ * A close holds the {@code collection_close_lock} row exclusively while it streams and
+ * writes the day, and back-dated postings hold it shared until they commit, so a close
+ * never misses a posting that was checked against the previous range.
+ */
+@Service
+@Slf4j
+public class CollectionCloseService {
+
+    private static final String STREAM_DAY =
+        "SELECT p.payment_id, p.payment_mode, p.payment_channel, u.username, p.payment_amount, p.convenience_fee, " +
+        "p.net_amount FROM payments p LEFT JOIN users u ON u.user_id = p.processed_by " +
+        "WHERE p.payment_status = 'SUCCESS' AND p.payment_date >= ? AND p.payment_date < ?";
+
+    private static final String INSERT_CLOSE =
+        "INSERT INTO collection_day_closes (business_date, payment_count, total_amount, total_fee, total_net, " +
+        "last_payment_id, closed_by, closed_at) VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    private static final String LOCK_EXCLUSIVE = "SELECT lock_id FROM collection_close_lock WHERE lock_id = 1 FOR UPDATE";
+    private static final String LOCK_SHARED = "SELECT lock_id FROM collection_close_lock WHERE lock_id = 1 LOCK IN SHARE MODE";
+
+    private static final String INSERT_TOTAL =
+        "INSERT INTO collection_close_totals (business_date, dimension, dimension_key, payment_count, amount, fee, net) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final CollectionDayCloseRepository dayCloseRepository;
+    private final CollectionCloseTotalRepository closeTotalRepository;
+    private final PaymentRepository paymentRepository;
+    private final AuditLogService auditLogService;
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicReference<ClosedRange> closedRange = new AtomicReference<>();
+
+    public CollectionCloseService(CollectionDayCloseRepository dayCloseRepository,
+                                  CollectionCloseTotalRepository closeTotalRepository,
+                                  PaymentRepository paymentRepository,
+                                  AuditLogService auditLogService,
+                                  JdbcTemplate jdbcTemplate,
+                                  DataSource dataSource,
+                                  PlatformTransactionManager transactionManager) {
+        this.dayCloseRepository = dayCloseRepository;
+        this.closeTotalRepository = closeTotalRepository;
+        this.paymentRepository = paymentRepository;
+        this.auditLogService = auditLogService;
+        this.jdbcTemplate = jdbcTemplate;
+        // MySQL Connector/J only streams rows one at a time with this fetch size
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${collections.close.refresh-ms:60000}", initialDelayString = "${collections.close.refresh-ms:60000}")
+    public void refreshClosedThrough() {
+        closedRange.set(loadClosedRange());
+    }
+
+    /**
+     * True when {@code date} is a closed business day, i.e. no payment may be posted
+     * with that date any more. Answers from the cached range; postings that must not
+     * race a close use {@link #lockForBackdatedPosting()} instead.
+     */
+    public boolean isClosed(LocalDate date) {
+        ClosedRange range = closedRange.get();
+        return range != null && range.contains(date);
+    }
+
+    /**
+     * Takes the close lock in shared mode in the caller's transaction and returns the
+     * closed days as committed. Until the caller commits no day can be closed, so a
+     * posting checked against the result is either refused or included in the close.
+     */
+    public Predicate<LocalDate> lockForBackdatedPosting() {
+        jdbcTemplate.queryForObject(LOCK_SHARED, Integer.class);
+        ClosedRange range = loadClosedRange();
+        return date -> range != null && range.contains(date);
+    }
+
+    private ClosedRange loadClosedRange() {
+        return dayCloseRepository.findTopByOrderByBusinessDateDesc()
+            .map(latest -> new ClosedRange(dayCloseRepository.findTopByOrderByBusinessDateAsc()
+                .map(CollectionDayClose::getBusinessDate)
+                .orElse(latest.getBusinessDate()), latest.getBusinessDate()))
+            .orElse(null);
+    }
+
+    @Scheduled(cron = "${collections.close.cron:0 15 0 * * ?}")
+    public void closePendingDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        ClosedRange range = closedRange.get();
+        LocalDate next = range != null ? range.through().plusDays(1) : yesterday;
+        while (!next.isAfter(yesterday)) {
+            try {
+                closeDay(next, null, null);
+            } catch (IllegalStateException ex) {
+                log.warn("Day-end close of {} skipped: {}", next, ex.getMessage());
+                return;
+            }
+            next = next.plusDays(1);
+        }
+    }
+
+    public synchronized CollectionCloseResponse closeDay(LocalDate businessDate, User closedBy, String ipAddress) {
+        if (businessDate == null || !businessDate.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Only past business days can be closed");
+        }
+        refreshClosedThrough();
+        ClosedRange range = closedRange.get();
+        LocalDate through = range != null ? range.through() : null;
+        if (through != null && !businessDate.isAfter(through)) {
+            throw new IllegalStateException("Collections are already closed through " + through);
+        }
+        if (through != null && businessDate.isAfter(through.plusDays(1))) {
+            throw new IllegalStateException("Close " + through.plusDays(1) + " first; closed days must be contiguous");
+        }
+
+        long started = System.currentTimeMillis();
+        DayTotals totals;
+        try {
+            totals = transactionTemplate.execute(status -> {
+                // Waits for back-dated postings in flight; the day is streamed after they commit
+                jdbcTemplate.queryForObject(LOCK_EXCLUSIVE, Integer.class);
+                ClosedRange committed = loadClosedRange();
+                if (committed != null && !businessDate.isAfter(committed.through())) {
+                    throw new IllegalStateException("Collections for " + businessDate + " were closed concurrently");
+                }
+                DayTotals day = streamDay(businessDate);
+                writeSnapshot(businessDate, day, closedBy);
+                return day;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            refreshClosedThrough();
+            throw new IllegalStateException("Collections for " + businessDate + " were closed concurrently", ex);
+        }
+        closedRange.set(new ClosedRange(range != null ? range.from() : businessDate, businessDate));
+
+        String details = String.format("Closed collections for %s: %d payments, amount ₹%s, fee ₹%s, net ₹%s",
+            businessDate, totals.all.count, totals.all.amount, totals.all.fee, totals.all.net);
+        if (closedBy != null) {
+            auditLogService.record(closedBy, "CLOSE_COLLECTION_DAY", "CollectionDayClose", null, details, ipAddress);
+        } else {
+            auditLogService.record("day-end-close", "CLOSE_COLLECTION_DAY", "CollectionDayClose", null, details, null);
+        }
+        log.info("{} in {} ms", details, System.currentTimeMillis() - started);
+        return getClose(businessDate);
+    }
+
+    public CollectionCloseResponse getClose(LocalDate businessDate) {
+        CollectionDayClose close = dayCloseRepository.findById(businessDate)
+            .orElseThrow(() -> new RuntimeException("Collections for " + businessDate + " are not closed"));
+        return CollectionCloseResponse.from(close, closeTotalRepository.findByBusinessDateOrderByDimensionAscAmountDesc(businessDate));
+    }
+
+    public List<CollectionCloseResponse> listCloses(LocalDate from, LocalDate to) {
+        return dayCloseRepository.findByBusinessDateBetweenOrderByBusinessDateDesc(from, to).stream()
+            .map(close -> CollectionCloseResponse.from(close, null))
+            .toList();
+    }
+
+    /**
+     * Successful payment amount for the inclusive date range: closed days come from the
+     * snapshots, and days before the first close or after the latest one are aggregated
+     * from payments.
+     */
+    public BigDecimal collectedBetween(LocalDate from, LocalDate to) {
+        ClosedRange range = closedRange.get();
+        if (range == null || from.isAfter(range.through()) || to.isBefore(range.from())) {
+            return rawCollected(from, to);
+        }
+        BigDecimal total = Optional.ofNullable(dayCloseRepository.sumTotalAmountBetween(
+                from.isBefore(range.from()) ? range.from() : from,
+                to.isAfter(range.through()) ? range.through() : to))
+            .orElse(BigDecimal.ZERO);
+        if (from.isBefore(range.from())) {
+            total = total.add(rawCollected(from, range.from().minusDays(1)));
+        }
+        if (to.isAfter(range.through())) {
+            total = total.add(rawCollected(range.through().plusDays(1), to));
+        }
+        return total;
+    }
+
+    public Map<YearMonth, BigDecimal> monthlyCollections(LocalDate since) {
+        Map<YearMonth, BigDecimal> months = new TreeMap<>();
+        ClosedRange range = closedRange.get();
+        if (range == null || since.isAfter(range.through())) {
+            mergeMonths(months, paymentRepository.findMonthlyCollections(since.atStartOfDay()));
+            return months;
+        }
+        if (since.isBefore(range.from())) {
+            mergeMonths(months, paymentRepository.findMonthlyCollectionsBetween(since.atStartOfDay(),
+                range.from().atStartOfDay()));
+        }
+        mergeMonths(months, dayCloseRepository.findMonthlyTotals(since));
+        mergeMonths(months, paymentRepository.findMonthlyCollections(range.through().plusDays(1).atStartOfDay()));
+        return months;
+    }
+
+    private static void mergeMonths(Map<YearMonth, BigDecimal> months, List<MonthlyCollectionProjection> totals) {
+        for (MonthlyCollectionProjection month : totals) {
+            months.merge(YearMonth.of(month.getYear(), month.getMonth()), month.getTotalAmount(), BigDecimal::add);
+        }
+    }
+
+    private BigDecimal rawCollected(LocalDate from, LocalDate to) {
+        return Optional.ofNullable(paymentRepository.sumSuccessfulPaymentsBetween(from.atStartOfDay(), to.plusDays(1).atStartOfDay().minusNanos(1)))
+            .orElse(BigDecimal.ZERO);
+    }
+
+    private DayTotals streamDay(LocalDate businessDate) {
+        DayTotals day = new DayTotals();
+        streamingJdbcTemplate.query(STREAM_DAY, rs -> {
+            long paymentId = rs.getLong(1);
+            String mode = rs.getString(2);
+            String channel = rs.getString(3);
+            String username = rs.getString(4);
+            BigDecimal amount = Optional.ofNullable(rs.getBigDecimal(5)).orElse(BigDecimal.ZERO);
+            BigDecimal fee = Optional.ofNullable(rs.getBigDecimal(6)).orElse(BigDecimal.ZERO);
+            BigDecimal net = Optional.ofNullable(rs.getBigDecimal(7)).orElse(BigDecimal.ZERO);
+
+            day.all.add(amount, fee, net);
+            day.bucket(CollectionCloseTotal.Dimension.PAYMENT_MODE, mode).add(amount, fee, net);
+            day.bucket(CollectionCloseTotal.Dimension.CHANNEL, channel != null ? channel : mode).add(amount, fee, net);
+            day.bucket(CollectionCloseTotal.Dimension.PROCESSED_BY, username != null ? username : "SYSTEM").add(amount, fee, net);
+            day.lastPaymentId = Math.max(day.lastPaymentId, paymentId);
+        }, Timestamp.valueOf(businessDate.atStartOfDay()), Timestamp.valueOf(businessDate.plusDays(1).atStartOfDay()));
+        return day;
+    }
+
+    private void writeSnapshot(LocalDate businessDate, DayTotals day, User closedBy) {
+        Date date = Date.valueOf(businessDate);
+        jdbcTemplate.update(INSERT_CLOSE, date, day.all.count, scaled(day.all.amount), scaled(day.all.fee),
+            scaled(day.all.net), day.lastPaymentId > 0 ? day.lastPaymentId : null,
+            closedBy != null ? closedBy.getUserId() : null);
+
+        List<Object[]> rows = new ArrayList<>();
+        day.buckets.forEach((dimension, buckets) -> buckets.forEach((key, bucket) -> rows.add(new Object[]{
+            date, dimension.name(), key.length() > 100 ? key.substring(0, 100) : key, bucket.count,
+            scaled(bucket.amount), scaled(bucket.fee), scaled(bucket.net)
+        })));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TOTAL, rows);
+        }
+    }
+
+    private static BigDecimal scaled(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private record ClosedRange(LocalDate from, LocalDate through) {
+
+        private boolean contains(LocalDate date) {
+            return date != null && !date.isBefore(from) && !date.isAfter(through);
+        }
+    }
+
+    private static final class Bucket {
+        private int count;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private BigDecimal fee = BigDecimal.ZERO;
+        private BigDecimal net = BigDecimal.ZERO;
+
+        private void add(BigDecimal paymentAmount, BigDecimal convenienceFee, BigDecimal netAmount) {
+            count++;
+            amount = amount.add(paymentAmount);
+            fee = fee.add(convenienceFee);
+            net = net.add(netAmount);
+        }
+    }
+
+    private static final class DayTotals {
+        private final Bucket all = new Bucket();
+        private final Map<CollectionCloseTotal.Dimension, Map<String, Bucket>> buckets = new EnumMap<>(CollectionCloseTotal.Dimension.class);
+        private long lastPaymentId;
+
+        private Bucket bucket(CollectionCloseTotal.Dimension dimension, String key) {
+            return buckets.computeIfAbsent(dimension, d -> new HashMap<>()).computeIfAbsent(key, k -> new Bucket());
+        }
+    }
+}
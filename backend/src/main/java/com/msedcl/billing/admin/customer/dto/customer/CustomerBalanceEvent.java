@@ -0,0 +1,16 @@
+package com.msedcl.billing.admin.customer.dto.customer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record CustomerBalanceEvent(
+    String type,
+    Long billId,
+    String invoiceNumber,
+    String billStatus,
+    BigDecimal billBalance,
+    BigDecimal paymentAmount,
+    LocalDate dueDate,
+    BigDecimal outstandingAmount
+) {
+}
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -24,5 +26,5 @@ public class CustomerProfileDto {
     private String transformerNo;
     private String feederNo;
     private String poleNo;
-    private Double advancePayment;
+    private BigDecimal advancePayment;
 }
@@ -3,6 +3,7 @@ package com.msedcl.billing.admin.customer.dto.customer;
 import com.msedcl.billing.shared.entity.Customer;
 import com.msedcl.billing.shared.entity.User;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public record CustomerResponse(
@@ -21,14 +22,14 @@ public record CustomerResponse(
     String transformerNo,
     String feederNo,
     String poleNo,
-    Double advancePayment,
+    BigDecimal advancePayment,
     Long userId,
     String username,
     Boolean userActive,
     LocalDateTime createdAt,
     LocalDateTime updatedAt
 ) {
-    public static CustomerResponse from(Customer customer) {
+    public static CustomerResponse from(Customer customer, BigDecimal walletBalance) {
         User user = customer.getUser();
         var areaDetails = customer.getAreaDetails();
 
@@ -48,7 +49,7 @@ public record CustomerResponse(
             areaDetails != null ? areaDetails.getTransformerNo() : null,
             areaDetails != null ? areaDetails.getFeederNo() : null,
             areaDetails != null ? areaDetails.getPoleNo() : null,
-            customer.getAdvancePayment(),
+            walletBalance,
             user != null ? user.getUserId() : null,
             user != null ? user.getUsername() : null,
             user != null ? user.getIsActive() : null,
@@ -3,6 +3,7 @@ package com.msedcl.billing.admin.customer.repository;
 import com.msedcl.billing.shared.entity.Customer;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -24,4 +25,7 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     @EntityGraph(attributePaths = {"user"})
     Optional<Customer> findWithUserByCustomerId(Long customerId);
+
+    @Query("SELECT c.customerId FROM Customer c WHERE c.user.username = :username")
+    Optional<Long> findCustomerIdByUsername(String username);
 }
@@ -5,13 +5,16 @@ import com.msedcl.billing.shared.entity.Customer;
 import com.msedcl.billing.shared.entity.User;
 import com.msedcl.billing.admin.customer.repository.CustomerRepository;
 import com.msedcl.billing.admin.audit.service.AuditLogService;
+import com.msedcl.billing.shared.service.WalletService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -23,11 +26,14 @@ public class CustomerService {
 
     private final CustomerRepository customerRepository;
     private final AuditLogService auditLogService;
+    private final WalletService walletService;
 
     public List<CustomerResponse> getAllCustomers() {
-        return customerRepository.findAllByOrderByCreatedAtDesc()
-            .stream()
-            .map(CustomerResponse::from)
+        List<Customer> customers = customerRepository.findAllByOrderByCreatedAtDesc();
+        Map<Long, BigDecimal> walletBalances = walletService.getBalances(
+            customers.stream().map(Customer::getCustomerId).toList());
+        return customers.stream()
+            .map(customer -> CustomerResponse.from(customer, walletBalances.get(customer.getCustomerId())))
             .toList();
     }
 
@@ -38,7 +44,7 @@ public class CustomerService {
 
     public CustomerResponse getCustomerDetails(Long id) {
     return customerRepository.findWithUserByCustomerId(id)
-            .map(CustomerResponse::from)
+            .map(customer -> CustomerResponse.from(customer, walletService.getBalance(customer.getCustomerId())))
             .orElseThrow(() -> new RuntimeException("Customer not found with id: " + id));
     }
 
@@ -76,7 +82,6 @@ public class CustomerService {
         customer.setPincode(customerDetails.getPincode());
         customer.setAadharNumber(customerDetails.getAadharNumber());
         customer.setAreaDetails(customerDetails.getAreaDetails());
-        customer.setAdvancePayment(customerDetails.getAdvancePayment());
 
         Customer updatedCustomer = customerRepository.save(customer);
 
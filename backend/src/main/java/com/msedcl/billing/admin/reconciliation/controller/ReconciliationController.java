@@ -0,0 +1,67 @@
+package com.msedcl.billing.admin.reconciliation.controller;
+
+import com.msedcl.billing.admin.reconciliation.dto.SettlementImportReport;
+import com.msedcl.billing.admin.reconciliation.service.SettlementImportService;
+import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.shared.repository.UserRepository;
+import com.msedcl.billing.shared.service.DocumentDownloadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/admin/reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationController {
+
+    private final SettlementImportService settlementImportService;
+    private final UserRepository userRepository;
+    private final DocumentDownloadService documentDownloadService;
+
+    /**
+     * Accepts the settlement file as the raw request body (text/csv) so it is streamed
+     * rather than buffered as a multipart upload.
+     */
+    @PostMapping(value = "/settlements", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+    public ResponseEntity<?> importSettlement(@RequestParam(required = false) String source,
+                                              Authentication authentication,
+                                              HttpServletRequest request) throws IOException {
+        User currentUser = userRepository.findByUsername(authentication.getName())
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        try {
+            SettlementImportReport report = settlementImportService.importSettlement(
+                request.getInputStream(), source, currentUser, request.getRemoteAddr());
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
+    }
+
+    @GetMapping("/exceptions/{fileName}")
+    public void downloadExceptions(@PathVariable String fileName,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        String path;
+        try {
+            path = settlementImportService.resolveExceptionFile(fileName).toString();
+        } catch (IllegalArgumentException ex) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        documentDownloadService.serve(request, response, path, "text/csv", false);
+    }
+}
@@ -0,0 +1,17 @@
+package com.msedcl.billing.admin.reconciliation.dto;
+
+import com.msedcl.billing.shared.entity.Bill;
+
+import java.math.BigDecimal;
+
+public interface SettlementBillProjection {
+    Long getBillId();
+    String getInvoiceNumber();
+    Long getAccountId();
+    Long getCustomerId();
+    BigDecimal getNetPayable();
+    BigDecimal getAmountPaid();
+    BigDecimal getBalanceAmount();
+    Bill.BillStatus getBillStatus();
+    Long getVersion();
+}
@@ -0,0 +1,19 @@
+package com.msedcl.billing.admin.reconciliation.dto;
+
+import java.math.BigDecimal;
+
+public record SettlementImportReport(
+    String runId,
+    String source,
+    long linesRead,
+    long paymentsPosted,
+    BigDecimal amountPosted,
+    long duplicates,
+    long unmatched,
+    long overpaid,
+    long dayClosed,
+    long invalid,
+    String exceptionFile,
+    long elapsedMillis
+) {
+}
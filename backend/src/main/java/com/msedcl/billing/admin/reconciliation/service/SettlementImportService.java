@@ -0,0 +1,588 @@
+package com.msedcl.billing.admin.reconciliation.service;
+
+import com.msedcl.billing.admin.audit.service.AuditLogService;
+import com.msedcl.billing.admin.billing.repository.BillRepository;
+import com.msedcl.billing.admin.collection.service.CollectionCloseService;
+import com.msedcl.billing.admin.reconciliation.dto.SettlementBillProjection;
+import com.msedcl.billing.admin.reconciliation.dto.SettlementImportReport;
+import com.msedcl.billing.shared.entity.Bill;
+import com.msedcl.billing.shared.entity.Payment;
+import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.shared.event.PaymentPostedEvent;
+import com.msedcl.billing.user.payment.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a bank / UPI aggregator settlement file and posts every matched line as a
+ * payment. Lines are processed in chunks: for each chunk the referenced bills and any
+ * already-posted transaction ids / UPI references are fetched with one set-based query
+ * each into hash maps, the chunk is matched in memory, and the resulting payments and
+ * bill updates are written with JDBC batches in a single transaction. Unmatched,
+ * duplicate, over-paid and malformed lines go to an exception CSV instead.
+ * <p>
+ * Lines are matched to bills by invoice number only. Transaction ids and UPI
+ * references identify lines that were already posted (duplicates), but nothing
+ * links a reference to a bill before its payment exists, so the file must carry an
+ * invoice number column. Every line must also carry a transaction id or UTR, since
+ * that is what keeps a re-imported file from posting its lines twice.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SettlementImportService {
+
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final DateTimeFormatter RUN_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+        DateTimeFormatter.ISO_LOCAL_DATE,
+        DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+        DateTimeFormatter.ofPattern("dd-MM-yyyy")
+    );
+    private static final Pattern EXCEPTION_FILE_NAME = Pattern.compile("settlement-exceptions-[0-9A-Z-]+\\.csv");
+
+    private static final String INSERT_PAYMENT =
+        "INSERT INTO payments (bill_id, account_id, payment_reference, payment_date, payment_amount, convenience_fee, " +
+        "net_amount, payment_mode, payment_channel, payment_status, transaction_id, upi_reference, remarks, " +
+        "processed_by, created_at) VALUES (?, ?, ?, ?, ?, 0.00, ?, ?, ?, 'SUCCESS', ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    private static final String UPDATE_BILL =
+        "UPDATE bills SET amount_paid = ?, balance_amount = ?, bill_status = ?, version = version + 1, " +
+        "updated_at = CURRENT_TIMESTAMP WHERE bill_id = ? AND version = ?";
+
+    private final BillRepository billRepository;
+    private final PaymentRepository paymentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CollectionCloseService collectionCloseService;
+
+    private final AtomicBoolean importRunning = new AtomicBoolean();
+
+    @Value("${reconciliation.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${reconciliation.exceptions.path:./reconciliation/exceptions/}")
+    private String exceptionsPath;
+
+    public SettlementImportReport importSettlement(InputStream input, String source, User importedBy, String ipAddress)
+            throws IOException {
+        if (!importRunning.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another settlement import is already running");
+        }
+        try {
+            return runImport(input, source, importedBy, ipAddress);
+        } finally {
+            importRunning.set(false);
+        }
+    }
+
+    public Path resolveExceptionFile(String fileName) {
+        if (fileName == null || !EXCEPTION_FILE_NAME.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("Invalid exception file name");
+        }
+        return Path.of(exceptionsPath).resolve(fileName);
+    }
+
+    private SettlementImportReport runImport(InputStream input, String source, User importedBy, String ipAddress)
+            throws IOException {
+        long started = System.currentTimeMillis();
+        String runId = LocalDateTime.now().format(RUN_ID_FORMAT) + "-"
+            + UUID.randomUUID().toString().substring(0, 6).toUpperCase(Locale.ROOT);
+        String channel = StringUtils.hasText(source) ? truncate(source.trim(), 50) : "SETTLEMENT";
+
+        Path exceptionDirectory = Path.of(exceptionsPath);
+        Files.createDirectories(exceptionDirectory);
+        Path exceptionFile = exceptionDirectory.resolve("settlement-exceptions-" + runId + ".csv");
+
+        Tally tally = new Tally();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+             BufferedWriter exceptions = Files.newBufferedWriter(exceptionFile, StandardCharsets.UTF_8)) {
+
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IllegalArgumentException("Settlement file is empty");
+            }
+            Columns columns = Columns.fromHeader(stripBom(headerLine));
+            exceptions.write("line,reason,");
+            exceptions.write(headerLine);
+            exceptions.newLine();
+
+            ImportRun run = new ImportRun(runId, channel, importedBy.getUserId(), exceptions, tally);
+            List<SettlementLine> chunk = new ArrayList<>(chunkSize);
+            String line;
+            long lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                tally.linesRead++;
+                SettlementLine parsed = parseLine(lineNumber, line, columns, run);
+                if (parsed != null) {
+                    chunk.add(parsed);
+                }
+                if (chunk.size() >= chunkSize) {
+                    processChunk(chunk, run);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, run);
+            }
+        } catch (IllegalArgumentException ex) {
+            Files.deleteIfExists(exceptionFile);
+            throw ex;
+        }
+
+        String exceptionFileName = exceptionFile.getFileName().toString();
+        if (tally.exceptionCount() == 0) {
+            Files.deleteIfExists(exceptionFile);
+            exceptionFileName = null;
+        }
+
+        SettlementImportReport report = new SettlementImportReport(
+            runId,
+            channel,
+            tally.linesRead,
+            tally.posted,
+            tally.amountPosted.setScale(2, RoundingMode.HALF_UP),
+            tally.duplicates,
+            tally.unmatched,
+            tally.overpaid,
+            tally.dayClosed,
+            tally.invalid,
+            exceptionFileName,
+            System.currentTimeMillis() - started
+        );
+
+        auditLogService.record(importedBy,
+            "IMPORT_SETTLEMENT",
+            "SettlementImport",
+            null,
+            String.format("Settlement run %s from %s: %d lines, %d posted (₹%s), %d duplicate, %d unmatched, %d over-paid, %d on closed days, %d invalid",
+                runId, channel, report.linesRead(), report.paymentsPosted(), report.amountPosted(),
+                report.duplicates(), report.unmatched(), report.overpaid(), report.dayClosed(), report.invalid()),
+            ipAddress);
+
+        log.info("Settlement import {} finished in {} ms: {} lines, {} posted", runId, report.elapsedMillis(),
+            report.linesRead(), report.paymentsPosted());
+        return report;
+    }
+
+    private void processChunk(List<SettlementLine> chunk, ImportRun run) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ChunkOutcome outcome = transactionTemplate.execute(status -> postChunk(chunk, run));
+                run.tally.record(outcome);
+                for (ExceptionLine rejected : outcome.exceptions) {
+                    run.writeException(rejected.line, rejected.reason);
+                }
+                outcome.events.forEach(eventPublisher::publishEvent);
+                return;
+            } catch (OptimisticLockingFailureException ex) {
+                // An online payment touched one of the chunk's bills; re-read and match again
+                if (attempt >= MAX_CHUNK_ATTEMPTS) {
+                    throw new IllegalStateException("Settlement import aborted: bills kept changing during posting", ex);
+                }
+                log.debug("Retrying settlement chunk after version conflict (attempt {})", attempt);
+            }
+        }
+    }
+
+    private ChunkOutcome postChunk(List<SettlementLine> chunk, ImportRun run) {
+        Set<String> invoiceNumbers = new HashSet<>();
+        Set<String> transactionIds = new HashSet<>();
+        Set<String> upiReferences = new HashSet<>();
+        for (SettlementLine line : chunk) {
+            if (line.invoiceNumber != null) {
+                invoiceNumbers.add(line.invoiceNumber);
+            }
+            if (line.transactionId != null) {
+                transactionIds.add(line.transactionId);
+            }
+            if (line.upiReference != null) {
+                upiReferences.add(line.upiReference);
+            }
+        }
+
+        Map<String, BillState> bills = new HashMap<>(invoiceNumbers.size() * 2);
+        if (!invoiceNumbers.isEmpty()) {
+            for (SettlementBillProjection bill : billRepository.findSettlementTargets(invoiceNumbers)) {
+                bills.put(bill.getInvoiceNumber(), new BillState(bill));
+            }
+        }
+        // One indexed IN lookup per reference kind and chunk
+        Set<String> postedTransactionIds = transactionIds.isEmpty() ? new HashSet<>()
+            : new HashSet<>(paymentRepository.findExistingTransactionIds(transactionIds));
+        Set<String> postedUpiReferences = upiReferences.isEmpty() ? new HashSet<>()
+            : new HashSet<>(paymentRepository.findExistingUpiReferences(upiReferences));
+
+        // Back-dated lines are checked against the committed close range under the close lock
+        LocalDate today = LocalDate.now();
+        boolean backdated = chunk.stream().anyMatch(line -> line.paidAt.toLocalDate().isBefore(today));
+        Predicate<LocalDate> dayClosed = backdated
+            ? collectionCloseService.lockForBackdatedPosting()
+            : collectionCloseService::isClosed;
+
+        ChunkOutcome outcome = new ChunkOutcome();
+        List<Object[]> paymentRows = new ArrayList<>(chunk.size());
+        Map<Long, BillState> touchedBills = new LinkedHashMap<>();
+
+        for (SettlementLine line : chunk) {
+            if ((line.transactionId != null && !postedTransactionIds.add(line.transactionId))
+                || (line.upiReference != null && !postedUpiReferences.add(line.upiReference))) {
+                outcome.reject(line, "DUPLICATE");
+                outcome.duplicates++;
+                continue;
+            }
+
+            if (dayClosed.test(line.paidAt.toLocalDate())) {
+                outcome.reject(line, "DAY_CLOSED: collections for " + line.paidAt.toLocalDate() + " are closed");
+                outcome.dayClosed++;
+                continue;
+            }
+
+            BillState bill = line.invoiceNumber != null ? bills.get(line.invoiceNumber) : null;
+            if (bill == null) {
+                outcome.reject(line, line.invoiceNumber == null ? "UNMATCHED: no invoice number" : "UNMATCHED");
+                outcome.unmatched++;
+                continue;
+            }
+
+            if (bill.balance.compareTo(BigDecimal.ZERO) <= 0 || line.amount.compareTo(bill.balance) > 0) {
+                outcome.reject(line, "OVERPAID: outstanding " + bill.balance.max(BigDecimal.ZERO));
+                outcome.overpaid++;
+                continue;
+            }
+
+            bill.apply(line.amount);
+            touchedBills.put(bill.billId, bill);
+
+            paymentRows.add(new Object[]{
+                bill.billId,
+                bill.accountId,
+                "STL-" + run.runId + "-" + line.lineNumber,
+                Timestamp.valueOf(line.paidAt),
+                line.amount,
+                line.amount,
+                line.paymentMode.name(),
+                run.channel,
+                line.transactionId,
+                line.upiReference,
+                "Settlement import " + run.runId,
+                run.importedById
+            });
+            outcome.posted++;
+            outcome.amountPosted = outcome.amountPosted.add(line.amount);
+            outcome.events.add(new PaymentPostedEvent(bill.customerId, bill.billId, bill.invoiceNumber, null,
+                line.amount, bill.status, bill.balance.max(BigDecimal.ZERO)));
+        }
+
+        if (!paymentRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PAYMENT, paymentRows);
+        }
+
+        if (!touchedBills.isEmpty()) {
+            List<Object[]> billRows = new ArrayList<>(touchedBills.size());
+            List<Long> billIds = new ArrayList<>(touchedBills.size());
+            for (BillState bill : touchedBills.values()) {
+                billRows.add(new Object[]{
+                    bill.amountPaid,
+                    bill.balance.max(BigDecimal.ZERO),
+                    bill.status.name(),
+                    bill.billId,
+                    bill.version
+                });
+                billIds.add(bill.billId);
+            }
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_BILL, billRows);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    throw new OptimisticLockingFailureException("Bill " + billIds.get(i) + " changed during settlement import");
+                }
+            }
+        }
+        return outcome;
+    }
+
+    private SettlementLine parseLine(long lineNumber, String raw, Columns columns, ImportRun run) throws IOException {
+        List<String> fields = splitCsv(raw);
+        String invoiceNumber = columns.value(fields, columns.invoiceNumber);
+        String transactionId = columns.value(fields, columns.transactionId);
+        String upiReference = columns.value(fields, columns.upiReference);
+        String amountText = columns.value(fields, columns.amount);
+
+        // The bank reference is the only duplicate key, so a line without one would post again on a re-run
+        if (transactionId == null && upiReference == null) {
+            return invalid(lineNumber, raw, "INVALID: no transaction id or UTR", run);
+        }
+
+        BigDecimal amount;
+        try {
+            amount = amountText == null ? null : new BigDecimal(amountText.replace(",", "")).setScale(2, RoundingMode.HALF_UP);
+        } catch (NumberFormatException ex) {
+            amount = null;
+        }
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return invalid(lineNumber, raw, "INVALID: amount", run);
+        }
+
+        Payment.PaymentMode mode;
+        String modeText = columns.value(fields, columns.paymentMode);
+        try {
+            mode = modeText != null
+                ? Payment.PaymentMode.valueOf(modeText.toUpperCase(Locale.ROOT))
+                : (upiReference != null ? Payment.PaymentMode.UPI : Payment.PaymentMode.ONLINE);
+        } catch (IllegalArgumentException ex) {
+            return invalid(lineNumber, raw, "INVALID: payment mode", run);
+        }
+
+        LocalDateTime paidAt = parseDate(columns.value(fields, columns.paidAt));
+        if (paidAt == null) {
+            return invalid(lineNumber, raw, "INVALID: payment date", run);
+        }
+
+        return new SettlementLine(lineNumber, raw, invoiceNumber, truncate(transactionId, 100),
+            truncate(upiReference, 100), amount, mode, paidAt);
+    }
+
+    private SettlementLine invalid(long lineNumber, String raw, String reason, ImportRun run) throws IOException {
+        run.tally.invalid++;
+        run.writeException(new SettlementLine(lineNumber, raw, null, null, null, null, null, null), reason);
+        return null;
+    }
+
+    private LocalDateTime parseDate(String value) {
+        if (value == null) {
+            return LocalDateTime.now();
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException ignored) {
+            // fall through to date-only formats
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format).atStartOfDay();
+            } catch (DateTimeParseException ignored) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static String stripBom(String header) {
+        return header.startsWith("\uFEFF") ? header.substring(1) : header;
+    }
+
+    private static String truncate(String value, int max) {
+        return value == null || value.length() <= max ? value : value.substring(0, max);
+    }
+
+    private record SettlementLine(long lineNumber,
+                                  String raw,
+                                  String invoiceNumber,
+                                  String transactionId,
+                                  String upiReference,
+                                  BigDecimal amount,
+                                  Payment.PaymentMode paymentMode,
+                                  LocalDateTime paidAt) {
+    }
+
+    private record ExceptionLine(SettlementLine line, String reason) {
+    }
+
+    private static final class Columns {
+        private int invoiceNumber = -1;
+        private int transactionId = -1;
+        private int upiReference = -1;
+        private int amount = -1;
+        private int paymentMode = -1;
+        private int paidAt = -1;
+
+        static Columns fromHeader(String header) {
+            Columns columns = new Columns();
+            List<String> names = splitCsv(header);
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+                switch (name) {
+                    case "invoicenumber", "invoice", "invoiceno", "billnumber" -> columns.invoiceNumber = i;
+                    case "transactionid", "txnid", "transactionreference" -> columns.transactionId = i;
+                    case "upireference", "utr", "rrn", "upiref" -> columns.upiReference = i;
+                    case "amount", "paidamount", "settledamount" -> columns.amount = i;
+                    case "paymentmode", "mode" -> columns.paymentMode = i;
+                    case "paidat", "paymentdate", "valuedate", "transactiondate", "date" -> columns.paidAt = i;
+                    default -> {
+                    }
+                }
+            }
+            if (columns.amount < 0) {
+                throw new IllegalArgumentException("Settlement file header must include an amount column");
+            }
+            if (columns.invoiceNumber < 0) {
+                throw new IllegalArgumentException("Settlement file header must include an invoice number column; "
+                    + "lines are matched to bills by invoice number");
+            }
+            return columns;
+        }
+
+        String value(List<String> fields, int index) {
+            if (index < 0 || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    private static final class BillState {
+        private final Long billId;
+        private final String invoiceNumber;
+        private final Long accountId;
+        private final Long customerId;
+        private final Long version;
+        private BigDecimal amountPaid;
+        private BigDecimal balance;
+        private Bill.BillStatus status;
+
+        private BillState(SettlementBillProjection bill) {
+            this.billId = bill.getBillId();
+            this.invoiceNumber = bill.getInvoiceNumber();
+            this.accountId = bill.getAccountId();
+            this.customerId = bill.getCustomerId();
+            this.version = bill.getVersion();
+            this.amountPaid = Optional.ofNullable(bill.getAmountPaid()).orElse(BigDecimal.ZERO);
+            this.balance = Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable());
+            this.status = bill.getBillStatus();
+        }
+
+        private void apply(BigDecimal amount) {
+            amountPaid = amountPaid.add(amount).setScale(2, RoundingMode.HALF_UP);
+            balance = balance.subtract(amount).setScale(2, RoundingMode.HALF_UP);
+            status = balance.compareTo(BigDecimal.ZERO) <= 0 ? Bill.BillStatus.PAID : Bill.BillStatus.PARTIALLY_PAID;
+        }
+    }
+
+    private static final class ChunkOutcome {
+        private final List<ExceptionLine> exceptions = new ArrayList<>();
+        private final List<PaymentPostedEvent> events = new ArrayList<>();
+        private long posted;
+        private BigDecimal amountPosted = BigDecimal.ZERO;
+        private long duplicates;
+        private long unmatched;
+        private long overpaid;
+        private long dayClosed;
+
+        private void reject(SettlementLine line, String reason) {
+            exceptions.add(new ExceptionLine(line, reason));
+        }
+    }
+
+    private static final class Tally {
+        private long linesRead;
+        private long posted;
+        private BigDecimal amountPosted = BigDecimal.ZERO;
+        private long duplicates;
+        private long unmatched;
+        private long overpaid;
+        private long dayClosed;
+        private long invalid;
+
+        private void record(ChunkOutcome outcome) {
+            posted += outcome.posted;
+            amountPosted = amountPosted.add(outcome.amountPosted);
+            duplicates += outcome.duplicates;
+            unmatched += outcome.unmatched;
+            overpaid += outcome.overpaid;
+            dayClosed += outcome.dayClosed;
+        }
+
+        private long exceptionCount() {
+            return duplicates + unmatched + overpaid + dayClosed + invalid;
+        }
+    }
+
+    private record ImportRun(String runId,
+                             String channel,
+                             Long importedById,
+                             BufferedWriter exceptions,
+                             Tally tally) {
+
+        private void writeException(SettlementLine line, String reason) throws IOException {
+            exceptions.write(Long.toString(line.lineNumber()));
+            exceptions.write(",\"");
+            exceptions.write(reason.replace("\"", "\"\""));
+            exceptions.write("\",");
+            exceptions.write(line.raw());
+            exceptions.newLine();
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package com.msedcl.billing.admin.reporting.service;
 
+import com.msedcl.billing.admin.collection.service.CollectionCloseService;
 import com.msedcl.billing.admin.reporting.dto.reporting.*;
 import com.msedcl.billing.shared.entity.Bill;
 import com.msedcl.billing.shared.entity.Complaint;
 import com.msedcl.billing.admin.customer.repository.CustomerRepository;
 import com.msedcl.billing.admin.account.repository.AccountRepository;
 import com.msedcl.billing.admin.billing.repository.BillRepository;
-import com.msedcl.billing.user.payment.repository.PaymentRepository;
 import com.msedcl.billing.admin.complaint.repository.ComplaintRepository;
 import com.msedcl.billing.admin.account.repository.MeterReadingRepository;
 import lombok.RequiredArgsConstructor;
@@ -28,9 +28,9 @@ public class ReportingService {
     private final CustomerRepository customerRepository;
     private final AccountRepository accountRepository;
     private final BillRepository billRepository;
-    private final PaymentRepository paymentRepository;
     private final ComplaintRepository complaintRepository;
     private final MeterReadingRepository meterReadingRepository;
+    private final CollectionCloseService collectionCloseService;
 
     public DashboardMetricsResponse getDashboardMetrics() {
         LocalDate today = LocalDate.now();
@@ -39,7 +39,7 @@ public class ReportingService {
         LocalDateTime endOfToday = today.atTime(LocalTime.MAX);
 
         BigDecimal totalBilledThisMonth = Optional.ofNullable(billRepository.sumBilledBetween(firstOfMonth, today)).orElse(BigDecimal.ZERO);
-        BigDecimal totalCollectedThisMonth = Optional.ofNullable(paymentRepository.sumSuccessfulPaymentsBetween(startOfMonth, endOfToday)).orElse(BigDecimal.ZERO);
+        BigDecimal totalCollectedThisMonth = collectionCloseService.collectedBetween(firstOfMonth, today);
         BigDecimal totalOutstanding = Optional.ofNullable(billRepository.sumOutstandingAmount()).orElse(BigDecimal.ZERO);
         long unitsConsumedThisMonth = Optional.ofNullable(meterReadingRepository.sumUnitsConsumedBetween(firstOfMonth, today)).orElse(0L);
 
@@ -95,12 +95,12 @@ public class ReportingService {
     }
 
     public List<MonthlyAmountResponse> getCollectionTrend(int months) {
-        LocalDateTime since = LocalDate.now().minusMonths(months - 1L).withDayOfMonth(1).atStartOfDay();
-        return paymentRepository.findMonthlyCollections(since).stream()
-            .map(projection -> new MonthlyAmountResponse(
-                projection.getYear(),
-                projection.getMonth(),
-                Optional.ofNullable(projection.getTotalAmount()).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP)))
+        LocalDate since = LocalDate.now().minusMonths(months - 1L).withDayOfMonth(1);
+        return collectionCloseService.monthlyCollections(since).entrySet().stream()
+            .map(entry -> new MonthlyAmountResponse(
+                entry.getKey().getYear(),
+                entry.getKey().getMonthValue(),
+                Optional.ofNullable(entry.getValue()).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP)))
             .collect(Collectors.toList());
     }
 
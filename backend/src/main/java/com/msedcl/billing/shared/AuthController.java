@@ -2,10 +2,12 @@ package com.msedcl.billing.shared;
 
 import com.msedcl.billing.shared.dto.AuthResponse;
 import com.msedcl.billing.shared.dto.LoginRequest;
+import com.msedcl.billing.shared.dto.RefreshTokenRequest;
 import com.msedcl.billing.shared.dto.RegisterRequest;
 import com.msedcl.billing.shared.entity.User;
 import com.msedcl.billing.shared.repository.UserRepository;
 import com.msedcl.billing.shared.security.JwtUtil;
+import com.msedcl.billing.shared.service.RefreshTokenService;
 import com.msedcl.billing.shared.service.RegistrationService;
 import lombok.Builder;
 import lombok.Data;
@@ -19,6 +21,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -35,9 +38,10 @@ public class AuthController {
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
     private final RegistrationService registrationService;
+    private final RefreshTokenService refreshTokenService;
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
         try {
             authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword())
@@ -47,22 +51,37 @@ public class AuthController {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
             String token = jwtUtil.generateToken(user.getUsername(), user.getRole().name(), user.getUserId());
+            String refreshToken = refreshTokenService.issue(user, request.getRemoteAddr());
 
-            AuthResponse response = new AuthResponse(
-                token,
-                user.getUserId(),
-                user.getUsername(),
-                user.getRole().name(),
-                user.getFullName()
-            );
-
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new AuthResponse(token, refreshToken, jwtUtil.getExpirationMillis(), user));
 
         } catch (AuthenticationException e) {
             return ResponseEntity.status(401).body("Invalid username or password");
         }
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest refreshRequest, HttpServletRequest request) {
+        try {
+            RefreshTokenService.RotatedToken rotated = refreshTokenService.rotate(
+                refreshRequest.getRefreshToken(), request.getRemoteAddr());
+            User user = rotated.user();
+
+            String token = jwtUtil.generateToken(user.getUsername(), user.getRole().name(), user.getUserId());
+            return ResponseEntity.ok(new AuthResponse(token, rotated.refreshToken(), jwtUtil.getExpirationMillis(), user));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ex.getMessage());
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody(required = false) RefreshTokenRequest refreshRequest) {
+        if (refreshRequest != null) {
+            refreshTokenService.revoke(refreshRequest.getRefreshToken());
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest registerRequest) {
         try {
@@ -0,0 +1,53 @@
+package com.msedcl.billing.shared.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Exposes the {@link ExecutorRegistry} pools as beans so {@code @Async("reminderExecutor")}
+ * and friends can name them. Unqualified {@code @Async} runs on the notification pool
+ * instead of Spring's default unbounded executor. The registry owns the pools' life
+ * cycle, so the beans have no destroy method of their own.
+ */
+@Configuration
+@EnableAsync
+@RequiredArgsConstructor
+public class ExecutorConfig implements AsyncConfigurer {
+
+    private final ExecutorRegistry executorRegistry;
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return executorRegistry.get(ExecutorRegistry.NOTIFICATION);
+    }
+
+    @Bean(destroyMethod = "")
+    public ManagedExecutor notificationExecutor() {
+        return executorRegistry.get(ExecutorRegistry.NOTIFICATION);
+    }
+
+    @Bean(destroyMethod = "")
+    public ManagedExecutor reminderExecutor() {
+        return executorRegistry.get(ExecutorRegistry.REMINDER);
+    }
+
+    @Bean(destroyMethod = "")
+    public ManagedExecutor documentExecutor() {
+        return executorRegistry.get(ExecutorRegistry.DOCUMENT);
+    }
+
+    @Bean(destroyMethod = "")
+    public ManagedExecutor portalEventsExecutor() {
+        return executorRegistry.get(ExecutorRegistry.PORTAL_EVENTS);
+    }
+
+    @Bean(destroyMethod = "")
+    public ManagedExecutor ingestionExecutor() {
+        return executorRegistry.get(ExecutorRegistry.INGESTION);
+    }
+}
@@ -0,0 +1,124 @@
+package com.msedcl.billing.shared.config;
+
+import com.msedcl.billing.shared.dto.ExecutorStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The application's named worker pools, one per subsystem so a backlog in one cannot
+ * take threads from another. Each pool is bounded in threads and queue length and is
+ * configured under {@code executors.<name>.*}:
+ * <ul>
+ *     <li>{@code threads}: maximum concurrent tasks</li>
+ *     <li>{@code queue-capacity}: tasks that may wait before the rejection policy applies</li>
+ *     <li>{@code rejection}: {@code ABORT}, {@code CALLER_RUNS} or {@code DISCARD}</li>
+ *     <li>{@code virtual-threads}: run tasks on virtual threads where the runtime has them</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class ExecutorRegistry {
+
+    public static final String NOTIFICATION = "notification";
+    public static final String REMINDER = "reminder";
+    public static final String DOCUMENT = "document";
+    public static final String PORTAL_EVENTS = "portal-events";
+    public static final String INGESTION = "ingestion";
+
+    private final Map<String, ManagedExecutor> executors = new LinkedHashMap<>();
+
+    public ExecutorRegistry(Environment environment) {
+        register(environment, NOTIFICATION, 4, 2_000, ManagedExecutor.Rejection.CALLER_RUNS, false);
+        // The reminder run bounds its own in-flight pages and waits on their futures
+        register(environment, REMINDER, 4, 16, ManagedExecutor.Rejection.ABORT, false);
+        // On-demand bill PDF renders; a request that finds the pool full is refused, not queued behind it
+        register(environment, DOCUMENT, 2, 64, ManagedExecutor.Rejection.ABORT, false);
+        register(environment, PORTAL_EVENTS, 2, 1_000, ManagedExecutor.Rejection.ABORT, false);
+        // Webhook lanes spend nearly all their time blocked on the database
+        register(environment, INGESTION, 8, 500, ManagedExecutor.Rejection.CALLER_RUNS, true);
+    }
+
+    public ManagedExecutor get(String name) {
+        ManagedExecutor executor = executors.get(name);
+        if (executor == null) {
+            throw new IllegalArgumentException("Unknown executor: " + name);
+        }
+        return executor;
+    }
+
+    public List<ExecutorStats> stats() {
+        List<ExecutorStats> stats = new ArrayList<>(executors.size());
+        for (ManagedExecutor executor : executors.values()) {
+            stats.add(executor.stats());
+        }
+        return stats;
+    }
+
+    private void register(Environment environment, String name, int defaultThreads, int defaultQueueCapacity,
+                          ManagedExecutor.Rejection defaultRejection, boolean defaultVirtual) {
+        String prefix = "executors." + name + ".";
+        int threads = environment.getProperty(prefix + "threads", Integer.class, defaultThreads);
+        int queueCapacity = environment.getProperty(prefix + "queue-capacity", Integer.class, defaultQueueCapacity);
+        ManagedExecutor.Rejection rejection = ManagedExecutor.Rejection.valueOf(environment.getProperty(
+            prefix + "rejection", defaultRejection.name()).trim().toUpperCase(Locale.ROOT));
+        boolean wantVirtual = environment.getProperty(prefix + "virtual-threads", Boolean.class, defaultVirtual);
+
+        ThreadFactory virtualFactory = wantVirtual ? virtualThreadFactory(name + "-") : null;
+        if (wantVirtual && virtualFactory == null) {
+            log.info("Virtual threads are not available on this runtime; executor {} uses platform threads", name);
+        }
+        ThreadFactory threadFactory = virtualFactory != null ? virtualFactory : platformThreadFactory(name + "-");
+        executors.put(name, new ManagedExecutor(name, threads, queueCapacity, rejection, virtualFactory != null,
+            threadFactory));
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * {@code Thread.ofVirtual().name(prefix, 1).factory()} when running on Java 21 or
+     * later; the build targets Java 17, so it is looked up reflectively.
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            Method factory = builderType.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (ManagedExecutor executor : executors.values()) {
+            executor.shutdown();
+        }
+        for (ManagedExecutor executor : executors.values()) {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Executor {} did not finish its queued tasks before shutdown", executor.getName());
+                executor.shutdownNow();
+            }
+        }
+    }
+}
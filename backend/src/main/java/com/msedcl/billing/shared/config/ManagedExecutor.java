@@ -0,0 +1,157 @@
+package com.msedcl.billing.shared.config;
+
+import com.msedcl.billing.shared.dto.ExecutorStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded thread pool for one subsystem, created by {@link ExecutorRegistry}. Its
+ * queue has a fixed capacity and overflow is handled by the configured
+ * {@link Rejection} policy. Each task is timed from submission to start (queue wait)
+ * and from start to finish (run time), so the pool can report its own saturation.
+ */
+@Slf4j
+public class ManagedExecutor extends ThreadPoolExecutor {
+
+    public enum Rejection {
+        /** Throw {@link RejectedExecutionException} to the submitter. */
+        ABORT,
+        /** Run the task on the submitting thread, slowing the producer down. */
+        CALLER_RUNS,
+        /** Drop the task, logging it. Only for fire-and-forget tasks: a dropped task's future never completes. */
+        DISCARD
+    }
+
+    private final String name;
+    private final boolean virtualThreads;
+    private final Rejection rejection;
+    private final int queueCapacity;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+    ManagedExecutor(String name, int threads, int queueCapacity, Rejection rejection, boolean virtualThreads,
+                    ThreadFactory threadFactory) {
+        super(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory);
+        this.name = name;
+        this.virtualThreads = virtualThreads;
+        this.rejection = rejection;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler(new CountingRejectionHandler());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.increment();
+        super.execute(new TimedTask(command));
+    }
+
+    public ExecutorStats stats() {
+        long done = completed.sum() + failed.sum();
+        return new ExecutorStats(name,
+            virtualThreads,
+            rejection.name(),
+            getMaximumPoolSize(),
+            getPoolSize(),
+            getActiveCount(),
+            getQueue().size(),
+            queueCapacity,
+            submitted.sum(),
+            completed.sum(),
+            failed.sum(),
+            rejected.sum(),
+            done == 0 ? 0 : millis(waitNanos.sum() / (double) done),
+            millis(maxWaitNanos.get()),
+            done == 0 ? 0 : millis(runNanos.sum() / (double) done),
+            millis(maxRunNanos.get()));
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long enqueuedAt = System.nanoTime();
+
+        private TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long started = System.nanoTime();
+            long waited = started - enqueuedAt;
+            waitNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+            boolean succeeded = false;
+            try {
+                task.run();
+                succeeded = !failedInside(task);
+            } finally {
+                long ran = System.nanoTime() - started;
+                runNanos.add(ran);
+                maxRunNanos.accumulate(ran);
+                (succeeded ? completed : failed).increment();
+            }
+        }
+    }
+
+    /**
+     * {@code submit} wraps the task in a {@link java.util.concurrent.FutureTask}, which
+     * captures the exception instead of throwing it, so the outcome is read back from
+     * the completed future.
+     */
+    private static boolean failedInside(Runnable task) {
+        if (!(task instanceof Future<?> future) || !future.isDone()) {
+            return false;
+        }
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException | CancellationException ex) {
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private final class CountingRejectionHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            rejected.increment();
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor " + name + " is shut down");
+            }
+            switch (rejection) {
+                case CALLER_RUNS -> task.run();
+                case DISCARD -> log.warn("Executor {} is saturated ({} queued); discarding task", name, getQueue().size());
+                default -> throw new RejectedExecutionException("Executor " + name + " is saturated ("
+                    + getQueue().size() + " queued)");
+            }
+        }
+    }
+}
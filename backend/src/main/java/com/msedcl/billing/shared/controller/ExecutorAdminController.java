@@ -0,0 +1,22 @@
+package com.msedcl.billing.shared.controller;
+
+import com.msedcl.billing.shared.config.ExecutorRegistry;
+import com.msedcl.billing.shared.dto.ExecutorStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class ExecutorAdminController {
+
+    private final ExecutorRegistry executorRegistry;
+
+    @GetMapping("/admin/executors")
+    public ResponseEntity<List<ExecutorStats>> getExecutorStats() {
+        return ResponseEntity.ok(executorRegistry.stats());
+    }
+}
@@ -0,0 +1,20 @@
+package com.msedcl.billing.shared.controller;
+
+import com.msedcl.billing.shared.dto.SmsGatewayStats;
+import com.msedcl.billing.shared.service.SmsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+public class NotificationAdminController {
+
+    private final SmsService smsService;
+
+    @GetMapping("/admin/notifications/sms-gateway")
+    public ResponseEntity<SmsGatewayStats> getSmsGatewayStats() {
+        return ResponseEntity.ok(smsService.stats());
+    }
+}
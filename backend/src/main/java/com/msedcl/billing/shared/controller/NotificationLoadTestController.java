@@ -0,0 +1,30 @@
+package com.msedcl.billing.shared.controller;
+
+import com.msedcl.billing.shared.dto.LoadTestRequest;
+import com.msedcl.billing.shared.service.NotificationLoadTestService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "notifications.loadtest.enabled", havingValue = "true")
+public class NotificationLoadTestController {
+
+    private final NotificationLoadTestService loadTestService;
+
+    @PostMapping("/admin/notifications/load-test")
+    public ResponseEntity<?> run(@RequestBody LoadTestRequest request) {
+        try {
+            return ResponseEntity.ok(loadTestService.run(request));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.msedcl.billing.shared.controller;
+
+import com.msedcl.billing.shared.dto.SmtpPoolStats;
+import com.msedcl.billing.shared.service.SmtpBenchmarkService;
+import com.msedcl.billing.shared.service.SmtpTransportPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "notifications.smtp.benchmark.enabled", havingValue = "true")
+public class SmtpBenchmarkController {
+
+    private final SmtpBenchmarkService smtpBenchmarkService;
+    private final SmtpTransportPool smtpTransportPool;
+
+    @PostMapping("/admin/notifications/smtp-benchmark")
+    public ResponseEntity<?> run(@RequestParam(defaultValue = "10000") int messages,
+                                 @RequestParam(defaultValue = "4") int connections,
+                                 @RequestParam(defaultValue = "100") int runLength) {
+        try {
+            return ResponseEntity.ok(smtpBenchmarkService.run(messages, connections, runLength));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
+    }
+
+    @GetMapping("/admin/notifications/smtp-pool")
+    public ResponseEntity<SmtpPoolStats> stats() {
+        return ResponseEntity.ok(smtpTransportPool.stats());
+    }
+}
@@ -1,5 +1,6 @@
 package com.msedcl.billing.shared.dto;
 
+import com.msedcl.billing.shared.entity.User;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -12,6 +13,8 @@ public class AuthResponse {
     private String username;
     private String role;
     private String fullName;
+    private String refreshToken;
+    private Long expiresIn;
 
     public AuthResponse(String token, Long userId, String username, String role, String fullName) {
         this.token = token;
@@ -20,4 +23,10 @@ public class AuthResponse {
         this.role = role;
         this.fullName = fullName;
     }
+
+    public AuthResponse(String token, String refreshToken, long expiresIn, User user) {
+        this(token, user.getUserId(), user.getUsername(), user.getRole().name(), user.getFullName());
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+    }
 }
@@ -0,0 +1,9 @@
+package com.msedcl.billing.shared.dto;
+
+public record BulkMailReport(int messages,
+                             int sent,
+                             int failed,
+                             long connectionsOpened,
+                             long elapsedMillis,
+                             double messagesPerSecond) {
+}
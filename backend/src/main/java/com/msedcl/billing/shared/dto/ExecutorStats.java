@@ -0,0 +1,19 @@
+package com.msedcl.billing.shared.dto;
+
+public record ExecutorStats(String name,
+                            boolean virtualThreads,
+                            String rejectionPolicy,
+                            int maxThreads,
+                            int poolSize,
+                            int activeCount,
+                            int queueDepth,
+                            int queueCapacity,
+                            long submitted,
+                            long completed,
+                            long failed,
+                            long rejected,
+                            double averageWaitMillis,
+                            double maxWaitMillis,
+                            double averageRunMillis,
+                            double maxRunMillis) {
+}
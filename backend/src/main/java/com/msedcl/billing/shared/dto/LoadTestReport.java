@@ -0,0 +1,28 @@
+package com.msedcl.billing.shared.dto;
+
+import java.util.Map;
+
+public record LoadTestReport(String tag,
+                             int operations,
+                             int operationFailures,
+                             long enqueueMillis,
+                             double operationsPerSecond,
+                             Map<String, Percentiles> enqueueLatencyMillis,
+                             int messagesQueued,
+                             int sent,
+                             int failed,
+                             int pending,
+                             int retried,
+                             long totalRetries,
+                             long drainMillis,
+                             double deliveredPerSecond,
+                             Percentiles deliveryLatencyMillis,
+                             SinkCounters smtpSink,
+                             SinkCounters smsStub) {
+
+    public record Percentiles(long p50, long p90, long p99, long max) {
+    }
+
+    public record SinkCounters(long accepted, long rejected, long throttled) {
+    }
+}
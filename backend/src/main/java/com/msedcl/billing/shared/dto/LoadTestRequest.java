@@ -0,0 +1,11 @@
+package com.msedcl.billing.shared.dto;
+
+public record LoadTestRequest(int bills,
+                              int receipts,
+                              int reminderCustomers,
+                              int maxBillsPerCustomer,
+                              boolean overdue,
+                              int ratePerSecond,
+                              int producers,
+                              int drainTimeoutSeconds) {
+}
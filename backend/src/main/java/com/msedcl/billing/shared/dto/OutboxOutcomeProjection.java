@@ -0,0 +1,13 @@
+package com.msedcl.billing.shared.dto;
+
+import com.msedcl.billing.shared.entity.NotificationOutboxMessage;
+
+import java.time.LocalDateTime;
+
+public interface OutboxOutcomeProjection {
+    NotificationOutboxMessage.Channel getChannel();
+    NotificationOutboxMessage.Status getStatus();
+    Integer getAttempts();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getSentAt();
+}
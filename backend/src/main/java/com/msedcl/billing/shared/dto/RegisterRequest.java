@@ -7,6 +7,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -45,5 +47,5 @@ public class RegisterRequest {
 
     private Long areaId;
 
-    private Double advancePayment;
+    private BigDecimal advancePayment;
 }
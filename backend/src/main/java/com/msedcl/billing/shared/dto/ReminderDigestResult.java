@@ -0,0 +1,6 @@
+package com.msedcl.billing.shared.dto;
+
+public record ReminderDigestResult(int billsCovered,
+                                   int messagesQueued,
+                                   int messagesSuppressed) {
+}
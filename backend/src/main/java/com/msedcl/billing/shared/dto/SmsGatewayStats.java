@@ -0,0 +1,10 @@
+package com.msedcl.billing.shared.dto;
+
+public record SmsGatewayStats(boolean enabled,
+                              int queued,
+                              long submitted,
+                              long sent,
+                              long failed,
+                              long requests,
+                              long throttledMillis) {
+}
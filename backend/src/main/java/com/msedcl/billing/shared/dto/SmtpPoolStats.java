@@ -0,0 +1,9 @@
+package com.msedcl.billing.shared.dto;
+
+public record SmtpPoolStats(int poolSize,
+                            int idleConnections,
+                            int busyConnections,
+                            long connectionsOpened,
+                            long messagesSent,
+                            long messagesFailed) {
+}
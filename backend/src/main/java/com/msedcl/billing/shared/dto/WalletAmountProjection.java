@@ -0,0 +1,6 @@
+package com.msedcl.billing.shared.dto;
+
+public interface WalletAmountProjection {
+    Long getCustomerId();
+    Long getAmountPaise();
+}
@@ -82,6 +82,9 @@ public class Bill {
     @Column(name = "amount_paid", precision = 10, scale = 2)
     private BigDecimal amountPaid = BigDecimal.ZERO;
 
+    @Column(name = "advance_applied", precision = 10, scale = 2)
+    private BigDecimal advanceApplied = BigDecimal.ZERO;
+
     @Column(name = "balance_amount", nullable = false, precision = 10, scale = 2)
     private BigDecimal balanceAmount;
 
@@ -102,6 +105,10 @@ public class Bill {
     @OneToMany(mappedBy = "bill", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Payment> payments;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
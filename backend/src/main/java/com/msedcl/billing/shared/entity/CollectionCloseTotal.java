@@ -0,0 +1,48 @@
+package com.msedcl.billing.shared.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Immutable
+@Table(name = "collection_close_totals")
+@Data
+@NoArgsConstructor
+public class CollectionCloseTotal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "close_total_id")
+    private Long closeTotalId;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", nullable = false)
+    private Dimension dimension;
+
+    @Column(name = "dimension_key", nullable = false, length = 100)
+    private String dimensionKey;
+
+    @Column(name = "payment_count", nullable = false)
+    private Integer paymentCount;
+
+    @Column(name = "amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "fee", nullable = false, precision = 14, scale = 2)
+    private BigDecimal fee;
+
+    @Column(name = "net", nullable = false, precision = 14, scale = 2)
+    private BigDecimal net;
+
+    public enum Dimension {
+        PAYMENT_MODE, CHANNEL, PROCESSED_BY
+    }
+}
@@ -0,0 +1,48 @@
+package com.msedcl.billing.shared.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Totals of one closed business day. Written once by the day-end close and read-only
+ * afterwards.
+ */
+@Entity
+@Immutable
+@Table(name = "collection_day_closes")
+@Data
+@NoArgsConstructor
+public class CollectionDayClose {
+
+    @Id
+    @Column(name = "business_date")
+    private LocalDate businessDate;
+
+    @Column(name = "payment_count", nullable = false)
+    private Integer paymentCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "total_fee", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalFee;
+
+    @Column(name = "total_net", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalNet;
+
+    @Column(name = "last_payment_id")
+    private Long lastPaymentId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "closed_by")
+    private User closedBy;
+
+    @Column(name = "closed_at")
+    private LocalDateTime closedAt;
+}
@@ -59,12 +59,13 @@ public class Customer {
     @JoinColumn(name = "area_id")
     private AreaDetails areaDetails;
 
-    @Column(name = "advance_payment", columnDefinition = "DECIMAL(10,2) DEFAULT 0.00")
-    private Double advancePayment = 0.00;
-
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Account> accounts;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
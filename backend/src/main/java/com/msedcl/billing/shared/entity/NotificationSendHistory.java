@@ -0,0 +1,49 @@
+package com.msedcl.billing.shared.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * When a customer was last sent a reminder digest on a channel, and how many digests
+ * went out on it since {@code windowStart}.
+ */
+@Entity
+@Table(name = "notification_send_history")
+@IdClass(NotificationSendHistory.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationSendHistory {
+
+    @Id
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "channel")
+    private NotificationOutboxMessage.Channel channel;
+
+    @Column(name = "last_sent_at", nullable = false)
+    private LocalDateTime lastSentAt;
+
+    @Column(name = "window_start", nullable = false)
+    private LocalDate windowStart;
+
+    @Column(name = "window_count", nullable = false)
+    private Integer windowCount = 0;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long customerId;
+        private NotificationOutboxMessage.Channel channel;
+    }
+}
@@ -35,6 +35,9 @@ public class Payment {
     @Column(name = "payment_reference", unique = true, nullable = false, length = 50)
     private String paymentReference;
 
+    @Column(name = "receipt_number", length = 50)
+    private String receiptNumber;
+
     @Column(name = "payment_date", nullable = false)
     private LocalDateTime paymentDate;
 
@@ -0,0 +1,85 @@
+package com.msedcl.billing.shared.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A daily bill reminder run and its checkpoint: every customer up to and including
+ * {@code lastCustomerId} has been planned, and sent a reminder unless it was
+ * suppressed or failed.
+ */
+@Entity
+@Table(name = "reminder_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "run_id")
+    private Long runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "run_type", nullable = false)
+    private RunType runType;
+
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_customer_id", nullable = false)
+    private Long lastCustomerId = 0L;
+
+    @Column(name = "pages", nullable = false)
+    private Integer pages = 0;
+
+    @Column(name = "bills_queued", nullable = false)
+    private Integer billsQueued = 0;
+
+    @Column(name = "bills_skipped", nullable = false)
+    private Integer billsSkipped = 0;
+
+    @Column(name = "bills_failed", nullable = false)
+    private Integer billsFailed = 0;
+
+    @Column(name = "messages_queued", nullable = false)
+    private Integer messagesQueued = 0;
+
+    @Column(name = "messages_suppressed", nullable = false)
+    private Integer messagesSuppressed = 0;
+
+    @Column(name = "elapsed_ms", nullable = false)
+    private Long elapsedMs = 0L;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum RunType {
+        UPCOMING, OVERDUE
+    }
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+}
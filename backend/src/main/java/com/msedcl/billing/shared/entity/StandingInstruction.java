@@ -0,0 +1,68 @@
+package com.msedcl.billing.shared.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * An account's instruction to settle its bills automatically on the due date, either
+ * from the customer's wallet or by debiting a registered bank mandate.
+ */
+@Entity
+@Table(name = "standing_instructions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StandingInstruction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "instruction_id")
+    private Long instructionId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false, unique = true)
+    private Account account;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "source", nullable = false)
+    private Source source;
+
+    @Column(name = "mandate_reference", length = 100)
+    private String mandateReference;
+
+    @Column(name = "max_amount", precision = 12, scale = 2)
+    private BigDecimal maxAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status = Status.ACTIVE;
+
+    @Column(name = "consecutive_failures", nullable = false)
+    private Integer consecutiveFailures = 0;
+
+    @Column(name = "last_run_date")
+    private LocalDate lastRunDate;
+
+    @Column(name = "last_outcome", length = 32)
+    private String lastOutcome;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    private LocalDateTime updatedAt;
+
+    public enum Source {
+        WALLET, MANDATE
+    }
+
+    public enum Status {
+        ACTIVE, SUSPENDED, CANCELLED
+    }
+}
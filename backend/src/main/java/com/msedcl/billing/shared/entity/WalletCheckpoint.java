@@ -0,0 +1,34 @@
+package com.msedcl.billing.shared.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Folded wallet balance for a customer covering every ledger entry up to
+ * {@code lastEntryId}. Maintained by set-based SQL in the repository, not through
+ * entity updates.
+ */
+@Entity
+@Table(name = "wallet_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletCheckpoint {
+
+    @Id
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @Column(name = "balance_paise", nullable = false)
+    private Long balancePaise;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private Long lastEntryId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
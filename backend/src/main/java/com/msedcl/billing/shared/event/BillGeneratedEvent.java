@@ -0,0 +1,33 @@
+package com.msedcl.billing.shared.event;
+
+import com.msedcl.billing.shared.entity.Bill;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Published inside the generating transaction; listeners that push to customers
+ * should only act once it commits.
+ */
+public record BillGeneratedEvent(
+    Long customerId,
+    Long billId,
+    String invoiceNumber,
+    Bill.BillStatus billStatus,
+    BigDecimal netPayable,
+    BigDecimal balanceAmount,
+    LocalDate dueDate
+) {
+
+    public static BillGeneratedEvent of(Bill bill) {
+        return new BillGeneratedEvent(
+            bill.getAccount().getCustomer().getCustomerId(),
+            bill.getBillId(),
+            bill.getInvoiceNumber(),
+            bill.getBillStatus(),
+            bill.getNetPayable(),
+            bill.getBalanceAmount(),
+            bill.getDueDate()
+        );
+    }
+}
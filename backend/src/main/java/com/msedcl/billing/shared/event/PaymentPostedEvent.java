@@ -0,0 +1,34 @@
+package com.msedcl.billing.shared.event;
+
+import com.msedcl.billing.shared.entity.Bill;
+import com.msedcl.billing.shared.entity.Payment;
+
+import java.math.BigDecimal;
+
+/**
+ * Published inside the posting transaction with the bill state as it was after the
+ * payment was applied.
+ */
+public record PaymentPostedEvent(
+    Long customerId,
+    Long billId,
+    String invoiceNumber,
+    Long paymentId,
+    BigDecimal paymentAmount,
+    Bill.BillStatus billStatus,
+    BigDecimal balanceAmount
+) {
+
+    public static PaymentPostedEvent of(Payment payment) {
+        Bill bill = payment.getBill();
+        return new PaymentPostedEvent(
+            payment.getAccount().getCustomer().getCustomerId(),
+            bill.getBillId(),
+            bill.getInvoiceNumber(),
+            payment.getPaymentId(),
+            payment.getPaymentAmount(),
+            bill.getBillStatus(),
+            bill.getBalanceAmount()
+        );
+    }
+}
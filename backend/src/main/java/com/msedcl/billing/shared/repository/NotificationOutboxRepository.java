@@ -0,0 +1,71 @@
+package com.msedcl.billing.shared.repository;
+
+import com.msedcl.billing.shared.dto.OutboxOutcomeProjection;
+import com.msedcl.billing.shared.entity.NotificationOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxMessage, Long> {
+
+    /**
+     * Claims the oldest due messages for this dispatcher in one UPDATE, so two
+     * application instances never deliver the same message.
+     */
+    @Modifying
+    @Query(value = "UPDATE notification_outbox SET status = 'PROCESSING', claimed_by = :worker, claimed_at = :now " +
+                   "WHERE status = 'PENDING' AND next_attempt_at <= :now ORDER BY message_id LIMIT :limit", nativeQuery = true)
+    int claimDue(@Param("worker") String worker, @Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    List<NotificationOutboxMessage> findByClaimedByAndStatusOrderByMessageIdAsc(String claimedBy,
+                                                                                 NotificationOutboxMessage.Status status);
+
+    @Modifying
+    @Query("UPDATE NotificationOutboxMessage m SET m.status = 'SENT', m.attempts = m.attempts + 1, m.claimedBy = NULL, " +
+           "m.lastError = NULL, m.sentAt = :now WHERE m.messageId = :messageId")
+    int markSent(@Param("messageId") Long messageId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE NotificationOutboxMessage m SET m.status = 'FAILED', m.attempts = m.attempts + 1, m.claimedBy = NULL, " +
+           "m.lastError = :error WHERE m.messageId = :messageId")
+    int markFailed(@Param("messageId") Long messageId, @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE NotificationOutboxMessage m SET m.status = 'PENDING', m.attempts = m.attempts + 1, m.claimedBy = NULL, " +
+           "m.lastError = :error, m.nextAttemptAt = :nextAttemptAt WHERE m.messageId = :messageId")
+    int scheduleRetry(@Param("messageId") Long messageId,
+                      @Param("error") String error,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Fails expired claims whose lost attempt reaches the limit; run before
+     * {@link #releaseStale} in the same transaction.
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutboxMessage m SET m.status = 'FAILED', m.attempts = m.attempts + 1, m.claimedBy = NULL, " +
+           "m.lastError = :error WHERE m.status = 'PROCESSING' AND m.claimedAt < :cutoff AND m.attempts + 1 >= :maxAttempts")
+    int failStale(@Param("cutoff") LocalDateTime cutoff,
+                  @Param("maxAttempts") int maxAttempts,
+                  @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE NotificationOutboxMessage m SET m.status = 'PENDING', m.attempts = m.attempts + 1, m.claimedBy = NULL " +
+           "WHERE m.status = 'PROCESSING' AND m.claimedAt < :cutoff")
+    int releaseStale(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM NotificationOutboxMessage m WHERE m.status = 'SENT' AND m.sentAt < :cutoff")
+    int purgeSent(@Param("cutoff") LocalDateTime cutoff);
+
+    List<OutboxOutcomeProjection> findByReferenceStartingWith(String referencePrefix);
+
+    long countByReferenceStartingWithAndStatusIn(String referencePrefix,
+                                                 Collection<NotificationOutboxMessage.Status> statuses);
+}
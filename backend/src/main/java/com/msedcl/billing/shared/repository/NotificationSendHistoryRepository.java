@@ -0,0 +1,15 @@
+package com.msedcl.billing.shared.repository;
+
+import com.msedcl.billing.shared.entity.NotificationSendHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationSendHistoryRepository
+    extends JpaRepository<NotificationSendHistory, NotificationSendHistory.Key> {
+
+    List<NotificationSendHistory> findByCustomerIdIn(Collection<Long> customerIds);
+}
@@ -0,0 +1,51 @@
+package com.msedcl.billing.shared.repository;
+
+import com.msedcl.billing.shared.entity.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    @EntityGraph(attributePaths = {"user"})
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Locks the token row so concurrent refreshes with the same token run one after the
+     * other, and the later one sees the successor the earlier one issued.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RefreshToken> findForRotationByTokenHash(String tokenHash);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now, t.revokeReason = 'ROTATED', t.replacedByHash = :replacedBy, " +
+           "t.sealedSuccessor = :sealedSuccessor WHERE t.tokenId = :tokenId AND t.revokedAt IS NULL")
+    int markRotated(Long tokenId, String replacedBy, String sealedSuccessor, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.sealedSuccessor = NULL " +
+           "WHERE t.sealedSuccessor IS NOT NULL AND t.revokedAt < :cutoff")
+    int clearSealedSuccessorsBefore(LocalDateTime cutoff);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now, t.revokeReason = :reason " +
+           "WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    int revokeFamily(String familyId, String reason, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now, t.revokeReason = :reason " +
+           "WHERE t.user.userId = :userId AND t.revokedAt IS NULL")
+    int revokeAllForUser(Long userId, String reason, LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :cutoff")
+    int deleteExpiredBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,49 @@
+package com.msedcl.billing.shared.repository;
+
+import com.msedcl.billing.shared.entity.WalletCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface WalletCheckpointRepository extends JpaRepository<WalletCheckpoint, Long> {
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO wallet_checkpoints (customer_id, balance_paise, last_entry_id, updated_at) " +
+                   "VALUES (:customerId, 0, 0, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int createIfMissing(@Param("customerId") Long customerId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM WalletCheckpoint c WHERE c.customerId = :customerId")
+    Optional<WalletCheckpoint> findForUpdate(@Param("customerId") Long customerId);
+
+    /**
+     * Folds each customer's settled entries into the checkpoints in one statement. The
+     * fold stops below the customer's lowest unfolded entry written at or after
+     * {@code settledBefore}: ids are assigned at flush and {@code created_at} at persist,
+     * so a lower id can carry a later timestamp, and folding past it would move
+     * {@code last_entry_id} over an entry that was never summed. INSERT ... SELECT takes
+     * shared locks on the entries it reads, so an entry still being written by an open
+     * transaction is waited for rather than skipped.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO wallet_checkpoints (customer_id, balance_paise, last_entry_id, updated_at) " +
+                   "SELECT t.customer_id, t.delta, t.max_entry_id, CURRENT_TIMESTAMP FROM (" +
+                   "  SELECT e.customer_id, SUM(e.amount_paise) AS delta, MAX(e.entry_id) AS max_entry_id " +
+                   "  FROM wallet_ledger_entries e LEFT JOIN wallet_checkpoints c ON c.customer_id = e.customer_id " +
+                   "  WHERE e.entry_id > COALESCE(c.last_entry_id, 0) " +
+                   "  AND NOT EXISTS (SELECT 1 FROM wallet_ledger_entries f WHERE f.customer_id = e.customer_id " +
+                   "    AND f.entry_id > COALESCE(c.last_entry_id, 0) AND f.entry_id <= e.entry_id " +
+                   "    AND f.created_at >= :settledBefore) " +
+                   "  GROUP BY e.customer_id) t " +
+                   "ON DUPLICATE KEY UPDATE balance_paise = balance_paise + VALUES(balance_paise), " +
+                   "last_entry_id = VALUES(last_entry_id), updated_at = VALUES(updated_at)", nativeQuery = true)
+    int advanceCheckpoints(@Param("settledBefore") LocalDateTime settledBefore);
+}
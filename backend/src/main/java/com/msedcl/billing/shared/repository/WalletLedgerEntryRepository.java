@@ -0,0 +1,32 @@
+package com.msedcl.billing.shared.repository;
+
+import com.msedcl.billing.shared.dto.WalletAmountProjection;
+import com.msedcl.billing.shared.entity.WalletLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WalletLedgerEntryRepository extends JpaRepository<WalletLedgerEntry, Long> {
+
+    @Query("SELECT COALESCE(SUM(e.amountPaise), 0) FROM WalletLedgerEntry e " +
+           "WHERE e.customer.customerId = :customerId AND e.entryId > :afterEntryId")
+    long sumTail(@Param("customerId") Long customerId, @Param("afterEntryId") long afterEntryId);
+
+    /**
+     * Locking read so a debit sees every committed entry, not just its transaction's snapshot.
+     */
+    @Query(value = "SELECT COALESCE(SUM(amount_paise), 0) FROM wallet_ledger_entries " +
+                   "WHERE customer_id = :customerId AND entry_id > :afterEntryId LOCK IN SHARE MODE", nativeQuery = true)
+    long sumTailLocked(@Param("customerId") Long customerId, @Param("afterEntryId") long afterEntryId);
+
+    @Query("SELECT e.customer.customerId AS customerId, SUM(e.amountPaise) AS amountPaise " +
+           "FROM WalletLedgerEntry e LEFT JOIN WalletCheckpoint c ON c.customerId = e.customer.customerId " +
+           "WHERE e.customer.customerId IN :customerIds AND e.entryId > COALESCE(c.lastEntryId, 0) " +
+           "GROUP BY e.customer.customerId")
+    List<WalletAmountProjection> sumTails(@Param("customerIds") Collection<Long> customerIds);
+}
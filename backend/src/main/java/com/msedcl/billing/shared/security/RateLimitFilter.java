@@ -0,0 +1,171 @@
+package com.msedcl.billing.shared.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-principal and per-IP rate limiting plus priority-based load shedding for the
+ * hot API routes. Requests over their bucket get an immediate 429; once the number of
+ * in-flight requests passes a route class's share of {@code ratelimit.max-in-flight}
+ * the request is shed with 503 instead of queueing for a Tomcat thread or a
+ * Hikari connection.
+ */
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    enum RouteClass {
+        PAYMENT(1.0),
+        WEBHOOK(0.9),
+        AUTH(0.9),
+        DEFAULT(0.8),
+        PORTAL(0.7),
+        BATCH(0.5);
+
+        private final double inFlightShare;
+
+        RouteClass(double inFlightShare) {
+            this.inFlightShare = inFlightShare;
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<RouteClass, StripedRateLimiter> principalLimiters = new EnumMap<>(RouteClass.class);
+    private final Map<RouteClass, StripedRateLimiter> ipLimiters = new EnumMap<>(RouteClass.class);
+
+    public RateLimitFilter(@Value("${ratelimit.enabled:true}") boolean enabled,
+                           @Value("${ratelimit.max-in-flight:150}") int maxInFlight,
+                           @Value("${ratelimit.stripes:4096}") int stripes,
+                           @Value("${ratelimit.ip-multiplier:5}") int ipMultiplier,
+                           @Value("${ratelimit.auth.per-minute:30}") int authPerMinute,
+                           @Value("${ratelimit.auth.burst:10}") int authBurst,
+                           @Value("${ratelimit.payment.per-minute:120}") int paymentPerMinute,
+                           @Value("${ratelimit.payment.burst:20}") int paymentBurst,
+                           @Value("${ratelimit.portal.per-minute:600}") int portalPerMinute,
+                           @Value("${ratelimit.portal.burst:60}") int portalBurst,
+                           @Value("${ratelimit.batch.per-minute:6}") int batchPerMinute,
+                           @Value("${ratelimit.batch.burst:2}") int batchBurst,
+                           @Value("${ratelimit.webhook.per-minute:12000}") int webhookPerMinute,
+                           @Value("${ratelimit.webhook.burst:1000}") int webhookBurst) {
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight;
+        register(RouteClass.AUTH, stripes, authPerMinute, authBurst, ipMultiplier);
+        register(RouteClass.PAYMENT, stripes, paymentPerMinute, paymentBurst, ipMultiplier);
+        register(RouteClass.PORTAL, stripes, portalPerMinute, portalBurst, ipMultiplier);
+        register(RouteClass.BATCH, stripes, batchPerMinute, batchBurst, ipMultiplier);
+        register(RouteClass.WEBHOOK, stripes, webhookPerMinute, webhookBurst, ipMultiplier);
+    }
+
+    private void register(RouteClass routeClass, int stripes, int perMinute, int burst, int ipMultiplier) {
+        principalLimiters.put(routeClass, new StripedRateLimiter(stripes, perMinute, burst));
+        ipLimiters.put(routeClass, new StripedRateLimiter(stripes, perMinute * ipMultiplier, burst * ipMultiplier));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || "OPTIONS".equalsIgnoreCase(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        RouteClass routeClass = classify(request.getServletPath());
+
+        long waitNanos = acquire(routeClass, request);
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds, "Too many requests, please retry later");
+            return;
+        }
+
+        int admitted = inFlight.incrementAndGet();
+        try {
+            if (admitted > maxInFlight * routeClass.inFlightShare) {
+                log.debug("Shedding {} request to {} at {} in-flight", routeClass, request.getServletPath(), admitted);
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Server is busy, please retry shortly");
+                return;
+            }
+            chain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private long acquire(RouteClass routeClass, HttpServletRequest request) {
+        StripedRateLimiter ipLimiter = ipLimiters.get(routeClass);
+        if (ipLimiter == null) {
+            return 0;
+        }
+
+        long ipWait = ipLimiter.tryAcquire(resolveClientIp(request));
+        if (ipWait > 0) {
+            return ipWait;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken || !authentication.isAuthenticated()) {
+            return 0;
+        }
+        return principalLimiters.get(routeClass).tryAcquire(authentication.getName());
+    }
+
+    static RouteClass classify(String path) {
+        if (path == null) {
+            return RouteClass.DEFAULT;
+        }
+        if (path.equals("/auth/login") || path.equals("/auth/refresh") || path.equals("/auth/register")) {
+            return RouteClass.AUTH;
+        }
+        if (path.startsWith("/webhooks/")) {
+            return RouteClass.WEBHOOK;
+        }
+        if (path.startsWith("/payments")) {
+            return RouteClass.PAYMENT;
+        }
+        if (path.startsWith("/customers/self/")) {
+            return RouteClass.PORTAL;
+        }
+        if (path.startsWith("/bills/generate") || path.startsWith("/admin/reconciliation/settlements")) {
+            return RouteClass.BATCH;
+        }
+        return RouteClass.DEFAULT;
+    }
+
+    /**
+     * The peer address as resolved by the servlet container. Forwarding headers are
+     * client-controlled, so they are only honoured by the container's forwarded-header
+     * handling ({@code server.forward-headers-strategy}), which takes the right-most hop
+     * not added by a trusted proxy.
+     */
+    private String resolveClientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(message);
+    }
+}
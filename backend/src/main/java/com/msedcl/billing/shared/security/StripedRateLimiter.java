@@ -0,0 +1,57 @@
+package com.msedcl.billing.shared.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free token bucket keyed by an arbitrary string. Keys are hashed onto a fixed
+ * number of stripes, each holding a single "theoretical arrival time" (GCRA), so
+ * memory stays bounded no matter how many distinct clients are seen. Colliding keys
+ * share a bucket, which only ever makes the limit stricter.
+ */
+public class StripedRateLimiter {
+
+    private final AtomicLongArray arrivalTimes;
+    private final int mask;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+
+    public StripedRateLimiter(int stripes, int permitsPerMinute, int burst) {
+        if (permitsPerMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.arrivalTimes = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.emissionIntervalNanos = 60_000_000_000L / permitsPerMinute;
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+    }
+
+    /**
+     * Attempts to take one permit for {@code key}.
+     *
+     * @return {@code 0} when the permit was granted, otherwise the number of
+     * nanoseconds until one becomes available
+     */
+    public long tryAcquire(String key) {
+        int stripe = spread(key.hashCode()) & mask;
+        long now = System.nanoTime();
+        while (true) {
+            long stored = arrivalTimes.get(stripe);
+            long tat = stored == 0 ? now : Math.max(stored, now);
+            long next = tat + emissionIntervalNanos;
+            long excess = next - now - burstToleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (arrivalTimes.compareAndSet(stripe, stored, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        hash ^= (hash >>> 16);
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+}
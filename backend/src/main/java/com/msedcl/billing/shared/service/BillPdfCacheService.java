@@ -0,0 +1,275 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.admin.billing.dto.BillDocumentProjection;
+import com.msedcl.billing.admin.billing.repository.BillRepository;
+import com.msedcl.billing.shared.config.ExecutorRegistry;
+import com.msedcl.billing.shared.entity.Bill;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Treats the PDF storage directory as a size-bounded LRU cache. Bills no longer need
+ * a pre-rendered PDF: the first download renders it, concurrent downloads of the same
+ * bill wait on that single render, and the least recently used files are deleted once
+ * {@code pdf.cache.max-bytes} is exceeded (they are simply re-rendered if requested again).
+ * Files pinned by an in-progress download or an email attachment are skipped by eviction
+ * until they are released, since both read the file after it has been resolved. A download
+ * handed to Tomcat sendfile is released with {@link #releaseDownload}, which keeps the file
+ * for a short grace period because the connector opens it only after the request completes.
+ */
+@Service
+@Slf4j
+public class BillPdfCacheService {
+
+    private final PdfService pdfService;
+    private final BillRepository billRepository;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final ExecutorService renderers;
+
+    private final Map<Long, CompletableFuture<Path>> inFlightRenders = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Path, Integer> pins = new HashMap<>();
+    private final Map<Path, Long> graceUntil = new HashMap<>();
+    private long totalBytes;
+
+    @Value("${pdf.storage.path}")
+    private String pdfStoragePath;
+
+    @Value("${pdf.cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    @Value("${pdf.cache.release-grace-ms:10000}")
+    private long releaseGraceMillis;
+
+    public BillPdfCacheService(PdfService pdfService,
+                               BillRepository billRepository,
+                               PlatformTransactionManager transactionManager,
+                               ExecutorRegistry executorRegistry) {
+        this.pdfService = pdfService;
+        this.billRepository = billRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.renderers = executorRegistry.get(ExecutorRegistry.DOCUMENT);
+    }
+
+    @PostConstruct
+    void loadExistingFiles() {
+        Path directory = Path.of(pdfStoragePath);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> pdfs = files
+                .filter(path -> path.getFileName().toString().endsWith(".pdf"))
+                .sorted(Comparator.comparingLong(this::lastModifiedOrZero))
+                .toList();
+            for (Path pdf : pdfs) {
+                register(pdf);
+            }
+            log.info("PDF cache initialised with {} files ({} bytes, limit {})", entries.size(), totalBytes, maxBytes);
+        } catch (IOException ex) {
+            log.warn("Unable to scan PDF storage path {}: {}", pdfStoragePath, ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the path of the bill PDF, rendering it first if it was never generated
+     * or has been evicted.
+     */
+    public String resolvePdf(BillDocumentProjection document) {
+        if (StringUtils.hasText(document.getPdfPath())) {
+            Path existing = Path.of(document.getPdfPath());
+            if (Files.isRegularFile(existing)) {
+                touch(existing);
+                return existing.toString();
+            }
+        }
+        return renderCoalesced(document.getBillId()).toString();
+    }
+
+    /**
+     * Returns the bill PDF for attaching to an email, from the cache when it is there and
+     * rendered otherwise, or {@code null} if the bill no longer exists. The file is pinned
+     * against eviction; the caller must {@link #release} it once the email has been sent.
+     */
+    public Path pinAttachment(Long billId) {
+        return billRepository.findDocumentByBillId(billId)
+            .map(this::pinPdf)
+            .orElse(null);
+    }
+
+    /**
+     * Resolves the bill PDF like {@link #resolvePdf} and pins it against eviction until the
+     * caller {@link #release}s it, so a download or attachment never loses the file mid-read.
+     */
+    public Path pinPdf(BillDocumentProjection document) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Path path = Path.of(resolvePdf(document));
+            if (pin(path)) {
+                return path;
+            }
+            // Evicted between resolving and pinning; render it again
+        }
+        throw new IllegalStateException("PDF of bill " + document.getBillId() + " keeps being evicted; the cache is too small");
+    }
+
+    public synchronized void release(Path path) {
+        pins.computeIfPresent(path, (pinned, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Releases a download's pin once its request has completed. Tomcat opens a sendfile
+     * body only after that, so eviction leaves the file alone for
+     * {@code pdf.cache.release-grace-ms} more; once the connector holds it open, deleting
+     * the file no longer affects the transfer.
+     */
+    public synchronized void releaseDownload(Path path) {
+        release(path);
+        graceUntil.put(path, System.currentTimeMillis() + releaseGraceMillis);
+    }
+
+    private synchronized boolean pin(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        pins.merge(path, 1, Integer::sum);
+        return true;
+    }
+
+    /**
+     * Eagerly renders a bill that is already loaded (pre-render during a billing run)
+     * and records the result in the cache.
+     */
+    public String store(Bill bill) {
+        String path = pdfService.generateBillPdf(bill);
+        register(Path.of(path));
+        evictIfNeeded(Path.of(path));
+        return path;
+    }
+
+    /**
+     * Renders on the bounded document pool so on-demand renders cannot take every request
+     * or sender thread; when the pool is full the caller gets an {@link IllegalStateException}.
+     */
+    private Path renderCoalesced(Long billId) {
+        CompletableFuture<Path> render = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlightRenders.putIfAbsent(billId, render);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            renderers.execute(() -> {
+                try {
+                    render.complete(render(billId));
+                } catch (RuntimeException ex) {
+                    render.completeExceptionally(ex);
+                } finally {
+                    inFlightRenders.remove(billId, render);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlightRenders.remove(billId, render);
+            IllegalStateException busy = new IllegalStateException("Too many bill PDFs are being rendered, please retry", ex);
+            render.completeExceptionally(busy);
+            throw busy;
+        }
+        return await(render);
+    }
+
+    private static Path await(CompletableFuture<Path> render) {
+        try {
+            return render.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException runtime ? runtime : ex;
+        }
+    }
+
+    private Path render(Long billId) {
+        String pdfPath = readTransaction.execute(status -> {
+            Bill bill = billRepository.findWithAccountByBillId(billId)
+                .orElseThrow(() -> new RuntimeException("Bill not found with id: " + billId));
+            return pdfService.generateBillPdf(bill);
+        });
+
+        writeTransaction.executeWithoutResult(status -> billRepository.updatePdfPath(billId, pdfPath));
+
+        Path path = Path.of(pdfPath);
+        register(path);
+        evictIfNeeded(path);
+        log.debug("Rendered PDF for bill {} on demand", billId);
+        return path;
+    }
+
+    private synchronized void touch(Path path) {
+        if (entries.get(path) == null) {
+            register(path);
+        }
+    }
+
+    private synchronized void register(Path path) {
+        long size = sizeOrZero(path);
+        Long previous = entries.put(path, size);
+        totalBytes += size - (previous == null ? 0 : previous);
+    }
+
+    private synchronized void evictIfNeeded(Path keep) {
+        long now = System.currentTimeMillis();
+        graceUntil.values().removeIf(deadline -> deadline <= now);
+        Iterator<Map.Entry<Path, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Path, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(keep) || pins.containsKey(eldest.getKey())
+                    || graceUntil.containsKey(eldest.getKey())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(eldest.getKey());
+            } catch (IOException ex) {
+                log.warn("Unable to evict cached PDF {}: {}", eldest.getKey(), ex.getMessage());
+                continue;
+            }
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private long sizeOrZero(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    private long lastModifiedOrZero(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.msedcl.billing.shared.service;
+
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.ServletRequestListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Streams stored bill documents with conditional-request and byte-range support.
+ * Repeat views are answered with 304 from the ETag / Last-Modified validators, and
+ * bodies go out through Tomcat sendfile (zero-copy) when the connector supports it.
+ * Otherwise they are copied to the response stream, which goes through a heap buffer.
+ * <p>
+ * A caller that pins the file passes an {@code onComplete} callback. It runs when the
+ * request is destroyed if the body was handed to sendfile, and as soon as {@code serve}
+ * returns otherwise.
+ */
+@Service
+@Slf4j
+public class DocumentDownloadService implements ServletRequestListener {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String CACHE_CONTROL = "private, no-cache";
+    private static final String ON_COMPLETE = DocumentDownloadService.class.getName() + ".onComplete";
+
+    public void serve(HttpServletRequest request,
+                      HttpServletResponse response,
+                      String storedPath,
+                      String contentType,
+                      boolean inline) throws IOException {
+        serve(request, response, storedPath, contentType, inline, null);
+    }
+
+    public void serve(HttpServletRequest request,
+                      HttpServletResponse response,
+                      String storedPath,
+                      String contentType,
+                      boolean inline,
+                      Runnable onComplete) throws IOException {
+        boolean handedToSendfile = false;
+        try {
+            handedToSendfile = write(request, response, storedPath, contentType, inline);
+        } finally {
+            if (onComplete != null) {
+                if (handedToSendfile) {
+                    request.setAttribute(ON_COMPLETE, onComplete);
+                } else {
+                    onComplete.run();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        if (event.getServletRequest().getAttribute(ON_COMPLETE) instanceof Runnable onComplete) {
+            onComplete.run();
+        }
+    }
+
+    /**
+     * @return {@code true} when the body was left for Tomcat to send after the request completes
+     */
+    private boolean write(HttpServletRequest request,
+                          HttpServletResponse response,
+                          String storedPath,
+                          String contentType,
+                          boolean inline) throws IOException {
+        if (!StringUtils.hasText(storedPath)) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return false;
+        }
+
+        Path file = Path.of(storedPath).toAbsolutePath();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return false;
+        }
+        if (!attributes.isRegularFile()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return false;
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return false;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        long[] range = resolveRange(request, etag, lastModified, length);
+        if (range != null && range.length == 0) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return false;
+        }
+        if (range != null) {
+            start = range[0];
+            end = range[1];
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+        }
+
+        long count = end - start + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder(inline ? "inline" : "attachment")
+            .filename(file.getFileName().toString(), StandardCharsets.UTF_8)
+            .build()
+            .toString());
+
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count == 0) {
+            return false;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return true;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, target);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+        return false;
+    }
+
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesAny(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = parseDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * @return {@code null} to send the whole file, an empty array when the range is
+     * unsatisfiable, or {@code [start, end]} (inclusive) for a single satisfiable range
+     */
+    private long[] resolveRange(HttpServletRequest request, String etag, long lastModified, long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.trim().equals(etag)) {
+                    return null;
+                }
+            } else {
+                long ifRangeDate = parseDateHeader(request, HttpHeaders.IF_RANGE);
+                if (ifRangeDate < 0 || lastModified / 1000 > ifRangeDate / 1000) {
+                    return null;
+                }
+            }
+        }
+
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        if (spec.contains(",")) {
+            // Multipart byte ranges are not worth the complexity for bill documents
+            return null;
+        }
+
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private boolean matchesAny(String header, String etag) {
+        String opaque = etag.substring(1, etag.length() - 1);
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value)) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() >= 2 && value.substring(1, value.length() - 1).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long parseDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+}
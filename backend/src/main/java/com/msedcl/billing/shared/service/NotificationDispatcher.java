@@ -0,0 +1,382 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.shared.config.ExecutorRegistry;
+import com.msedcl.billing.shared.entity.NotificationOutboxMessage;
+import com.msedcl.billing.shared.repository.NotificationOutboxRepository;
+import jakarta.activation.FileDataSource;
+import jakarta.activation.MimetypesFileTypeMap;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers the notification outbox. Due messages are claimed in batches and sent on a
+ * fixed pool of {@code notifications.outbox.max-concurrency} threads, so a slow SMTP
+ * server or SMS gateway only ever holds that many threads. A batch's emails are split
+ * into one run per sender and each run goes out over a single pooled SMTP connection
+ * ({@link SmtpTransportPool}). Transient failures are
+ * retried with exponential back-off; malformed messages and rejected recipients fail
+ * at once. Each row keeps its attempts, last error and sent time.
+ * <p>
+ * Bill PDF attachments are resolved through {@link BillPdfCacheService} on the sender
+ * thread and attached as file-backed data sources, so MIME encoding streams them from
+ * disk instead of holding a copy per message. The files stay pinned in the cache until
+ * the slice has been sent. PDFs over
+ * {@code notifications.email.attachment.max-bytes} are left off.
+ */
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final MimetypesFileTypeMap PDF_TYPES = new MimetypesFileTypeMap();
+
+    static {
+        PDF_TYPES.addMimeTypes("application/pdf pdf PDF");
+    }
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final SmtpTransportPool transportPool;
+    private final SmsService smsService;
+    private final BillPdfCacheService billPdfCacheService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService dispatcher;
+    private final ExecutorService senders;
+    private final int maxConcurrency;
+
+    private final String workerId = "notifier-" + UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+
+    @Value("${notifications.email.from:no-reply@vit.edu}")
+    private String fromAddress;
+
+    @Value("${notifications.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${notifications.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${notifications.outbox.retry-base-ms:30000}")
+    private long retryBaseMillis;
+
+    @Value("${notifications.outbox.claim-timeout-seconds:300}")
+    private long claimTimeoutSeconds;
+
+    @Value("${notifications.outbox.retention-days:14}")
+    private long retentionDays;
+
+    @Value("${notifications.email.attachment.max-bytes:5242880}")
+    private long maxAttachmentBytes;
+
+    public NotificationDispatcher(NotificationOutboxRepository outboxRepository,
+                                  SmtpTransportPool transportPool,
+                                  SmsService smsService,
+                                  BillPdfCacheService billPdfCacheService,
+                                  PlatformTransactionManager transactionManager,
+                                  ExecutorRegistry executorRegistry,
+                                  @Value("${notifications.outbox.max-concurrency:4}") int maxConcurrency) {
+        this.outboxRepository = outboxRepository;
+        this.transportPool = transportPool;
+        this.smsService = smsService;
+        this.billPdfCacheService = billPdfCacheService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxConcurrency = maxConcurrency;
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.senders = executorRegistry.get(ExecutorRegistry.NOTIFICATION);
+    }
+
+    /**
+     * Called after a transaction that wrote to the outbox commits.
+     */
+    public void wake() {
+        if (draining.get()) {
+            wakeRequested.set(true);
+            return;
+        }
+        // At most one drain waits in the dispatcher queue however often we are woken
+        if (!drainQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                drainQueued.set(false);
+                drain();
+            });
+        } catch (RuntimeException ex) {
+            drainQueued.set(false);
+            log.debug("Notification dispatcher unavailable: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Hands the drain to the dispatcher thread so a slow batch never holds the shared
+     * scheduler thread.
+     */
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-ms:5000}")
+    public void poll() {
+        wake();
+    }
+
+    /**
+     * Returns messages left claimed by a stopped dispatcher. The lost claim counts as an
+     * attempt, so a message that keeps killing its dispatcher fails at the attempt cap
+     * instead of being released forever.
+     */
+    @Scheduled(fixedDelayString = "${notifications.outbox.reclaim-ms:60000}")
+    public void releaseStaleClaims() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(claimTimeoutSeconds);
+        int[] counts = transactionTemplate.execute(status -> new int[]{
+            outboxRepository.failStale(cutoff, maxAttempts, "Claim expired after " + maxAttempts + " attempts"),
+            outboxRepository.releaseStale(cutoff)
+        });
+        if (counts != null && counts[0] > 0) {
+            log.error("Gave up on {} notifications whose claims expired at the attempt limit", counts[0]);
+        }
+        if (counts != null && counts[1] > 0) {
+            log.warn("Released {} notifications left claimed by a stopped dispatcher", counts[1]);
+        }
+    }
+
+    @Scheduled(cron = "${notifications.outbox.purge-cron:0 45 2 * * ?}")
+    public void purgeDelivered() {
+        Integer purged = transactionTemplate.execute(status ->
+            outboxRepository.purgeSent(LocalDateTime.now().minusDays(retentionDays)));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} delivered notifications older than {} days", purged, retentionDays);
+        }
+    }
+
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            wakeRequested.set(true);
+            return;
+        }
+        try {
+            do {
+                wakeRequested.set(false);
+                while (processBatch() > 0) {
+                    // keep draining while messages are due
+                }
+            } while (wakeRequested.get());
+        } catch (RuntimeException ex) {
+            log.error("Notification drain failed: {}", ex.getMessage(), ex);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private int processBatch() {
+        Integer claimed = transactionTemplate.execute(status ->
+            outboxRepository.claimDue(workerId, LocalDateTime.now(), batchSize));
+        if (claimed == null || claimed == 0) {
+            return 0;
+        }
+
+        long started = System.currentTimeMillis();
+        List<NotificationOutboxMessage> emails = new ArrayList<>();
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (NotificationOutboxMessage message : outboxRepository.findByClaimedByAndStatusOrderByMessageIdAsc(
+                workerId, NotificationOutboxMessage.Status.PROCESSING)) {
+            if (message.getChannel() == NotificationOutboxMessage.Channel.SMS) {
+                // Queued on the SMS gateway thread; outcomes are written back on the sender pool
+                running.add(smsService.submit(message.getRecipient(), message.getBody())
+                    .handleAsync((ignored, failure) -> {
+                        Exception outcome = unwrap(failure);
+                        recordOutcome(message, outcome);
+                        return null;
+                    }, senders));
+                continue;
+            }
+            emails.add(message);
+        }
+
+        // One slice per pooled SMTP connection; each slice goes out over a single connection
+        int slices = Math.min(maxConcurrency, emails.size());
+        for (int slice = 0; slice < slices; slice++) {
+            int from = emails.size() * slice / slices;
+            int to = emails.size() * (slice + 1) / slices;
+            List<NotificationOutboxMessage> sliceMessages = emails.subList(from, to);
+            running.add(CompletableFuture.runAsync(() -> sendSlice(sliceMessages), senders));
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - started);
+        log.debug("Delivered {} notifications ({} emails) in {} ms, {} msg/s", claimed, emails.size(), elapsed,
+            claimed * 1000L / elapsed);
+        return claimed;
+    }
+
+    /**
+     * Builds and sends one slice's emails. Building happens here rather than on the
+     * dispatcher thread so that rendering an evicted attachment holds up only this slice.
+     */
+    private void sendSlice(List<NotificationOutboxMessage> messages) {
+        List<NotificationOutboxMessage> prepared = new ArrayList<>(messages.size());
+        List<MimeMessage> mimeMessages = new ArrayList<>(messages.size());
+        List<NotificationOutboxMessage> malformed = new ArrayList<>();
+        List<Exception> malformedCauses = new ArrayList<>();
+        List<Path> pinned = new ArrayList<>();
+        List<Exception> failures;
+        try {
+            for (NotificationOutboxMessage message : messages) {
+                try {
+                    mimeMessages.add(toMimeMessage(message, pinned));
+                    prepared.add(message);
+                } catch (MessagingException | RuntimeException ex) {
+                    malformed.add(message);
+                    malformedCauses.add(new MailPreparationException(ex.getMessage(), ex));
+                }
+            }
+            failures = mimeMessages.isEmpty() ? List.of() : transportPool.sendAll(mimeMessages);
+        } finally {
+            pinned.forEach(billPdfCacheService::release);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < prepared.size(); i++) {
+                recordOutcome(prepared.get(i), failures.get(i));
+            }
+            for (int i = 0; i < malformed.size(); i++) {
+                recordOutcome(malformed.get(i), malformedCauses.get(i));
+            }
+        });
+    }
+
+    private Exception unwrap(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause == null || cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * Writes one message's outcome. Joins the caller's transaction when there is one and
+     * opens its own otherwise, so every path may call it directly.
+     */
+    private void recordOutcome(NotificationOutboxMessage message, Exception failure) {
+        transactionTemplate.executeWithoutResult(status -> writeOutcome(message, failure));
+    }
+
+    private void writeOutcome(NotificationOutboxMessage message, Exception failure) {
+        if (failure == null) {
+            outboxRepository.markSent(message.getMessageId(), LocalDateTime.now());
+            return;
+        }
+        if (isPermanent(failure)) {
+            log.warn("Dropping {} notification {} to {}: {}", message.getChannel(), message.getMessageId(),
+                message.getRecipient(), failure.getMessage());
+            outboxRepository.markFailed(message.getMessageId(), truncate(failure.getMessage()));
+            return;
+        }
+        int attempts = message.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            log.error("Giving up on {} notification {} to {} after {} attempts: {}", message.getChannel(),
+                message.getMessageId(), message.getRecipient(), attempts, failure.getMessage());
+            outboxRepository.markFailed(message.getMessageId(), truncate(failure.getMessage()));
+            return;
+        }
+        LocalDateTime retryAt = LocalDateTime.now().plus(Duration.ofMillis(retryBaseMillis << Math.min(attempts - 1, 10)));
+        outboxRepository.scheduleRetry(message.getMessageId(), truncate(failure.getMessage()), retryAt);
+    }
+
+    private boolean isPermanent(Exception failure) {
+        return failure instanceof MailPreparationException
+            || failure instanceof IllegalArgumentException
+            || (failure instanceof HttpClientErrorException http && http.getStatusCode().value() != 429)
+            || (failure instanceof SendFailedException sendFailed
+                && sendFailed.getInvalidAddresses() != null && sendFailed.getInvalidAddresses().length > 0);
+    }
+
+    private MimeMessage toMimeMessage(NotificationOutboxMessage message, List<Path> pinned) throws MessagingException {
+        MimeMessage mimeMessage = transportPool.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
+            StandardCharsets.UTF_8.name());
+        helper.setTo(message.getRecipient());
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getBody(), true);
+        if (StringUtils.hasText(fromAddress)) {
+            helper.setFrom(fromAddress);
+        }
+        if (message.getAttachmentBillId() != null) {
+            attachBillPdf(helper, message, pinned);
+        }
+        return mimeMessage;
+    }
+
+    /**
+     * Attaches the bill PDF as a file-backed data source and adds it to {@code pinned},
+     * which the caller releases after the send. A missing, unreadable or oversized PDF
+     * is logged and the email goes out without it; the body already points the customer
+     * at the portal download.
+     */
+    private void attachBillPdf(MimeMessageHelper helper, NotificationOutboxMessage message, List<Path> pinned)
+            throws MessagingException {
+        Path pdf;
+        long size;
+        try {
+            pdf = billPdfCacheService.pinAttachment(message.getAttachmentBillId());
+            if (pdf == null) {
+                log.info("Bill {} no longer exists; sending notification {} without its PDF",
+                    message.getAttachmentBillId(), message.getMessageId());
+                return;
+            }
+            pinned.add(pdf);
+            size = Files.size(pdf);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Unable to resolve PDF of bill {} for notification {}: {}", message.getAttachmentBillId(),
+                message.getMessageId(), ex.getMessage());
+            return;
+        }
+        if (size > maxAttachmentBytes) {
+            log.info("PDF of bill {} is {} bytes, over the {} byte attachment limit; sending notification {} without it",
+                message.getAttachmentBillId(), size, maxAttachmentBytes, message.getMessageId());
+            return;
+        }
+        FileDataSource dataSource = new FileDataSource(pdf.toFile());
+        dataSource.setFileTypeMap(PDF_TYPES);
+        helper.addAttachment(pdf.getFileName().toString(), dataSource);
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+}
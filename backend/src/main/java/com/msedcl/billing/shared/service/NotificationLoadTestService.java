@@ -0,0 +1,427 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.admin.billing.dto.ReminderBillProjection;
+import com.msedcl.billing.shared.dto.LoadTestReport;
+import com.msedcl.billing.shared.dto.LoadTestRequest;
+import com.msedcl.billing.shared.dto.OutboxOutcomeProjection;
+import com.msedcl.billing.shared.entity.Account;
+import com.msedcl.billing.shared.entity.Bill;
+import com.msedcl.billing.shared.entity.Customer;
+import com.msedcl.billing.shared.entity.NotificationOutboxMessage;
+import com.msedcl.billing.shared.entity.Payment;
+import com.msedcl.billing.shared.repository.NotificationOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load-test harness for the notification paths, enabled only with
+ * {@code notifications.loadtest.enabled=true}. It builds synthetic bills, payments and
+ * reminder pages in memory (nothing but outbox rows is written), drives them through
+ * {@link NotificationService} at a fixed rate, then waits for the dispatcher to drain
+ * them and reports enqueue throughput, latency percentiles and retry behaviour from the
+ * outbox rows it produced.
+ * <p>
+ * Runs only against {@link SmtpSinkServer} and {@link SmsGatewayStub}: both must be
+ * enabled and the mail host and SMS gateway URLs must point at loopback, otherwise the
+ * run is refused. Synthetic customers get {@code .invalid} addresses and phone numbers
+ * with a {@code 000} prefix, which no real subscriber can have. Lower
+ * {@code notifications.outbox.retry-base-ms} when injecting errors, or retries will
+ * outlast the drain timeout.
+ */
+@Service
+@ConditionalOnProperty(name = "notifications.loadtest.enabled", havingValue = "true")
+@Slf4j
+public class NotificationLoadTestService {
+
+    private static final int MAX_OPERATIONS = 200_000;
+    private static final int REMINDER_PAGE_CUSTOMERS = 50;
+    private static final int MAX_PRODUCERS = 64;
+    private static final EnumSet<NotificationOutboxMessage.Status> UNFINISHED =
+        EnumSet.of(NotificationOutboxMessage.Status.PENDING, NotificationOutboxMessage.Status.PROCESSING);
+
+    private enum Kind {
+        BILL, RECEIPT, REMINDER
+    }
+
+    private final NotificationService notificationService;
+    private final NotificationPlanner notificationPlanner;
+    private final NotificationOutboxRepository outboxRepository;
+    private final ObjectProvider<SmtpSinkServer> smtpSink;
+    private final ObjectProvider<SmsGatewayStub> smsStub;
+    private final TransactionTemplate transactionTemplate;
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${spring.mail.host:}")
+    private String mailHost;
+
+    @Value("${notifications.sms.gateway-url:}")
+    private String smsGatewayUrl;
+
+    @Value("${notifications.sms.bulk-url:}")
+    private String smsBulkUrl;
+
+    public NotificationLoadTestService(NotificationService notificationService,
+                                       NotificationPlanner notificationPlanner,
+                                       NotificationOutboxRepository outboxRepository,
+                                       ObjectProvider<SmtpSinkServer> smtpSink,
+                                       ObjectProvider<SmsGatewayStub> smsStub,
+                                       PlatformTransactionManager transactionManager) {
+        this.notificationService = notificationService;
+        this.notificationPlanner = notificationPlanner;
+        this.outboxRepository = outboxRepository;
+        this.smtpSink = smtpSink;
+        this.smsStub = smsStub;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public LoadTestReport run(LoadTestRequest request) {
+        int reminderPages = (request.reminderCustomers() + REMINDER_PAGE_CUSTOMERS - 1) / REMINDER_PAGE_CUSTOMERS;
+        int total = request.bills() + request.receipts() + reminderPages;
+        if (request.bills() < 0 || request.receipts() < 0 || request.reminderCustomers() < 0
+            || total <= 0 || total > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_OPERATIONS + " operations are required");
+        }
+        if (request.ratePerSecond() <= 0 || request.producers() <= 0 || request.producers() > MAX_PRODUCERS
+            || request.drainTimeoutSeconds() < 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive and producers between 1 and " + MAX_PRODUCERS);
+        }
+        requireLocalTargets();
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A notification load test is already running");
+        }
+        try {
+            String tag = "LT" + Long.toString(System.currentTimeMillis(), 36).toUpperCase();
+            long[] sinkBefore = sinkCounters();
+            List<Kind> operations = plan(request, reminderPages);
+            long[] latencies = new long[total];
+            AtomicInteger failures = new AtomicInteger();
+
+            long started = System.nanoTime();
+            drive(request, tag, operations, latencies, failures, started);
+            long enqueueNanos = System.nanoTime() - started;
+
+            long drainStarted = System.nanoTime();
+            List<String> prefixes = referencePrefixes(tag, request.overdue());
+            awaitDrain(prefixes, Duration.ofSeconds(request.drainTimeoutSeconds()));
+            long drainMillis = (System.nanoTime() - drainStarted) / 1_000_000;
+
+            LoadTestReport report = report(tag, operations, latencies, failures.get(), enqueueNanos, prefixes,
+                drainMillis, sinkBefore);
+            log.info("Notification load test {}: {} operations at {} ops/s, {} messages queued, {} sent, {} failed, {} pending",
+                tag, total, Math.round(report.operationsPerSecond()), report.messagesQueued(), report.sent(),
+                report.failed(), report.pending());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Refuses to run unless every message would end up at the in-process sinks.
+     */
+    private void requireLocalTargets() {
+        if (smtpSink.getIfAvailable() == null || smsStub.getIfAvailable() == null) {
+            throw new IllegalStateException("Load tests need the SMTP sink and SMS gateway stub enabled");
+        }
+        if (!isLoopback(mailHost)) {
+            throw new IllegalStateException("spring.mail.host must point at the local SMTP sink, not " + mailHost);
+        }
+        if (!isLoopbackUrl(smsGatewayUrl) || (StringUtils.hasText(smsBulkUrl) && !isLoopbackUrl(smsBulkUrl))) {
+            throw new IllegalStateException("SMS gateway URLs must point at the local SMS gateway stub");
+        }
+    }
+
+    private static boolean isLoopbackUrl(String url) {
+        try {
+            return StringUtils.hasText(url) && isLoopback(URI.create(url).getHost());
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isLoopback(String host) {
+        if (!StringUtils.hasText(host)) {
+            return false;
+        }
+        try {
+            return InetAddress.getByName(host).isLoopbackAddress();
+        } catch (UnknownHostException ex) {
+            return false;
+        }
+    }
+
+    private static List<Kind> plan(LoadTestRequest request, int reminderPages) {
+        List<Kind> operations = new ArrayList<>(request.bills() + request.receipts() + reminderPages);
+        operations.addAll(Collections.nCopies(request.bills(), Kind.BILL));
+        operations.addAll(Collections.nCopies(request.receipts(), Kind.RECEIPT));
+        operations.addAll(Collections.nCopies(reminderPages, Kind.REMINDER));
+        Collections.shuffle(operations, new Random(42));
+        return operations;
+    }
+
+    /**
+     * Runs every operation from {@code producers} threads, each started no earlier than
+     * its slot in a fixed-rate schedule, and records how long each took to enqueue.
+     */
+    private void drive(LoadTestRequest request, String tag, List<Kind> operations, long[] latencies,
+                       AtomicInteger failures, long started) {
+        double slotNanos = 1_000_000_000.0 / request.ratePerSecond();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService producers = Executors.newFixedThreadPool(request.producers());
+        List<CompletableFuture<Void>> workers = new ArrayList<>(request.producers());
+        for (int worker = 0; worker < request.producers(); worker++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < operations.size()) {
+                    long due = started + (long) (index * slotNanos);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    long begin = System.nanoTime();
+                    try {
+                        execute(operations.get(index), tag, index, request);
+                    } catch (RuntimeException ex) {
+                        failures.incrementAndGet();
+                        log.debug("Load test operation {} failed: {}", index, ex.getMessage());
+                    }
+                    latencies[index] = System.nanoTime() - begin;
+                }
+            }, producers));
+        }
+        try {
+            CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            producers.shutdown();
+        }
+    }
+
+    private void execute(Kind kind, String tag, int index, LoadTestRequest request) {
+        switch (kind) {
+            case BILL -> transactionTemplate.executeWithoutResult(status ->
+                notificationService.sendBillGeneratedEmail(syntheticBill(tag, index)));
+            case RECEIPT -> transactionTemplate.executeWithoutResult(status ->
+                notificationService.sendPaymentReceiptEmail(syntheticPayment(tag, index)));
+            case REMINDER -> transactionTemplate.executeWithoutResult(status ->
+                notificationService.sendBillReminders(syntheticReminderPage(tag, index, request), request.overdue(),
+                    notificationPlanner.unrestricted()));
+        }
+    }
+
+    private Bill syntheticBill(String tag, int index) {
+        Bill bill = new Bill();
+        bill.setAccount(syntheticAccount(tag, index));
+        bill.setInvoiceNumber(tag + "-B" + index);
+        bill.setBillDate(LocalDate.now());
+        bill.setDueDate(LocalDate.now().plusDays(15));
+        bill.setNetPayable(BigDecimal.valueOf(500 + index % 2500, 0).setScale(2));
+        return bill;
+    }
+
+    private Payment syntheticPayment(String tag, int index) {
+        Payment payment = new Payment();
+        Bill bill = syntheticBill(tag, index);
+        payment.setBill(bill);
+        payment.setAccount(bill.getAccount());
+        payment.setPaymentReference(tag + "-P" + index);
+        payment.setPaymentDate(LocalDateTime.now());
+        payment.setPaymentAmount(bill.getNetPayable());
+        payment.setConvenienceFee(BigDecimal.ZERO.setScale(2));
+        payment.setNetAmount(bill.getNetPayable());
+        return payment;
+    }
+
+    private static Account syntheticAccount(String tag, int index) {
+        Customer customer = new Customer();
+        customer.setCustomerNumber(tag + "-C" + index);
+        customer.setFullName("Load Test Customer " + index);
+        customer.setEmail("customer" + index + "@loadtest.invalid");
+        customer.setPhoneNumber(syntheticPhone(index));
+        Account account = new Account();
+        account.setCustomer(customer);
+        account.setAccountNumber(tag + "-A" + index);
+        return account;
+    }
+
+    /**
+     * One page of reminder bills, shaped like a real run's page: consecutive customers,
+     * each with between one and {@code maxBillsPerCustomer} bills.
+     */
+    private List<ReminderBillProjection> syntheticReminderPage(String tag, int index, LoadTestRequest request) {
+        Random random = new Random(index);
+        int maxBills = Math.max(1, request.maxBillsPerCustomer());
+        List<ReminderBillProjection> page = new ArrayList<>();
+        for (int c = 0; c < REMINDER_PAGE_CUSTOMERS; c++) {
+            long customerId = (long) index * REMINDER_PAGE_CUSTOMERS + c;
+            int bills = 1 + random.nextInt(maxBills);
+            for (int b = 0; b < bills; b++) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("billId", customerId * 16 + b);
+                row.put("invoiceNumber", tag + "-R" + customerId + "-" + b);
+                row.put("dueDate", request.overdue() ? LocalDate.now().minusDays(5 + b) : LocalDate.now().plusDays(2));
+                row.put("amountDue", BigDecimal.valueOf(300 + random.nextInt(3000), 0).setScale(2));
+                row.put("accountNumber", tag + "-A" + customerId + "-" + b);
+                row.put("customerId", customerId);
+                row.put("customerNumber", tag + "-C" + customerId);
+                row.put("customerName", "Load Test Customer " + customerId);
+                row.put("email", "customer" + customerId + "@loadtest.invalid");
+                row.put("phoneNumber", syntheticPhone(customerId));
+                page.add(projectionFactory.createProjection(ReminderBillProjection.class, row));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Ten digits that can never be dialled: subscriber numbers do not start with zero.
+     */
+    private static String syntheticPhone(long index) {
+        return String.format("000%07d", index % 10_000_000);
+    }
+
+    private static List<String> referencePrefixes(String tag, boolean overdue) {
+        String reminder = overdue ? "overdue:" : "reminder:";
+        return List.of("bill:" + tag, "payment:" + tag, reminder + tag, reminder + "customer:" + tag);
+    }
+
+    private void awaitDrain(List<String> prefixes, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            long unfinished = 0;
+            for (String prefix : prefixes) {
+                unfinished += outboxRepository.countByReferenceStartingWithAndStatusIn(prefix, UNFINISHED);
+            }
+            if (unfinished == 0) {
+                return;
+            }
+            LockSupport.parkNanos(Duration.ofMillis(500).toNanos());
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private LoadTestReport report(String tag, List<Kind> operations, long[] latencies, int failures, long enqueueNanos,
+                                  List<String> prefixes, long drainMillis, long[] sinkBefore) {
+        Map<String, LoadTestReport.Percentiles> enqueueLatency = new LinkedHashMap<>();
+        for (Kind kind : Kind.values()) {
+            long[] millis = new long[operations.size()];
+            int count = 0;
+            for (int i = 0; i < operations.size(); i++) {
+                if (operations.get(i) == kind) {
+                    millis[count++] = latencies[i] / 1_000_000;
+                }
+            }
+            if (count > 0) {
+                enqueueLatency.put(kind.name(), percentiles(Arrays.copyOf(millis, count)));
+            }
+        }
+
+        List<OutboxOutcomeProjection> outcomes = new ArrayList<>();
+        for (String prefix : prefixes) {
+            outcomes.addAll(outboxRepository.findByReferenceStartingWith(prefix));
+        }
+        int sent = 0;
+        int failed = 0;
+        int retried = 0;
+        long totalRetries = 0;
+        long[] delivery = new long[outcomes.size()];
+        for (OutboxOutcomeProjection outcome : outcomes) {
+            if (outcome.getAttempts() > 1) {
+                retried++;
+                totalRetries += outcome.getAttempts() - 1;
+            }
+            if (outcome.getStatus() == NotificationOutboxMessage.Status.SENT) {
+                // created_at and sent_at are second-precision columns
+                delivery[sent++] = Duration.between(outcome.getCreatedAt(), outcome.getSentAt()).toMillis();
+            } else if (outcome.getStatus() == NotificationOutboxMessage.Status.FAILED) {
+                failed++;
+            }
+        }
+
+        long enqueueMillis = Math.max(1, enqueueNanos / 1_000_000);
+        long[] sinkAfter = sinkCounters();
+        return new LoadTestReport(tag,
+            operations.size(),
+            failures,
+            enqueueMillis,
+            operations.size() * 1000.0 / enqueueMillis,
+            enqueueLatency,
+            outcomes.size(),
+            sent,
+            failed,
+            outcomes.size() - sent - failed,
+            retried,
+            totalRetries,
+            drainMillis,
+            sent * 1000.0 / (enqueueMillis + drainMillis),
+            percentiles(Arrays.copyOf(delivery, sent)),
+            smtpSink.getIfAvailable() == null ? null
+                : new LoadTestReport.SinkCounters(sinkAfter[0] - sinkBefore[0], sinkAfter[1] - sinkBefore[1], 0),
+            smsStub.getIfAvailable() == null ? null
+                : new LoadTestReport.SinkCounters(sinkAfter[2] - sinkBefore[2], sinkAfter[3] - sinkBefore[3],
+                    sinkAfter[4] - sinkBefore[4]));
+    }
+
+    private long[] sinkCounters() {
+        long[] counters = new long[5];
+        SmtpSinkServer sink = smtpSink.getIfAvailable();
+        if (sink != null) {
+            counters[0] = sink.messagesAccepted();
+            counters[1] = sink.messagesRejected();
+        }
+        SmsGatewayStub stub = smsStub.getIfAvailable();
+        if (stub != null) {
+            counters[2] = stub.messagesAccepted();
+            counters[3] = stub.requestsFailed();
+            counters[4] = stub.requestsThrottled();
+        }
+        return counters;
+    }
+
+    private static LoadTestReport.Percentiles percentiles(long[] values) {
+        if (values.length == 0) {
+            return new LoadTestReport.Percentiles(0, 0, 0, 0);
+        }
+        Arrays.sort(values);
+        return new LoadTestReport.Percentiles(rank(values, 0.50), rank(values, 0.90), rank(values, 0.99),
+            values[values.length - 1]);
+    }
+
+    private static long rank(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
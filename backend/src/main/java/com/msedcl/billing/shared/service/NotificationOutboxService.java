@@ -0,0 +1,71 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.shared.entity.NotificationOutboxMessage;
+import com.msedcl.billing.shared.repository.NotificationOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Writes notifications to the outbox as part of the caller's transaction: a rolled
+ * back bill run or payment sends nothing, and a committed one hands its messages to
+ * {@link NotificationDispatcher} once the commit is done.
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationOutboxService {
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationDispatcher dispatcher;
+
+    @Transactional
+    public void enqueueEmail(String to, String subject, String htmlBody, String reference) {
+        enqueue(NotificationOutboxMessage.Channel.EMAIL, to, subject, htmlBody, reference, null);
+    }
+
+    /**
+     * Queues an email that carries the PDF of {@code attachmentBillId}, attached by the
+     * dispatcher when the message is sent.
+     */
+    @Transactional
+    public void enqueueEmail(String to, String subject, String htmlBody, String reference, Long attachmentBillId) {
+        enqueue(NotificationOutboxMessage.Channel.EMAIL, to, subject, htmlBody, reference, attachmentBillId);
+    }
+
+    @Transactional
+    public void enqueueSms(String phoneNumber, String message, String reference) {
+        enqueue(NotificationOutboxMessage.Channel.SMS, phoneNumber, null, message, reference, null);
+    }
+
+    private void enqueue(NotificationOutboxMessage.Channel channel, String recipient, String subject, String body,
+                         String reference, Long attachmentBillId) {
+        NotificationOutboxMessage message = new NotificationOutboxMessage();
+        message.setChannel(channel);
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(body);
+        message.setReference(reference);
+        message.setAttachmentBillId(attachmentBillId);
+        message.setNextAttemptAt(LocalDateTime.now());
+        outboxRepository.save(message);
+
+        // One wake-up per transaction is enough however many messages it wrote
+        if (TransactionSynchronizationManager.getResourceMap().containsKey(dispatcher)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(dispatcher, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(dispatcher);
+                if (status == STATUS_COMMITTED) {
+                    dispatcher.wake();
+                }
+            }
+        });
+    }
+}
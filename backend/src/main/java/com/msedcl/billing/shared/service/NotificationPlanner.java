@@ -0,0 +1,134 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.shared.entity.NotificationOutboxMessage.Channel;
+import com.msedcl.billing.shared.entity.NotificationSendHistory;
+import com.msedcl.billing.shared.repository.NotificationSendHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies reminder frequency limits per customer and channel, using the one-row-per-
+ * channel send history: after a digest the channel stays quiet for
+ * {@code min-interval-hours}, and at most {@code max-per-window} digests go out per
+ * {@code window-days} window.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationPlanner {
+
+    private static final String RECORD_SENT =
+        "INSERT INTO notification_send_history (customer_id, channel, last_sent_at, window_start, window_count) " +
+        "VALUES (?, ?, ?, ?, 1) ON DUPLICATE KEY UPDATE " +
+        // MySQL applies SET assignments left to right, so the count still sees the old window start
+        "window_count = CASE WHEN window_start <= ? THEN 1 ELSE window_count + 1 END, " +
+        "window_start = CASE WHEN window_start <= ? THEN VALUES(window_start) ELSE window_start END, " +
+        "last_sent_at = VALUES(last_sent_at)";
+
+    private final NotificationSendHistoryRepository historyRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${notifications.digest.window-days:7}")
+    private int windowDays;
+
+    @Value("${notifications.digest.email.min-interval-hours:44}")
+    private long emailMinIntervalHours;
+
+    @Value("${notifications.digest.email.max-per-window:4}")
+    private int emailMaxPerWindow;
+
+    @Value("${notifications.digest.sms.min-interval-hours:68}")
+    private long smsMinIntervalHours;
+
+    @Value("${notifications.digest.sms.max-per-window:2}")
+    private int smsMaxPerWindow;
+
+    /**
+     * Loads the send history of {@code customerIds}. When {@code resumeSince} is set the
+     * caller is replaying part of a run, and a channel already sent to since then is
+     * treated as closed regardless of the configured limits.
+     */
+    public Plan plan(Collection<Long> customerIds, LocalDateTime now, LocalDateTime resumeSince) {
+        Map<Long, Map<Channel, NotificationSendHistory>> history = new HashMap<>();
+        if (!customerIds.isEmpty()) {
+            for (NotificationSendHistory row : historyRepository.findByCustomerIdIn(customerIds)) {
+                history.computeIfAbsent(row.getCustomerId(), id -> new EnumMap<>(Channel.class)).put(row.getChannel(), row);
+            }
+        }
+        return new Plan(history, now, resumeSince);
+    }
+
+    /**
+     * A plan that ignores the send history and allows every channel, for synthetic
+     * traffic that must neither be limited by nor recorded in it.
+     */
+    public Plan unrestricted() {
+        return new Plan(Map.of(), LocalDateTime.now(), null);
+    }
+
+    /**
+     * Writes the digests the plan recorded as sent, in the caller's transaction.
+     */
+    public void recordSent(Plan plan) {
+        if (plan.sent.isEmpty()) {
+            return;
+        }
+        LocalDate today = plan.now.toLocalDate();
+        Date expiredOn = Date.valueOf(today.minusDays(windowDays));
+        List<Object[]> rows = new ArrayList<>(plan.sent.size());
+        for (Sent sent : plan.sent) {
+            rows.add(new Object[]{sent.customerId, sent.channel.name(), Timestamp.valueOf(plan.now), Date.valueOf(today),
+                expiredOn, expiredOn});
+        }
+        jdbcTemplate.batchUpdate(RECORD_SENT, rows);
+    }
+
+    public final class Plan {
+        private final Map<Long, Map<Channel, NotificationSendHistory>> history;
+        private final LocalDateTime now;
+        private final LocalDateTime resumeSince;
+        private final List<Sent> sent = new ArrayList<>();
+
+        private Plan(Map<Long, Map<Channel, NotificationSendHistory>> history, LocalDateTime now, LocalDateTime resumeSince) {
+            this.history = history;
+            this.now = now;
+            this.resumeSince = resumeSince;
+        }
+
+        public boolean allows(Long customerId, Channel channel) {
+            NotificationSendHistory last = history.getOrDefault(customerId, Map.of()).get(channel);
+            if (last == null) {
+                return true;
+            }
+            if (resumeSince != null && !last.getLastSentAt().isBefore(resumeSince)) {
+                return false;
+            }
+            long minIntervalHours = channel == Channel.SMS ? smsMinIntervalHours : emailMinIntervalHours;
+            if (last.getLastSentAt().isAfter(now.minusHours(minIntervalHours))) {
+                return false;
+            }
+            boolean windowExpired = !last.getWindowStart().isAfter(now.toLocalDate().minusDays(windowDays));
+            int maxPerWindow = channel == Channel.SMS ? smsMaxPerWindow : emailMaxPerWindow;
+            return windowExpired || last.getWindowCount() < maxPerWindow;
+        }
+
+        public void markSent(Long customerId, Channel channel) {
+            sent.add(new Sent(customerId, channel));
+        }
+    }
+
+    private record Sent(Long customerId, Channel channel) {
+    }
+}
@@ -1,38 +1,52 @@
 package com.msedcl.billing.shared.service;
 
+import com.msedcl.billing.admin.billing.dto.ReminderBillProjection;
 import com.msedcl.billing.shared.entity.Bill;
+import com.msedcl.billing.shared.dto.ReminderDigestResult;
 import com.msedcl.billing.shared.entity.Customer;
+import com.msedcl.billing.shared.entity.NotificationOutboxMessage;
 import com.msedcl.billing.shared.entity.Payment;
+import com.msedcl.billing.shared.service.template.HtmlEscaper;
+import com.msedcl.billing.shared.service.template.TemplateField;
 import com.msedcl.billing.shared.service.template.TemplateRenderer;
-import jakarta.mail.internet.MimeMessage;
+import com.msedcl.billing.shared.service.template.TemplateValues;
+import com.msedcl.billing.user.payment.dto.AccountPaymentReceipt;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.MailException;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.nio.charset.StandardCharsets;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * Renders customer notifications and queues them in the notification outbox; nothing
+ * here talks to SMTP or the SMS gateway. Delivery is left to {@link NotificationDispatcher}.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
 
-    private final JavaMailSender mailSender;
     private final TemplateRenderer templateRenderer;
     private final SmsService smsService;
-    @Value("${notifications.email.from:no-reply@vit.edu}")
-    private String fromAddress;
+    private final NotificationOutboxService outboxService;
+    private final NotificationPlanner notificationPlanner;
+
+    @Value("${notifications.email.attach-bill-pdf:false}")
+    private boolean attachBillPdf;
 
-    @Async
     public void sendBillGeneratedEmail(Bill bill) {
         Customer customer = bill.getAccount().getCustomer();
         if (!StringUtils.hasText(customer.getEmail())) {
@@ -40,21 +54,23 @@ public class NotificationService {
             return;
         }
 
-        Map<String, Object> model = Map.of(
-            "customerName", customer.getFullName(),
-            "accountNumber", bill.getAccount().getAccountNumber(),
-            "invoiceNumber", bill.getInvoiceNumber(),
-            "billDate", DATE_FORMATTER.format(bill.getBillDate()),
-            "dueDate", DATE_FORMATTER.format(bill.getDueDate()),
-            "netPayable", bill.getNetPayable(),
-            "pdfPath", bill.getPdfPath()
-        );
+        TemplateValues model = new TemplateValues()
+            .set(TemplateField.CUSTOMER_NAME, customer.getFullName())
+            .set(TemplateField.ACCOUNT_NUMBER, bill.getAccount().getAccountNumber())
+            .set(TemplateField.INVOICE_NUMBER, bill.getInvoiceNumber())
+            .set(TemplateField.BILL_DATE, DATE_FORMATTER.format(bill.getBillDate()))
+            .set(TemplateField.DUE_DATE, DATE_FORMATTER.format(bill.getDueDate()))
+            .set(TemplateField.NET_PAYABLE, bill.getNetPayable())
+            .set(TemplateField.PDF_PATH, bill.getPdfPath());
 
-        sendEmail(customer.getEmail(),
+        String reference = "bill:" + bill.getInvoiceNumber();
+        outboxService.enqueueEmail(customer.getEmail(),
             "Your electricity bill is ready - " + bill.getInvoiceNumber(),
-            templateRenderer.render("bill-generated", model));
+            templateRenderer.render("bill-generated", model),
+            reference,
+            attachBillPdf ? bill.getBillId() : null);
 
-        smsService.sendSms(
+        queueSms(reference,
             customer.getPhoneNumber(),
             String.format(
                 "VIT Billing: Invoice %s generated. Amount ₹%s due by %s.",
@@ -65,7 +81,6 @@ public class NotificationService {
         );
     }
 
-    @Async
     public void sendPaymentReceiptEmail(Payment payment) {
         Customer customer = payment.getAccount().getCustomer();
         if (!StringUtils.hasText(customer.getEmail())) {
@@ -73,22 +88,23 @@ public class NotificationService {
             return;
         }
 
-        Map<String, Object> model = Map.of(
-            "customerName", customer.getFullName(),
-            "accountNumber", payment.getAccount().getAccountNumber(),
-            "invoiceNumber", payment.getBill().getInvoiceNumber(),
-            "paymentReference", payment.getPaymentReference(),
-            "paymentDate", payment.getPaymentDate().format(DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm")),
-            "paymentAmount", payment.getPaymentAmount(),
-            "convenienceFee", payment.getConvenienceFee(),
-            "netAmount", payment.getNetAmount()
-        );
+        TemplateValues model = new TemplateValues()
+            .set(TemplateField.CUSTOMER_NAME, customer.getFullName())
+            .set(TemplateField.ACCOUNT_NUMBER, payment.getAccount().getAccountNumber())
+            .set(TemplateField.INVOICE_NUMBER, payment.getBill().getInvoiceNumber())
+            .set(TemplateField.PAYMENT_REFERENCE, payment.getPaymentReference())
+            .set(TemplateField.PAYMENT_DATE, payment.getPaymentDate().format(DATE_TIME_FORMATTER))
+            .set(TemplateField.PAYMENT_AMOUNT, payment.getPaymentAmount())
+            .set(TemplateField.CONVENIENCE_FEE, payment.getConvenienceFee())
+            .set(TemplateField.NET_AMOUNT, payment.getNetAmount());
 
-        sendEmail(customer.getEmail(),
+        String reference = "payment:" + payment.getPaymentReference();
+        outboxService.enqueueEmail(customer.getEmail(),
             "Payment received - " + payment.getPaymentReference(),
-            templateRenderer.render("payment-receipt", model));
+            templateRenderer.render("payment-receipt", model),
+            reference);
 
-        smsService.sendSms(
+        queueSms(reference,
             customer.getPhoneNumber(),
             String.format(
                 "VIT Billing: Payment %s of ₹%s received. Thank you!",
@@ -98,62 +114,216 @@ public class NotificationService {
         );
     }
 
-    @Async
-    public void sendBillReminderEmail(Bill bill, boolean overdue) {
-        Customer customer = bill.getAccount().getCustomer();
+    public void sendAccountPaymentReceiptEmail(Customer customer, AccountPaymentReceipt receipt) {
         if (!StringUtils.hasText(customer.getEmail())) {
-            log.info("Skipping reminder email for customer {} due to missing email", customer.getCustomerNumber());
+            log.info("Skipping receipt email for customer {} due to missing email", customer.getCustomerNumber());
             return;
         }
 
-        Map<String, Object> model = Map.of(
-            "customerName", customer.getFullName(),
-            "accountNumber", bill.getAccount().getAccountNumber(),
-            "invoiceNumber", bill.getInvoiceNumber(),
-            "dueDate", DATE_FORMATTER.format(bill.getDueDate()),
-            "netPayable", bill.getNetPayable()
-        );
+        StringBuilder allocations = new StringBuilder();
+        for (AccountPaymentReceipt.Allocation allocation : receipt.allocations()) {
+            allocations.append("<li>Invoice ").append(HtmlEscaper.escape(allocation.invoiceNumber()))
+                .append(": Rs ").append(allocation.amountApplied())
+                .append(" (balance Rs ").append(allocation.balanceAfter()).append(")</li>");
+        }
+        if (receipt.creditedToWallet().compareTo(java.math.BigDecimal.ZERO) > 0) {
+            allocations.append("<li>Advance wallet: Rs ").append(receipt.creditedToWallet()).append("</li>");
+        }
 
-        String template = overdue ? "bill-overdue" : "bill-reminder";
-        String subject = overdue
-            ? "Overdue electricity bill - " + bill.getInvoiceNumber()
-            : "Upcoming bill due - " + bill.getInvoiceNumber();
+        TemplateValues model = new TemplateValues()
+            .set(TemplateField.CUSTOMER_NAME, customer.getFullName())
+            .set(TemplateField.ACCOUNT_NUMBER, receipt.accountNumber())
+            .set(TemplateField.RECEIPT_NUMBER, receipt.receiptNumber())
+            .set(TemplateField.PAYMENT_DATE, receipt.paymentDate().format(DATE_TIME_FORMATTER))
+            .set(TemplateField.PAYMENT_AMOUNT, receipt.paymentAmount())
+            .set(TemplateField.CONVENIENCE_FEE, receipt.convenienceFee())
+            .set(TemplateField.NET_AMOUNT, receipt.netAmount())
+            .set(TemplateField.ALLOCATIONS, allocations);
 
-        sendEmail(customer.getEmail(), subject, templateRenderer.render(template, model));
+        String reference = "receipt:" + receipt.receiptNumber();
+        outboxService.enqueueEmail(customer.getEmail(),
+            "Payment received - " + receipt.receiptNumber(),
+            templateRenderer.render("account-payment-receipt", model),
+            reference);
 
-        smsService.sendSms(
+        queueSms(reference,
             customer.getPhoneNumber(),
-            overdue
-                ? String.format(
-                    "VIT Billing: Invoice %s is overdue. Please pay ₹%s immediately.",
-                    bill.getInvoiceNumber(),
-                    bill.getNetPayable().setScale(2, java.math.RoundingMode.HALF_UP)
-                )
-                : String.format(
-                    "VIT Billing: Invoice %s due on %s. Amount ₹%s.",
-                    bill.getInvoiceNumber(),
-                    DATE_FORMATTER.format(bill.getDueDate()),
-                    bill.getNetPayable().setScale(2, java.math.RoundingMode.HALF_UP)
-                )
+            String.format(
+                "VIT Billing: Payment %s of ₹%s received for %d bill(s). Thank you!",
+                receipt.receiptNumber(),
+                receipt.netAmount().setScale(2, java.math.RoundingMode.HALF_UP),
+                receipt.allocations().size()
+            )
         );
     }
 
-    public void sendEmail(String to, String subject, String htmlContent) {
-        try {
-            MimeMessage mimeMessage = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
-                StandardCharsets.UTF_8.name());
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true);
-            if (StringUtils.hasText(fromAddress)) {
-                helper.setFrom(fromAddress);
+    /**
+     * Queues reminders for a page of bills ordered by customer: one message per customer
+     * and channel, subject to {@link NotificationPlanner}'s quiet periods and caps. A
+     * customer with a single open bill gets the plain reminder, anyone with more gets a
+     * digest listing all of them. When {@code resumeSince} is set the page is being
+     * replayed after a crash and customers already sent to since then are skipped.
+     */
+    public ReminderDigestResult sendBillReminders(List<ReminderBillProjection> bills, boolean overdue,
+                                                  LocalDateTime resumeSince) {
+        Set<Long> customerIds = new LinkedHashSet<>();
+        for (ReminderBillProjection bill : bills) {
+            customerIds.add(bill.getCustomerId());
+        }
+        NotificationPlanner.Plan plan = notificationPlanner.plan(customerIds, LocalDateTime.now(), resumeSince);
+        ReminderDigestResult result = sendBillReminders(bills, overdue, plan);
+        notificationPlanner.recordSent(plan);
+        return result;
+    }
+
+    /**
+     * Queues reminders under an explicit plan without recording them in the send
+     * history; the caller decides whether to {@link NotificationPlanner#recordSent}.
+     */
+    public ReminderDigestResult sendBillReminders(List<ReminderBillProjection> bills, boolean overdue,
+                                                  NotificationPlanner.Plan plan) {
+        List<List<ReminderBillProjection>> customers = groupByCustomer(bills);
+        boolean smsEnabled = smsService.isEnabled();
+
+        List<List<ReminderBillProjection>> singleEmails = new ArrayList<>();
+        List<List<ReminderBillProjection>> digestEmails = new ArrayList<>();
+        int billsCovered = 0;
+        int messagesQueued = 0;
+        int messagesSuppressed = 0;
+        for (List<ReminderBillProjection> group : customers) {
+            ReminderBillProjection first = group.get(0);
+            boolean reached = false;
+            if (StringUtils.hasText(first.getEmail())) {
+                if (plan.allows(first.getCustomerId(), NotificationOutboxMessage.Channel.EMAIL)) {
+                    (group.size() == 1 ? singleEmails : digestEmails).add(group);
+                    plan.markSent(first.getCustomerId(), NotificationOutboxMessage.Channel.EMAIL);
+                    reached = true;
+                    messagesQueued++;
+                } else {
+                    messagesSuppressed++;
+                }
+            }
+            if (smsEnabled && StringUtils.hasText(first.getPhoneNumber())) {
+                if (plan.allows(first.getCustomerId(), NotificationOutboxMessage.Channel.SMS)) {
+                    outboxService.enqueueSms(first.getPhoneNumber(), reminderSms(group, overdue), reminderReference(group, overdue));
+                    plan.markSent(first.getCustomerId(), NotificationOutboxMessage.Channel.SMS);
+                    reached = true;
+                    messagesQueued++;
+                } else {
+                    messagesSuppressed++;
+                }
+            }
+            if (reached) {
+                billsCovered += group.size();
+            }
+        }
+
+        String template = overdue ? "bill-overdue" : "bill-reminder";
+        templateRenderer.renderAll(template, singleEmails,
+            (group, model) -> {
+                ReminderBillProjection bill = group.get(0);
+                model.set(TemplateField.CUSTOMER_NAME, bill.getCustomerName())
+                    .set(TemplateField.ACCOUNT_NUMBER, bill.getAccountNumber())
+                    .set(TemplateField.INVOICE_NUMBER, bill.getInvoiceNumber())
+                    .set(TemplateField.DUE_DATE, DATE_FORMATTER.format(bill.getDueDate()))
+                    .set(TemplateField.NET_PAYABLE, bill.getAmountDue());
+            },
+            (group, html) -> queueReminderEmail(group, overdue, html));
+        templateRenderer.renderAll(template + "-digest", digestEmails,
+            (group, model) -> model
+                .set(TemplateField.CUSTOMER_NAME, group.get(0).getCustomerName())
+                .set(TemplateField.BILL_COUNT, group.size())
+                .set(TemplateField.TOTAL_DUE, totalDue(group))
+                .set(TemplateField.BILL_LINES, billLines(group)),
+            (group, html) -> queueReminderEmail(group, overdue, html));
+        return new ReminderDigestResult(billsCovered, messagesQueued, messagesSuppressed);
+    }
+
+    private static List<List<ReminderBillProjection>> groupByCustomer(List<ReminderBillProjection> bills) {
+        List<List<ReminderBillProjection>> groups = new ArrayList<>();
+        List<ReminderBillProjection> current = null;
+        for (ReminderBillProjection bill : bills) {
+            if (current == null || !current.get(0).getCustomerId().equals(bill.getCustomerId())) {
+                current = new ArrayList<>(2);
+                groups.add(current);
+            }
+            current.add(bill);
+        }
+        return groups;
+    }
+
+    private void queueReminderEmail(List<ReminderBillProjection> group, boolean overdue, String html) {
+        ReminderBillProjection first = group.get(0);
+        String subject;
+        if (group.size() == 1) {
+            subject = overdue
+                ? "Overdue electricity bill - " + first.getInvoiceNumber()
+                : "Upcoming bill due - " + first.getInvoiceNumber();
+        } else {
+            subject = overdue
+                ? "Overdue electricity bills - " + group.size() + " invoices"
+                : "Upcoming bills due - " + group.size() + " invoices";
+        }
+        outboxService.enqueueEmail(first.getEmail(), subject, html, reminderReference(group, overdue));
+    }
+
+    private static String reminderReference(List<ReminderBillProjection> group, boolean overdue) {
+        String prefix = overdue ? "overdue:" : "reminder:";
+        return group.size() == 1
+            ? prefix + group.get(0).getInvoiceNumber()
+            : prefix + "customer:" + group.get(0).getCustomerNumber();
+    }
+
+    private static String reminderSms(List<ReminderBillProjection> group, boolean overdue) {
+        ReminderBillProjection first = group.get(0);
+        if (group.size() == 1) {
+            return overdue
+                ? String.format("VIT Billing: Invoice %s is overdue. Please pay ₹%s immediately.",
+                    first.getInvoiceNumber(), first.getAmountDue().setScale(2, RoundingMode.HALF_UP))
+                : String.format("VIT Billing: Invoice %s due on %s. Amount ₹%s.",
+                    first.getInvoiceNumber(), DATE_FORMATTER.format(first.getDueDate()),
+                    first.getAmountDue().setScale(2, RoundingMode.HALF_UP));
+        }
+        LocalDate earliestDue = first.getDueDate();
+        for (ReminderBillProjection bill : group) {
+            if (bill.getDueDate().isBefore(earliestDue)) {
+                earliestDue = bill.getDueDate();
             }
-            mailSender.send(mimeMessage);
-        } catch (MailException ex) {
-            log.error("Failed to send email to {}", to, ex);
-        } catch (Exception ex) {
-            log.error("Unexpected error while sending email to {}", to, ex);
+        }
+        return overdue
+            ? String.format("VIT Billing: %d invoices are overdue, total ₹%s. Please pay immediately.",
+                group.size(), totalDue(group))
+            : String.format("VIT Billing: %d invoices due from %s, total ₹%s.",
+                group.size(), DATE_FORMATTER.format(earliestDue), totalDue(group));
+    }
+
+    private static BigDecimal totalDue(List<ReminderBillProjection> group) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (ReminderBillProjection bill : group) {
+            total = total.add(bill.getAmountDue());
+        }
+        return total.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static String billLines(List<ReminderBillProjection> group) {
+        StringBuilder lines = new StringBuilder(group.size() * 96);
+        for (ReminderBillProjection bill : group) {
+            lines.append("<li>Invoice <strong>").append(HtmlEscaper.escape(bill.getInvoiceNumber()))
+                .append("</strong> (account ").append(HtmlEscaper.escape(bill.getAccountNumber()))
+                .append(") - Rs ").append(bill.getAmountDue().setScale(2, RoundingMode.HALF_UP))
+                .append(", due ").append(DATE_FORMATTER.format(bill.getDueDate()))
+                .append("</li>");
+        }
+        return lines.toString();
+    }
+
+    public void sendEmail(String to, String subject, String htmlContent) {
+        outboxService.enqueueEmail(to, subject, htmlContent, null);
+    }
+
+    private void queueSms(String reference, String phoneNumber, String message) {
+        if (smsService.isEnabled() && StringUtils.hasText(phoneNumber)) {
+            outboxService.enqueueSms(phoneNumber, message, reference);
         }
     }
 }
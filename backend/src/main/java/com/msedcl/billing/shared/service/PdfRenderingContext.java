@@ -0,0 +1,117 @@
+package com.msedcl.billing.shared.service;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.layout.Style;
+import com.itextpdf.layout.borders.Border;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Image;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Everything about a bill PDF that does not depend on the bill, loaded once and shared
+ * by all rendering threads: the decoded logo and its fitted size, the font program and
+ * the cell and paragraph styles. iText binds fonts and layout elements to the document
+ * they are added to, so those are stamped out per document from the shared pieces,
+ * which are never modified after construction.
+ */
+final class PdfRenderingContext {
+
+    private static final String BRAND_NAME = "VIT EnergySuite";
+    private static final String TITLE = "Official Electricity Bill";
+    private static final String TAGLINE = "Trusted energy insights for campuses & communities";
+    private static final String FOOTER = "Thank you for choosing VIT EnergySuite.";
+
+    private final ImageData logo;
+    private final float logoWidth;
+    private final float logoHeight;
+    private final FontProgram fontProgram;
+
+    private final Style cellStyle = new Style().setPadding(5);
+    private final Style labelCellStyle = new Style().setPadding(5).setBold();
+    private final Style headerCellStyle = new Style()
+        .setBackgroundColor(ColorConstants.LIGHT_GRAY)
+        .setBold()
+        .setPadding(5);
+    private final Style brandStyle = new Style().setFontSize(16).setBold().setMarginBottom(2);
+    private final Style titleStyle = new Style().setFontSize(12).setBold().setMarginBottom(4);
+    private final Style taglineStyle = new Style().setFontSize(9).setItalic().setFontColor(ColorConstants.GRAY);
+    private final Style dueNoticeStyle = new Style().setItalic().setFontSize(10);
+    private final Style footerStyle = new Style().setTextAlignment(TextAlignment.CENTER).setMarginTop(20).setFontSize(10);
+
+    PdfRenderingContext(ImageData logo, float logoMaxWidth) {
+        this.logo = logo;
+        if (logo != null && logo.getWidth() > logoMaxWidth) {
+            // Same fit as Image.scaleToFit(max, max) on the unscaled image
+            float scale = Math.min(logoMaxWidth / logo.getWidth(), logoMaxWidth / logo.getHeight());
+            this.logoWidth = logo.getWidth() * scale;
+            this.logoHeight = logo.getHeight() * scale;
+        } else {
+            this.logoWidth = logo != null ? logo.getWidth() : 0;
+            this.logoHeight = logo != null ? logo.getHeight() : 0;
+        }
+        try {
+            this.fontProgram = FontProgramFactory.createFont(StandardFonts.HELVETICA);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to load the standard PDF font", ex);
+        }
+    }
+
+    /**
+     * A font for one document; creating it from the preloaded program skips the lookup
+     * iText would otherwise do for each document's default font.
+     */
+    PdfFont newFont() {
+        return PdfFontFactory.createFont(fontProgram, PdfEncodings.WINANSI);
+    }
+
+    Table newHeader() {
+        Table header = new Table(UnitValue.createPercentArray(new float[]{1, 3}))
+            .useAllAvailableWidth()
+            .setMarginBottom(15);
+
+        Cell logoCell = new Cell().setBorder(Border.NO_BORDER).setTextAlignment(TextAlignment.LEFT);
+        if (logo != null) {
+            Image image = new Image(logo).setAutoScale(false);
+            image.scaleAbsolute(logoWidth, logoHeight);
+            image.setMarginBottom(0);
+            logoCell.add(image);
+        }
+        header.addCell(logoCell);
+
+        Cell textCell = new Cell().setBorder(Border.NO_BORDER).setTextAlignment(TextAlignment.RIGHT);
+        textCell.add(new Paragraph(BRAND_NAME).addStyle(brandStyle));
+        textCell.add(new Paragraph(TITLE).addStyle(titleStyle));
+        textCell.add(new Paragraph(TAGLINE).addStyle(taglineStyle));
+        header.addCell(textCell);
+        return header;
+    }
+
+    Paragraph newFooter() {
+        return new Paragraph(FOOTER).addStyle(footerStyle);
+    }
+
+    Paragraph newDueNotice(String dueDate) {
+        return new Paragraph("Pay before " + dueDate + " to avoid late fees.").addStyle(dueNoticeStyle);
+    }
+
+    Cell cell(String content, boolean label) {
+        return new Cell().add(new Paragraph(content)).addStyle(label ? labelCellStyle : cellStyle);
+    }
+
+    Cell headerCell(String content) {
+        return new Cell().add(new Paragraph(content)).addStyle(headerCellStyle);
+    }
+}
@@ -1,19 +1,16 @@
 package com.msedcl.billing.shared.service;
 
-import com.itextpdf.kernel.colors.ColorConstants;
 import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Cell;
-import com.itextpdf.layout.element.Image;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
-import com.itextpdf.layout.borders.Border;
-import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
 import com.msedcl.billing.shared.entity.Bill;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,16 +18,24 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * Renders bill PDFs. The logo, font and styles are loaded once into a shared
+ * {@link PdfRenderingContext}, so a render only lays out the bill's own content. Each
+ * thread renders into its own reused buffer and the file is replaced in one move, so a
+ * failed render never leaves a truncated PDF for the cache to serve.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -43,9 +48,21 @@ public class PdfService {
     private String logoPath;
 
     private static final float LOGO_MAX_WIDTH = 110f;
-    private static final String BRAND_NAME = "VIT EnergySuite";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
+    // Buffers that grew past this (an unusually large bill) are dropped rather than kept per thread
+    private static final int MAX_RETAINED_BUFFER_BYTES = 1 << 20;
+
+    private final ThreadLocal<ByteArrayOutputStream> buffers = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(64 * 1024));
+
+    private PdfRenderingContext context;
+
+    @PostConstruct
+    void loadRenderingContext() {
+        context = new PdfRenderingContext(loadLogo(), LOGO_MAX_WIDTH);
+    }
 
     public String generateBillPdf(Bill bill) {
+        ByteArrayOutputStream buffer = buffers.get();
         try {
             File directory = new File(pdfStoragePath);
             if (!directory.exists()) {
@@ -55,37 +72,13 @@ public class PdfService {
         String fileName = "VIT_ENERGYSUITE_BILL_" + bill.getInvoiceNumber().replace("/", "_") + ".pdf";
             String filePath = pdfStoragePath + fileName;
 
-            PdfWriter writer = new PdfWriter(new FileOutputStream(filePath));
+            buffer.reset();
+            PdfWriter writer = new PdfWriter(buffer);
             PdfDocument pdfDoc = new PdfDocument(writer);
             Document document = new Document(pdfDoc);
+            document.setFont(context.newFont());
 
-        Table headerTable = new Table(UnitValue.createPercentArray(new float[]{1, 3}))
-            .useAllAvailableWidth()
-            .setMarginBottom(15);
-
-        Image logo = loadLogoImage();
-        Cell logoCell = new Cell().setBorder(Border.NO_BORDER).setTextAlignment(TextAlignment.LEFT);
-        if (logo != null) {
-        logoCell.add(logo);
-        }
-        headerTable.addCell(logoCell);
-
-        Cell textCell = new Cell().setBorder(Border.NO_BORDER).setTextAlignment(TextAlignment.RIGHT);
-        textCell.add(new Paragraph(BRAND_NAME)
-            .setFontSize(16)
-            .setBold()
-            .setMarginBottom(2));
-        textCell.add(new Paragraph("Official Electricity Bill")
-            .setFontSize(12)
-            .setBold()
-            .setMarginBottom(4));
-        textCell.add(new Paragraph("Trusted energy insights for campuses & communities")
-            .setFontSize(9)
-            .setItalic()
-            .setFontColor(ColorConstants.GRAY));
-        headerTable.addCell(textCell);
-
-        document.add(headerTable);
+        document.add(context.newHeader());
 
         document.add(new Paragraph("\n"));
 
@@ -176,11 +169,11 @@ public class PdfService {
                 chargesTable.addCell(createCell(formatAmount(bill.getPreviousDue()), false));
             }
 
-            // Show advance payment if available
-            Double advancePayment = bill.getAccount().getCustomer().getAdvancePayment();
-            if (advancePayment != null && advancePayment > 0) {
+            // Show the advance credit applied when the bill was generated
+            BigDecimal advancePayment = bill.getAdvanceApplied();
+            if (advancePayment != null && advancePayment.compareTo(BigDecimal.ZERO) > 0) {
                 chargesTable.addCell(createCell("Advance Payment Credit", false));
-                chargesTable.addCell(createCell("-" + formatAmount(BigDecimal.valueOf(advancePayment)), false));
+                chargesTable.addCell(createCell("-" + formatAmount(advancePayment), false));
             }
 
             chargesTable.addCell(createHeaderCell("NET PAYABLE AMOUNT"));
@@ -189,25 +182,31 @@ public class PdfService {
             document.add(chargesTable);
 
             document.add(new Paragraph("\n"));
-            document.add(new Paragraph("Pay before " + formatDate(bill.getDueDate()) + " to avoid late fees.")
-                    .setItalic()
-                    .setFontSize(10));
+            document.add(context.newDueNotice(formatDate(bill.getDueDate())));
 
-    document.add(new Paragraph("Thank you for choosing VIT EnergySuite.")
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginTop(20)
-                    .setFontSize(10));
+            document.add(context.newFooter());
 
             document.close();
 
+            Path target = Paths.get(filePath);
+            Path partial = target.resolveSibling(fileName + ".part");
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                buffer.writeTo(out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
             return filePath;
 
         } catch (Exception e) {
             throw new RuntimeException("Error generating PDF: " + e.getMessage(), e);
+        } finally {
+            if (buffer.size() > MAX_RETAINED_BUFFER_BYTES) {
+                buffers.remove();
+            }
         }
     }
 
-    private Image loadLogoImage() {
+    private ImageData loadLogo() {
         if (!StringUtils.hasText(logoPath)) {
             return null;
         }
@@ -217,16 +216,8 @@ public class PdfService {
                 log.warn("Logo path '{}' could not be resolved; continuing without logo", logoPath);
                 return null;
             }
-            byte[] bytes = inputStream.readAllBytes();
-            ImageData imageData = ImageDataFactory.create(bytes);
-            Image image = new Image(imageData);
-            image.setAutoScale(false);
-            if (image.getImageScaledWidth() > LOGO_MAX_WIDTH) {
-                image.scaleToFit(LOGO_MAX_WIDTH, LOGO_MAX_WIDTH);
-            }
-            image.setMarginBottom(0);
-            return image;
-        } catch (IOException ex) {
+            return ImageDataFactory.create(inputStream.readAllBytes());
+        } catch (IOException | RuntimeException ex) {
             log.warn("Unable to load logo from '{}': {}", logoPath, ex.getMessage());
             return null;
         }
@@ -250,20 +241,11 @@ public class PdfService {
     }
 
     private Cell createCell(String content, boolean bold) {
-        Cell cell = new Cell().add(new Paragraph(content));
-        if (bold) {
-            cell.setBold();
-        }
-        cell.setPadding(5);
-        return cell;
+        return context.cell(content, bold);
     }
 
     private Cell createHeaderCell(String content) {
-        return new Cell()
-                .add(new Paragraph(content))
-                .setBackgroundColor(ColorConstants.LIGHT_GRAY)
-                .setBold()
-                .setPadding(5);
+        return context.headerCell(content);
     }
 
     private String formatAmount(BigDecimal amount) {
@@ -271,6 +253,6 @@ public class PdfService {
     }
 
     private String formatDate(java.time.LocalDate date) {
-        return date.format(DateTimeFormatter.ofPattern("dd-MMM-yyyy"));
+        return date.format(DATE_FORMATTER);
     }
 }
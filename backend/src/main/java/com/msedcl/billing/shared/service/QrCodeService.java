@@ -10,12 +10,17 @@ import com.msedcl.billing.shared.entity.Bill;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,6 +32,23 @@ public class QrCodeService {
 
     private static final String UPI_ID = "msedcl@upi";
     private static final String PAYEE_NAME = "MSEDCL";
+    private static final int QR_SIZE = 300;
+    private static final Map<EncodeHintType, Object> HINTS = new EnumMap<>(Map.of(
+        EncodeHintType.CHARACTER_SET, "UTF-8",
+        EncodeHintType.MARGIN, 1
+    ));
+
+    // Rendered PNGs keyed by invoice and amount; a balance change simply produces a new key
+    private final Map<String, byte[]> renderedQrCodes;
+
+    public QrCodeService(@Value("${qr.cache.max-entries:4096}") int maxCachedQrCodes) {
+        this.renderedQrCodes = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxCachedQrCodes;
+            }
+        };
+    }
 
     public String generateQrCode(Bill bill) {
         try {
@@ -35,12 +57,13 @@ public class QrCodeService {
                 directory.mkdirs();
             }
 
-            String upiString = buildUpiString(bill);
+            String upiString = buildUpiString(bill.getInvoiceNumber(),
+                Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable()));
 
             String fileName = "QR_" + bill.getInvoiceNumber().replace("/", "_") + ".png";
             String filePath = qrStoragePath + fileName;
 
-            generateQRCodeImage(upiString, 300, 300, filePath);
+            generateQRCodeImage(upiString, QR_SIZE, QR_SIZE, filePath);
 
             return filePath;
 
@@ -49,13 +72,43 @@ public class QrCodeService {
         }
     }
 
-    private String buildUpiString(Bill bill) {
+    /**
+     * PNG bytes of the UPI QR for paying {@code amount} against {@code invoiceNumber},
+     * rendered in memory and served from a bounded LRU cache on repeat views.
+     */
+    public byte[] renderUpiQr(String invoiceNumber, BigDecimal amount) {
+        String amountText = formatAmount(amount);
+        String key = invoiceNumber + "|" + amountText;
+        synchronized (renderedQrCodes) {
+            byte[] cached = renderedQrCodes.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        byte[] png;
+        try {
+            BitMatrix matrix = new QRCodeWriter().encode(buildUpiString(invoiceNumber, amount), BarcodeFormat.QR_CODE, QR_SIZE, QR_SIZE, HINTS);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+            MatrixToImageWriter.writeToStream(matrix, "PNG", out);
+            png = out.toByteArray();
+        } catch (WriterException | IOException e) {
+            throw new RuntimeException("Error generating QR code: " + e.getMessage(), e);
+        }
+
+        synchronized (renderedQrCodes) {
+            renderedQrCodes.put(key, png);
+        }
+        return png;
+    }
+
+    private String buildUpiString(String invoiceNumber, BigDecimal amount) {
         StringBuilder upiString = new StringBuilder();
         upiString.append("upi://pay?");
         upiString.append("pa=").append(UPI_ID);
         upiString.append("&pn=").append(PAYEE_NAME);
-    upiString.append("&am=").append(formatAmount(Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable())));
-        upiString.append("&tn=").append("Bill Payment - ").append(bill.getInvoiceNumber());
+        upiString.append("&am=").append(formatAmount(amount));
+        upiString.append("&tn=").append(URLEncoder.encode("Bill Payment - " + invoiceNumber, StandardCharsets.UTF_8));
         upiString.append("&cu=INR");
 
         return upiString.toString();
@@ -66,17 +119,13 @@ public class QrCodeService {
 
         QRCodeWriter qrCodeWriter = new QRCodeWriter();
 
-        Map<EncodeHintType, Object> hints = new HashMap<>();
-        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-        hints.put(EncodeHintType.MARGIN, 1);
-
-        BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, width, height, hints);
+        BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, width, height, HINTS);
 
         Path path = FileSystems.getDefault().getPath(filePath);
         MatrixToImageWriter.writeToPath(bitMatrix, "PNG", path);
     }
 
     private String formatAmount(BigDecimal amount) {
-        return String.format("%.2f", amount);
+        return amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
     }
 }
@@ -0,0 +1,223 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.admin.audit.service.AuditLogService;
+import com.msedcl.billing.shared.entity.RefreshToken;
+import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.shared.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues and rotates opaque refresh tokens. Each refresh consumes the presented
+ * token and hands out a new one from the same family; presenting a token that was
+ * already rotated is treated as theft and revokes the entire family. The one exception
+ * is a token rotated within the last {@code jwt.refresh-reuse-grace-seconds}: that is
+ * another tab racing the same refresh, and it gets the successor already issued.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final AuditLogService auditLogService;
+
+    @Value("${jwt.refresh-expiration:2592000000}")
+    private long refreshExpirationMillis;
+
+    @Value("${jwt.refresh-reuse-grace-seconds:10}")
+    private long reuseGraceSeconds;
+
+    @Transactional
+    public String issue(User user, String ipAddress) {
+        return persistNewToken(user, UUID.randomUUID().toString(), ipAddress);
+    }
+
+    /**
+     * Consumes {@code rawToken} and returns its successor. Throws
+     * {@link IllegalArgumentException} when the token is unknown, expired, revoked
+     * or reused.
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public RotatedToken rotate(String rawToken, String ipAddress) {
+        if (!StringUtils.hasText(rawToken)) {
+            throw new IllegalArgumentException("Refresh token is required");
+        }
+
+        RefreshToken current = refreshTokenRepository.findForRotationByTokenHash(hash(rawToken))
+            .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+
+        LocalDateTime now = LocalDateTime.now();
+        User user = current.getUser();
+
+        if (current.getRevokedAt() != null) {
+            if ("ROTATED".equals(current.getRevokeReason())) {
+                String recentSuccessor = recentSuccessor(current, rawToken, now);
+                if (recentSuccessor != null) {
+                    return new RotatedToken(user, recentSuccessor);
+                }
+                revokeFamilyForReuse(current, ipAddress, now);
+            }
+            throw new IllegalArgumentException("Refresh token has been revoked");
+        }
+
+        if (current.getExpiresAt().isBefore(now)) {
+            throw new IllegalArgumentException("Refresh token has expired");
+        }
+
+        if (!Boolean.TRUE.equals(user.getIsActive())) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), "USER_INACTIVE", now);
+            throw new IllegalArgumentException("User account is inactive");
+        }
+
+        String rawSuccessor = generateRawToken();
+        String successorHash = hash(rawSuccessor);
+
+        // The row lock already serialises refreshes; the condition is a last line of defence.
+        if (refreshTokenRepository.markRotated(current.getTokenId(), successorHash,
+                seal(rawSuccessor, rawToken), now) == 0) {
+            revokeFamilyForReuse(current, ipAddress, now);
+            throw new IllegalArgumentException("Refresh token has been revoked");
+        }
+
+        saveToken(user, successorHash, current.getFamilyId(), ipAddress, now);
+        return new RotatedToken(user, rawSuccessor);
+    }
+
+    @Transactional
+    public void revoke(String rawToken) {
+        if (!StringUtils.hasText(rawToken)) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+            .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), "LOGOUT", LocalDateTime.now()));
+    }
+
+    @Transactional
+    public void revokeAllForUser(Long userId, String reason) {
+        refreshTokenRepository.revokeAllForUser(userId, reason, LocalDateTime.now());
+    }
+
+    public long getRefreshExpirationMillis() {
+        return refreshExpirationMillis;
+    }
+
+    @Scheduled(cron = "0 30 2 * * ?")
+    @Transactional
+    public void purgeExpiredTokens() {
+        LocalDateTime now = LocalDateTime.now();
+        int removed = refreshTokenRepository.deleteExpiredBefore(now);
+        if (removed > 0) {
+            log.info("Purged {} expired refresh tokens", removed);
+        }
+        refreshTokenRepository.clearSealedSuccessorsBefore(now.minusSeconds(reuseGraceSeconds));
+    }
+
+    /**
+     * Returns the successor issued for {@code token} if it was rotated within the grace
+     * window and that successor is still live, or {@code null} when the presentation has
+     * to be treated as reuse.
+     */
+    private String recentSuccessor(RefreshToken token, String rawToken, LocalDateTime now) {
+        if (token.getSealedSuccessor() == null
+            || token.getRevokedAt().isBefore(now.minusSeconds(reuseGraceSeconds))
+            || !Boolean.TRUE.equals(token.getUser().getIsActive())) {
+            return null;
+        }
+        String rawSuccessor = unseal(token.getSealedSuccessor(), rawToken);
+        boolean live = refreshTokenRepository.findByTokenHash(hash(rawSuccessor))
+            .filter(successor -> successor.getRevokedAt() == null && successor.getExpiresAt().isAfter(now))
+            .isPresent();
+        if (!live) {
+            return null;
+        }
+        log.debug("Refresh token for user {} presented again within the grace window; returning its successor",
+            token.getUser().getUsername());
+        return rawSuccessor;
+    }
+
+    private void revokeFamilyForReuse(RefreshToken token, String ipAddress, LocalDateTime now) {
+        int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), "REUSE_DETECTED", now);
+        log.warn("Refresh token reuse detected for user {}; revoked {} tokens in family {}",
+            token.getUser().getUsername(), revoked, token.getFamilyId());
+        auditLogService.record(token.getUser(),
+            "REFRESH_TOKEN_REUSE",
+            "User",
+            token.getUser().getUserId(),
+            "Rotated refresh token presented again; session family revoked",
+            ipAddress);
+    }
+
+    private String persistNewToken(User user, String familyId, String ipAddress) {
+        String rawToken = generateRawToken();
+        saveToken(user, hash(rawToken), familyId, ipAddress, LocalDateTime.now());
+        return rawToken;
+    }
+
+    private void saveToken(User user, String tokenHash, String familyId, String ipAddress, LocalDateTime now) {
+        RefreshToken token = new RefreshToken();
+        token.setUser(user);
+        token.setTokenHash(tokenHash);
+        token.setFamilyId(familyId);
+        token.setExpiresAt(now.plusNanos(refreshExpirationMillis * 1_000_000L));
+        token.setIpAddress(ipAddress);
+        refreshTokenRepository.save(token);
+    }
+
+    private String generateRawToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * XORs the successor with a pad derived from the token it replaces, so the stored
+     * value is only usable by whoever already holds the rotated token.
+     */
+    private String seal(String rawSuccessor, String rawToken) {
+        return HexFormat.of().formatHex(xorWithPad(Base64.getUrlDecoder().decode(rawSuccessor), rawToken));
+    }
+
+    private String unseal(String sealedSuccessor, String rawToken) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(xorWithPad(HexFormat.of().parseHex(sealedSuccessor), rawToken));
+    }
+
+    private byte[] xorWithPad(byte[] value, String rawToken) {
+        byte[] pad = HexFormat.of().parseHex(hash("successor:" + rawToken));
+        byte[] result = new byte[value.length];
+        for (int i = 0; i < value.length; i++) {
+            result[i] = (byte) (value[i] ^ pad[i]);
+        }
+        return result;
+    }
+
+    private String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    public record RotatedToken(User user, String refreshToken) {
+    }
+}
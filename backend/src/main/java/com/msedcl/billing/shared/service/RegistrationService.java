@@ -6,6 +6,7 @@ import com.msedcl.billing.admin.customer.dto.customer.CustomerResponse;
 import com.msedcl.billing.shared.entity.AreaDetails;
 import com.msedcl.billing.shared.entity.Customer;
 import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.shared.entity.WalletLedgerEntry;
 import com.msedcl.billing.shared.repository.UserRepository;
 import com.msedcl.billing.admin.customer.repository.CustomerRepository;
 import com.msedcl.billing.shared.repository.AreaDetailsRepository;
@@ -17,6 +18,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -31,6 +33,8 @@ public class RegistrationService {
     private final JwtUtil jwtUtil;
     private final CustomerService customerService;
     private final AuditLogService auditLogService;
+    private final RefreshTokenService refreshTokenService;
+    private final WalletService walletService;
 
     private static final Pattern STRONG_PASSWORD_PATTERN = Pattern.compile(
         "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&#])[A-Za-z\\d@$!%*?&#]{8,}$"
@@ -42,16 +46,12 @@ public class RegistrationService {
         validateCustomerRegistration(data);
 
         User savedUser = persistCustomerUser(data, request.getPassword());
-    customerService.registerCustomerProfile(data.toCustomer(savedUser, areaDetailsRepository));
+    Customer customer = customerService.registerCustomerProfile(data.toCustomer(savedUser, areaDetailsRepository));
+        creditOpeningBalance(customer, data.advancePayment(), savedUser);
 
         String token = jwtUtil.generateToken(savedUser.getUsername(), savedUser.getRole().name(), savedUser.getUserId());
-        return new AuthResponse(
-            token,
-            savedUser.getUserId(),
-            savedUser.getUsername(),
-            savedUser.getRole().name(),
-            savedUser.getFullName()
-        );
+        String refreshToken = refreshTokenService.issue(savedUser, null);
+        return new AuthResponse(token, refreshToken, jwtUtil.getExpirationMillis(), savedUser);
     }
 
     @Transactional
@@ -61,6 +61,7 @@ public class RegistrationService {
 
         User savedUser = persistCustomerUser(data, request.getPassword());
         Customer customer = customerService.createCustomer(data.toCustomer(savedUser, areaDetailsRepository), actor, ipAddress);
+        creditOpeningBalance(customer, data.advancePayment(), actor);
         CustomerResponse response = customerService.toResponse(customer);
 
         auditLogService.record(actor,
@@ -131,6 +132,9 @@ public class RegistrationService {
 
         admin.setIsActive(active);
         User updated = userRepository.save(admin);
+        if (!active) {
+            refreshTokenService.revokeAllForUser(updated.getUserId(), "USER_DEACTIVATED");
+        }
 
         auditLogService.record(actor,
             active ? "ACTIVATE_ADMIN" : "DEACTIVATE_ADMIN",
@@ -205,11 +209,18 @@ public class RegistrationService {
             ? request.getAadharNumber().trim()
             : null;
         Long areaId = request.getAreaId();
-        Double advancePayment = request.getAdvancePayment() != null ? request.getAdvancePayment() : 0.00;
+        BigDecimal advancePayment = request.getAdvancePayment() != null ? request.getAdvancePayment() : BigDecimal.ZERO;
 
         return new NormalizedCustomerRegistration(username, email, phone, fullName, address, city, state, pincode, aadhar, areaId, advancePayment);
     }
 
+    private void creditOpeningBalance(Customer customer, BigDecimal advancePayment, User createdBy) {
+        if (advancePayment != null && advancePayment.compareTo(BigDecimal.ZERO) > 0) {
+            walletService.credit(customer.getCustomerId(), advancePayment, WalletLedgerEntry.EntryType.OPENING_BALANCE,
+                "Advance paid at registration", createdBy);
+        }
+    }
+
     private String normalizeUsername(String username) {
         return username == null ? null : username.trim().toLowerCase();
     }
@@ -244,7 +255,7 @@ public class RegistrationService {
         String pincode,
         String aadharNumber,
         Long areaId,
-        Double advancePayment
+        BigDecimal advancePayment
     ) {
         Customer toCustomer(User user, AreaDetailsRepository areaRepo) {
             Customer customer = new Customer();
@@ -259,7 +270,6 @@ public class RegistrationService {
             }
             customer.setPincode(pincode);
             customer.setAadharNumber(aadharNumber);
-            customer.setAdvancePayment(advancePayment != null ? advancePayment : 0.00);
             
             // Set area details if provided
             if (areaId != null) {
@@ -0,0 +1,149 @@
+package com.msedcl.billing.shared.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msedcl.billing.shared.security.StripedRateLimiter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the SMS gateway, enabled only with
+ * {@code notifications.sms.stub.enabled=true}. It listens on the loopback interface,
+ * accepts single ({@code POST /sms}) and bulk ({@code POST /sms/bulk}) submissions
+ * after a configurable latency, answers 429 above its quota like a real gateway, fails
+ * a configurable fraction of requests with 503, and reports what it received at
+ * {@code GET /stats}.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.sms.stub.enabled", havingValue = "true")
+@Slf4j
+public class SmsGatewayStub {
+
+    private final ObjectMapper objectMapper;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Value("${notifications.sms.stub.port:8089}")
+    private int port;
+
+    @Value("${notifications.sms.stub.latency-ms:20}")
+    private long latencyMillis;
+
+    @Value("${notifications.sms.stub.rate-per-second:100}")
+    private int ratePerSecond;
+
+    @Value("${notifications.sms.stub.error-rate:0}")
+    private double errorRate;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private StripedRateLimiter quota;
+
+    public SmsGatewayStub(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        quota = new StripedRateLimiter(1, ratePerSecond * 60, ratePerSecond);
+        // Bounded like everything else: once 8 handlers are busy and 256 exchanges wait, the
+        // server's dispatcher thread handles the next one itself and stops accepting meanwhile
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(8, 8, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(256), runnable -> {
+            Thread thread = new Thread(runnable, "sms-stub-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/sms/bulk", exchange -> handle(exchange, true));
+        server.createContext("/sms", exchange -> handle(exchange, false));
+        server.createContext("/stats", this::stats);
+        server.setExecutor(executor);
+        server.start();
+        log.info("SMS gateway stub listening on http://localhost:{}/sms", port);
+    }
+
+    private void handle(HttpExchange exchange, boolean bulk) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode payload = objectMapper.readTree(body);
+            int count = bulk ? payload.path("messages").size() : 1;
+            requests.incrementAndGet();
+            for (int i = 0; i < count; i++) {
+                if (quota.tryAcquire("stub") > 0) {
+                    throttled.incrementAndGet();
+                    exchange.sendResponseHeaders(429, -1);
+                    return;
+                }
+            }
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                failed.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            messages.addAndGet(count);
+            exchange.sendResponseHeaders(202, -1);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = String.format("{\"requests\":%d,\"messages\":%d,\"throttled\":%d,\"failed\":%d}",
+                requests.get(), messages.get(), throttled.get(), failed.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    public long messagesAccepted() {
+        return messages.get();
+    }
+
+    public long requestsThrottled() {
+        return throttled.get();
+    }
+
+    public long requestsFailed() {
+        return failed.get();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
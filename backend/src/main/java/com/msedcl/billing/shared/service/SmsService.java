@@ -1,25 +1,61 @@
 package com.msedcl.billing.shared.service;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msedcl.billing.shared.dto.SmsGatewayStats;
+import com.msedcl.billing.shared.security.StripedRateLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.MediaType;
-import org.springframework.http.RequestEntity;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.io.IOException;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Client for the SMS gateway. Messages are handed to a bounded queue and sent by a
+ * single gateway thread over one shared keep-alive {@link HttpClient}. That thread
+ * groups queued messages into bulk requests of up to {@code notifications.sms.batch-size}
+ * when a bulk URL is configured, and paces requests with a token bucket set to the
+ * gateway quota. A burst therefore waits in the queue instead of being refused; when
+ * the queue is full, producers block. A bulk request refused with a 4xx other than 429
+ * is retried message by message, so one bad number cannot fail its whole batch.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class SmsService {
 
-    private final RestTemplateBuilder restTemplateBuilder;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final StripedRateLimiter gatewayQuota;
+    private final BlockingQueue<PendingSms> queue;
+    private volatile Thread gatewayThread;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
 
     @Value("${notifications.sms.enabled:false}")
     private boolean smsEnabled;
@@ -27,50 +63,228 @@ public class SmsService {
     @Value("${notifications.sms.gateway-url:}")
     private String gatewayUrl;
 
+    @Value("${notifications.sms.bulk-url:}")
+    private String bulkUrl;
+
     @Value("${notifications.sms.api-key:}")
     private String apiKey;
 
     @Value("${notifications.sms.sender:}")
     private String senderId;
 
-    public void sendSms(String phoneNumber, String message) {
+    @Value("${notifications.sms.batch-size:50}")
+    private int batchSize;
+
+    @Value("${notifications.sms.linger-ms:50}")
+    private long lingerMillis;
+
+    @Value("${notifications.sms.request-timeout-ms:10000}")
+    private long requestTimeoutMillis;
+
+    public SmsService(ObjectMapper objectMapper,
+                      @Value("${notifications.sms.rate-per-second:20}") int ratePerSecond,
+                      @Value("${notifications.sms.burst:40}") int burst,
+                      @Value("${notifications.sms.queue-capacity:10000}") int queueCapacity,
+                      @Value("${notifications.sms.connect-timeout-ms:5000}") long connectTimeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+            .build();
+        this.gatewayQuota = new StripedRateLimiter(1, ratePerSecond * 60, burst);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(this::runGateway, "sms-gateway");
+        thread.setDaemon(true);
+        thread.start();
+        gatewayThread = thread;
+    }
+
+    public boolean isEnabled() {
+        return smsEnabled && StringUtils.hasText(gatewayUrl);
+    }
+
+    /**
+     * Queues one message for the gateway. The future fails with the gateway or
+     * network error so callers can retry it.
+     */
+    public CompletableFuture<Void> submit(String phoneNumber, String message) {
         if (!smsEnabled) {
             log.debug("SMS notifications disabled; skipping send to {}", phoneNumber);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         if (!StringUtils.hasText(gatewayUrl)) {
             log.warn("SMS gateway URL not configured; unable to send message to {}", phoneNumber);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         if (!StringUtils.hasText(phoneNumber)) {
             log.debug("No phone number available for SMS notification");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
+        PendingSms pending = new PendingSms(phoneNumber, message, new CompletableFuture<>());
         try {
-            RestTemplate restTemplate = restTemplateBuilder
-                .setConnectTimeout(Duration.ofSeconds(5))
-                .setReadTimeout(Duration.ofSeconds(10))
-                .build();
+            queue.put(pending);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            pending.result.completeExceptionally(new ResourceAccessException("Interrupted while queueing SMS"));
+        }
+        submitted.incrementAndGet();
+        return pending.result;
+    }
+
+    /**
+     * Sends one message and waits for the gateway's answer.
+     */
+    public void sendSms(String phoneNumber, String message) {
+        try {
+            submit(phoneNumber, message).join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException runtime ? runtime : ex;
+        }
+    }
+
+    public SmsGatewayStats stats() {
+        return new SmsGatewayStats(isEnabled(), queue.size(), submitted.get(), sent.get(), failed.get(),
+            requests.get(), TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()));
+    }
+
+    private void runGateway() {
+        boolean bulk = StringUtils.hasText(bulkUrl) && batchSize > 1;
+        List<PendingSms> batch = new ArrayList<>(bulk ? batchSize : 1);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                if (bulk) {
+                    // Linger briefly so a burst leaves in full batches
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                    while (batch.size() < batchSize) {
+                        PendingSms next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+                awaitQuota(batch.size());
+                deliver(batch, bulk);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                // stop() only fails what is still queued; the messages taken off it are ours to fail
+                ResourceAccessException shutdown = new ResourceAccessException("SMS gateway client shut down");
+                batch.forEach(pending -> pending.result.completeExceptionally(shutdown));
+            } catch (RuntimeException ex) {
+                log.error("SMS gateway thread error: {}", ex.getMessage(), ex);
+                batch.forEach(pending -> pending.result.completeExceptionally(ex));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void awaitQuota(int permits) throws InterruptedException {
+        for (int i = 0; i < permits; i++) {
+            long waitNanos;
+            while ((waitNanos = gatewayQuota.tryAcquire("gateway")) > 0) {
+                throttledNanos.addAndGet(waitNanos);
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
 
+    private void deliver(List<PendingSms> batch, boolean bulk) {
+        if (bulk && batch.size() > 1) {
+            List<Map<String, Object>> messages = new ArrayList<>(batch.size());
+            for (PendingSms pending : batch) {
+                messages.add(Map.of("to", pending.phoneNumber, "message", pending.message));
+            }
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("sender", senderId);
+            payload.put("apiKey", apiKey);
+            payload.put("messages", messages);
+            RuntimeException failure = post(bulkUrl, payload);
+            if (!(failure instanceof HttpClientErrorException rejected) || rejected.getStatusCode().value() == 429) {
+                complete(batch, failure);
+                return;
+            }
+            // The gateway refused the whole request, most likely over one bad message; send
+            // them one by one so only the messages it rejects individually fail
+            log.debug("SMS gateway rejected a bulk request of {} ({}); retrying individually",
+                batch.size(), rejected.getStatusCode().value());
+        }
+        for (PendingSms pending : batch) {
             Map<String, Object> payload = Map.of(
-                "to", phoneNumber,
-                "message", message,
+                "to", pending.phoneNumber,
+                "message", pending.message,
                 "sender", senderId,
                 "apiKey", apiKey
             );
+            complete(List.of(pending), post(gatewayUrl, payload));
+        }
+    }
 
-            RequestEntity<Map<String, Object>> request = RequestEntity
-                .post(URI.create(gatewayUrl))
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(payload);
+    /**
+     * @return {@code null} on a 2xx answer, otherwise the failure to report
+     */
+    private RuntimeException post(String url, Map<String, Object> payload) {
+        requests.incrementAndGet();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(requestTimeoutMillis))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)))
+                .build();
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            int status = response.statusCode();
+            if (status >= 200 && status < 300) {
+                return null;
+            }
+            HttpStatusCode code = HttpStatusCode.valueOf(status);
+            return status < 500
+                ? new HttpClientErrorException(code, "SMS gateway rejected the request")
+                : new HttpServerErrorException(code, "SMS gateway error");
+        } catch (JsonProcessingException ex) {
+            return new IllegalArgumentException("Unable to encode SMS payload", ex);
+        } catch (IOException ex) {
+            return new ResourceAccessException("SMS gateway unreachable: " + ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new ResourceAccessException("Interrupted while sending SMS");
+        }
+    }
 
-            restTemplate.exchange(request, Void.class);
-            log.debug("Sent SMS notification to {}", phoneNumber);
-        } catch (Exception ex) {
-            log.error("Failed to send SMS to {}", phoneNumber, ex);
+    private void complete(List<PendingSms> batch, RuntimeException failure) {
+        for (PendingSms pending : batch) {
+            if (failure == null) {
+                sent.incrementAndGet();
+                pending.result.complete(null);
+            } else {
+                failed.incrementAndGet();
+                pending.result.completeExceptionally(failure);
+            }
         }
     }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = gatewayThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        PendingSms pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new ResourceAccessException("SMS gateway client shut down"));
+        }
+    }
+
+    private record PendingSms(String phoneNumber, String message, CompletableFuture<Void> result) {
+    }
 }
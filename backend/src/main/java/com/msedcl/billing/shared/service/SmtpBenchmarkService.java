@@ -0,0 +1,112 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.shared.dto.BulkMailReport;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures bulk SMTP throughput through {@link SmtpTransportPool}. Enabled only with
+ * {@code notifications.smtp.benchmark.enabled=true} and meant to be pointed at a
+ * local SMTP sink (MailHog, smtp4dev) through the usual {@code spring.mail.*} settings.
+ */
+@Service
+@ConditionalOnProperty(name = "notifications.smtp.benchmark.enabled", havingValue = "true")
+@Slf4j
+public class SmtpBenchmarkService {
+
+    private static final int MAX_MESSAGES = 200_000;
+    private static final int MAX_CONNECTIONS = 32;
+
+    private final SmtpTransportPool transportPool;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${notifications.smtp.benchmark.recipient:sink@localhost}")
+    private String recipient;
+
+    @Value("${notifications.email.from:no-reply@vit.edu}")
+    private String fromAddress;
+
+    public SmtpBenchmarkService(SmtpTransportPool transportPool) {
+        this.transportPool = transportPool;
+    }
+
+    public BulkMailReport run(int messages, int connections, int runLength) {
+        if (messages <= 0 || messages > MAX_MESSAGES) {
+            throw new IllegalArgumentException("messages must be between 1 and " + MAX_MESSAGES);
+        }
+        if (connections <= 0 || connections > MAX_CONNECTIONS || runLength <= 0) {
+            throw new IllegalArgumentException("connections must be between 1 and " + MAX_CONNECTIONS
+                + " and runLength must be positive");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An SMTP benchmark is already running");
+        }
+        try {
+            long openedBefore = transportPool.stats().connectionsOpened();
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger sent = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            long started = System.nanoTime();
+
+            ExecutorService executor = Executors.newFixedThreadPool(connections);
+            List<CompletableFuture<Void>> workers = new ArrayList<>(connections);
+            for (int worker = 0; worker < connections; worker++) {
+                workers.add(CompletableFuture.runAsync(() -> {
+                    int from;
+                    while ((from = next.getAndAdd(runLength)) < messages) {
+                        List<MimeMessage> run = new ArrayList<>(runLength);
+                        for (int i = from; i < Math.min(from + runLength, messages); i++) {
+                            run.add(buildMessage(i));
+                        }
+                        for (Exception failure : transportPool.sendAll(run)) {
+                            (failure == null ? sent : failed).incrementAndGet();
+                        }
+                    }
+                }, executor));
+            }
+            try {
+                CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).join();
+            } finally {
+                executor.shutdown();
+            }
+
+            long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+            BulkMailReport report = new BulkMailReport(messages, sent.get(), failed.get(),
+                transportPool.stats().connectionsOpened() - openedBefore, elapsedMillis,
+                sent.get() * 1000.0 / elapsedMillis);
+            log.info("SMTP benchmark: {} messages over {} connections in {} ms ({} msg/s)", messages,
+                report.connectionsOpened(), elapsedMillis, Math.round(report.messagesPerSecond()));
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private MimeMessage buildMessage(int sequence) {
+        try {
+            MimeMessage message = transportPool.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name());
+            helper.setTo(recipient);
+            helper.setFrom(fromAddress);
+            helper.setSubject("SMTP benchmark message " + sequence);
+            helper.setText("<p>Benchmark message " + sequence + "</p>", true);
+            return message;
+        } catch (MessagingException ex) {
+            throw new IllegalStateException("Unable to build benchmark message", ex);
+        }
+    }
+}
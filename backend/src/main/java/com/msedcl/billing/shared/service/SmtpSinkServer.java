@@ -0,0 +1,169 @@
+package com.msedcl.billing.shared.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process SMTP sink for load tests, enabled only with
+ * {@code notifications.smtp.sink.enabled=true}. It listens on the loopback interface,
+ * speaks just enough SMTP for Jakarta Mail (EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT),
+ * waits a configurable latency before accepting each message and rejects a configurable
+ * fraction with a transient 451, then discards the content. Point {@code spring.mail.host}
+ * and {@code spring.mail.port} at it.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.smtp.sink.enabled", havingValue = "true")
+@Slf4j
+public class SmtpSinkServer {
+
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Value("${notifications.smtp.sink.port:1025}")
+    private int port;
+
+    @Value("${notifications.smtp.sink.latency-ms:5}")
+    private long latencyMillis;
+
+    @Value("${notifications.smtp.sink.error-rate:0}")
+    private double errorRate;
+
+    @Value("${notifications.smtp.sink.max-connections:32}")
+    private int maxConnections;
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        AtomicInteger sequence = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxConnections + 1, runnable -> {
+            Thread thread = new Thread(runnable, "smtp-sink-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::acceptLoop);
+        log.info("SMTP sink listening on localhost:{}", port);
+    }
+
+    public long connectionsAccepted() {
+        return connections.get();
+    }
+
+    public long messagesAccepted() {
+        return accepted.get();
+    }
+
+    public long messagesRejected() {
+        return rejected.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                executor.execute(() -> serve(socket));
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("SMTP sink accept failed: {}", ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost SMTP sink ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line.toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250-8BITMIME\r\n250 SIZE 52428800");
+                    case "HELO" -> reply(out, "250 localhost");
+                    case "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        if (!readMessage(in)) {
+                            return;
+                        }
+                        acceptOrReject(out);
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException ex) {
+            log.debug("SMTP sink connection closed: {}", ex.getMessage());
+        }
+    }
+
+    private boolean readMessage(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void acceptOrReject(OutputStream out) throws IOException {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", ex);
+            }
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            rejected.incrementAndGet();
+            reply(out, "451 4.3.0 Temporary failure injected by sink");
+        } else {
+            accepted.incrementAndGet();
+            reply(out, "250 OK queued");
+        }
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.shared.dto.SmtpPoolStats;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small pool of long-lived SMTP connections. {@link #sendAll} pushes a run of
+ * messages down one connection instead of paying a connect and handshake per
+ * message, as {@code JavaMailSender.send} does. A connection is replaced after
+ * {@code notifications.smtp.max-messages-per-connection} messages, after sitting idle
+ * longer than the server is likely to keep it, or as soon as it fails.
+ */
+@Service
+@Slf4j
+public class SmtpTransportPool {
+
+    private final JavaMailSenderImpl mailSender;
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final int poolSize;
+
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong messagesFailed = new AtomicLong();
+
+    @Value("${notifications.smtp.max-messages-per-connection:500}")
+    private int maxMessagesPerConnection;
+
+    @Value("${notifications.smtp.idle-timeout-ms:30000}")
+    private long idleTimeoutMillis;
+
+    public SmtpTransportPool(JavaMailSender mailSender,
+                             @Value("${notifications.smtp.pool-size:4}") int poolSize) {
+        if (!(mailSender instanceof JavaMailSenderImpl impl)) {
+            throw new IllegalStateException("SMTP pooling needs a JavaMailSenderImpl, found " + mailSender.getClass().getName());
+        }
+        this.mailSender = impl;
+        this.poolSize = poolSize;
+        this.permits = new Semaphore(poolSize);
+    }
+
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * Sends {@code messages} in order over one pooled connection, blocking while all
+     * connections are in use. The result lists the failure for each message, or
+     * {@code null} where it was accepted by the server.
+     */
+    public List<Exception> sendAll(List<MimeMessage> messages) {
+        List<Exception> failures = new ArrayList<>(messages.size());
+        permits.acquireUninterruptibly();
+        PooledTransport connection = idle.pollFirst();
+        boolean borrowed = connection != null;
+        try {
+            for (MimeMessage message : messages) {
+                try {
+                    // Ping a reused connection once per run rather than once per message
+                    connection = ensureOpen(connection, borrowed);
+                    borrowed = false;
+                    if (message.getSentDate() == null) {
+                        message.setSentDate(new Date());
+                    }
+                    message.saveChanges();
+                    connection.transport.sendMessage(message, message.getAllRecipients());
+                    connection.sent++;
+                    connection.lastUsed = System.currentTimeMillis();
+                    messagesSent.incrementAndGet();
+                    failures.add(null);
+                } catch (SendFailedException ex) {
+                    // Recipients were refused; the connection itself is still good
+                    messagesFailed.incrementAndGet();
+                    failures.add(ex);
+                } catch (MessagingException | RuntimeException ex) {
+                    close(connection);
+                    connection = null;
+                    messagesFailed.incrementAndGet();
+                    failures.add(ex);
+                }
+            }
+        } finally {
+            if (connection != null) {
+                // Most recently used first, so surplus connections age out instead of being kept warm
+                idle.offerFirst(connection);
+            }
+            permits.release();
+        }
+        return failures;
+    }
+
+    public SmtpPoolStats stats() {
+        return new SmtpPoolStats(poolSize, idle.size(), poolSize - permits.availablePermits(),
+            connectionsOpened.get(), messagesSent.get(), messagesFailed.get());
+    }
+
+    private PooledTransport ensureOpen(PooledTransport connection, boolean verify) throws MessagingException {
+        if (connection != null
+            && connection.sent < maxMessagesPerConnection
+            && System.currentTimeMillis() - connection.lastUsed < idleTimeoutMillis
+            && (!verify || connection.transport.isConnected())) {
+            return connection;
+        }
+        close(connection);
+        Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        connectionsOpened.incrementAndGet();
+        return new PooledTransport(transport);
+    }
+
+    private void close(PooledTransport connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.transport.close();
+        } catch (MessagingException ex) {
+            log.debug("Error closing SMTP connection: {}", ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        PooledTransport connection;
+        while ((connection = idle.pollFirst()) != null) {
+            close(connection);
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int sent;
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.msedcl.billing.shared.service;
+
+import com.msedcl.billing.admin.customer.repository.CustomerRepository;
+import com.msedcl.billing.shared.dto.WalletAmountProjection;
+import com.msedcl.billing.shared.entity.Bill;
+import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.shared.entity.WalletCheckpoint;
+import com.msedcl.billing.shared.entity.WalletLedgerEntry;
+import com.msedcl.billing.shared.repository.WalletCheckpointRepository;
+import com.msedcl.billing.shared.repository.WalletLedgerEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Customer advance wallet backed by an append-only ledger of paise amounts.
+ * Credits are plain inserts. Debits lock only the customer's checkpoint row so two
+ * debits cannot both spend the same balance, and reads add the entries written since
+ * the last checkpoint to the checkpointed balance.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletService {
+
+    private final WalletLedgerEntryRepository ledgerEntryRepository;
+    private final WalletCheckpointRepository checkpointRepository;
+    private final CustomerRepository customerRepository;
+
+    @Value("${wallet.checkpoint.settle-seconds:300}")
+    private long checkpointSettleSeconds;
+
+    @Transactional(readOnly = true)
+    public BigDecimal getBalance(Long customerId) {
+        WalletCheckpoint checkpoint = checkpointRepository.findById(customerId)
+            .orElseGet(() -> new WalletCheckpoint(customerId, 0L, 0L, null));
+        return fromPaise(checkpoint.getBalancePaise()
+            + ledgerEntryRepository.sumTail(customerId, checkpoint.getLastEntryId()));
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, BigDecimal> getBalances(Collection<Long> customerIds) {
+        if (customerIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<Long, Long> paise = new HashMap<>();
+        for (WalletCheckpoint checkpoint : checkpointRepository.findAllById(customerIds)) {
+            paise.put(checkpoint.getCustomerId(), checkpoint.getBalancePaise());
+        }
+        for (WalletAmountProjection tail : ledgerEntryRepository.sumTails(customerIds)) {
+            paise.merge(tail.getCustomerId(), tail.getAmountPaise(), Long::sum);
+        }
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (Long customerId : customerIds) {
+            balances.put(customerId, fromPaise(paise.getOrDefault(customerId, 0L)));
+        }
+        return balances;
+    }
+
+    @Transactional
+    public void credit(Long customerId, BigDecimal amount, WalletLedgerEntry.EntryType type, String reference, User createdBy) {
+        long amountPaise = toPaise(amount);
+        if (amountPaise <= 0) {
+            throw new IllegalArgumentException("Wallet credit must be greater than zero");
+        }
+        append(customerId, amountPaise, type, null, reference, createdBy);
+    }
+
+    /**
+     * Debits up to {@code maxAmount} from the wallet towards {@code bill} and returns the
+     * amount actually taken (zero when the wallet is empty).
+     */
+    @Transactional
+    public BigDecimal debitForBill(Long customerId, BigDecimal maxAmount, Bill bill, String reference, User createdBy) {
+        long requested = toPaise(maxAmount.setScale(2, RoundingMode.DOWN));
+        if (requested <= 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+
+        checkpointRepository.createIfMissing(customerId);
+        WalletCheckpoint checkpoint = checkpointRepository.findForUpdate(customerId)
+            .orElseThrow(() -> new IllegalStateException("Wallet checkpoint missing for customer " + customerId));
+        long available = checkpoint.getBalancePaise()
+            + ledgerEntryRepository.sumTailLocked(customerId, checkpoint.getLastEntryId());
+
+        long debit = Math.min(available, requested);
+        if (debit <= 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        append(customerId, -debit, WalletLedgerEntry.EntryType.BILL_ADJUSTMENT, bill, reference, createdBy);
+        return fromPaise(debit);
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.checkpoint.interval-ms:300000}")
+    @Transactional
+    public void checkpoint() {
+        int customers = checkpointRepository.advanceCheckpoints(LocalDateTime.now().minusSeconds(checkpointSettleSeconds));
+        if (customers > 0) {
+            log.debug("Advanced wallet checkpoints ({} rows affected)", customers);
+        }
+    }
+
+    private void append(Long customerId, long amountPaise, WalletLedgerEntry.EntryType type, Bill bill,
+                        String reference, User createdBy) {
+        WalletLedgerEntry entry = new WalletLedgerEntry();
+        entry.setCustomer(customerRepository.getReferenceById(customerId));
+        entry.setAmountPaise(amountPaise);
+        entry.setEntryType(type);
+        entry.setBill(bill);
+        entry.setReference(reference);
+        entry.setCreatedBy(createdBy);
+        ledgerEntryRepository.save(entry);
+    }
+
+    static long toPaise(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        try {
+            return amount.setScale(2, RoundingMode.UNNECESSARY).movePointRight(2).longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Amount cannot have more than two decimal places");
+        }
+    }
+
+    static BigDecimal fromPaise(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+}
@@ -0,0 +1,96 @@
+package com.msedcl.billing.shared.service.template;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A template parsed once into alternating literal segments and slots. {@code {{name}}}
+ * slots are HTML-escaped; {@code {{{name}}}} slots are copied as-is and are meant for
+ * markup the caller built and escaped itself.
+ */
+final class CompiledTemplate {
+
+    private static final int SLOT_ESTIMATE = 24;
+
+    private final String name;
+    // literals[i] precedes slot i; the final literal follows the last slot
+    private final String[] literals;
+    private final int[] slots;
+    private final boolean[] raw;
+    private final int estimatedLength;
+
+    private CompiledTemplate(String name, String[] literals, int[] slots, boolean[] raw) {
+        this.name = name;
+        this.literals = literals;
+        this.slots = slots;
+        this.raw = raw;
+        int length = slots.length * SLOT_ESTIMATE;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.estimatedLength = length;
+    }
+
+    static CompiledTemplate compile(String name, String source) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            boolean unescaped = source.startsWith("{{{", open);
+            String closeToken = unescaped ? "}}}" : "}}";
+            int start = open + (unescaped ? 3 : 2);
+            int close = source.indexOf(closeToken, start);
+            if (close < 0) {
+                throw new IllegalStateException("Unclosed placeholder in template " + name + " at offset " + open);
+            }
+            String placeholder = source.substring(start, close).trim();
+            TemplateField field = TemplateField.forPlaceholder(placeholder);
+            if (field == null) {
+                throw new IllegalStateException("Unknown placeholder {{" + placeholder + "}} in template " + name);
+            }
+            literals.add(source.substring(position, open));
+            slots.add(field.ordinal());
+            raw.add(unescaped);
+            position = close + closeToken.length();
+        }
+        literals.add(source.substring(position));
+
+        int[] slotArray = new int[slots.size()];
+        boolean[] rawArray = new boolean[raw.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+            rawArray[i] = raw.get(i);
+        }
+        return new CompiledTemplate(name, literals.toArray(new String[0]), slotArray, rawArray);
+    }
+
+    String name() {
+        return name;
+    }
+
+    int estimatedLength() {
+        return estimatedLength;
+    }
+
+    void render(TemplateValues values, StringBuilder out) {
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            Object value = values.get(slots[i]);
+            if (value == null) {
+                continue;
+            }
+            CharSequence text = value instanceof CharSequence sequence ? sequence : value.toString();
+            if (raw[i]) {
+                out.append(text);
+            } else {
+                HtmlEscaper.append(text, out);
+            }
+        }
+        out.append(literals[slots.length]);
+    }
+}
@@ -0,0 +1,36 @@
+package com.msedcl.billing.shared.service.template;
+
+/**
+ * Minimal HTML text escaping for template values.
+ */
+public final class HtmlEscaper {
+
+    private HtmlEscaper() {
+    }
+
+    public static String escape(CharSequence text) {
+        StringBuilder out = new StringBuilder(text.length() + 8);
+        append(text, out);
+        return out.toString();
+    }
+
+    public static void append(CharSequence text, StringBuilder out) {
+        int length = text.length();
+        int from = 0;
+        for (int i = 0; i < length; i++) {
+            String replacement = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(text, from, i).append(replacement);
+                from = i + 1;
+            }
+        }
+        out.append(text, from, length);
+    }
+}
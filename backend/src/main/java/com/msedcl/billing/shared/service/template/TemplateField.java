@@ -0,0 +1,50 @@
+package com.msedcl.billing.shared.service.template;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The placeholders notification templates may use. Templates are compiled against
+ * this list, so a misspelt placeholder fails at startup rather than rendering blank.
+ */
+public enum TemplateField {
+    CUSTOMER_NAME("customerName"),
+    ACCOUNT_NUMBER("accountNumber"),
+    INVOICE_NUMBER("invoiceNumber"),
+    BILL_DATE("billDate"),
+    DUE_DATE("dueDate"),
+    NET_PAYABLE("netPayable"),
+    PDF_PATH("pdfPath"),
+    PAYMENT_REFERENCE("paymentReference"),
+    RECEIPT_NUMBER("receiptNumber"),
+    PAYMENT_DATE("paymentDate"),
+    PAYMENT_AMOUNT("paymentAmount"),
+    CONVENIENCE_FEE("convenienceFee"),
+    NET_AMOUNT("netAmount"),
+    ALLOCATIONS("allocations"),
+    BILL_COUNT("billCount"),
+    TOTAL_DUE("totalDue"),
+    BILL_LINES("billLines");
+
+    private static final Map<String, TemplateField> BY_PLACEHOLDER = new HashMap<>();
+
+    static {
+        for (TemplateField field : values()) {
+            BY_PLACEHOLDER.put(field.placeholder, field);
+        }
+    }
+
+    private final String placeholder;
+
+    TemplateField(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
+    public String placeholder() {
+        return placeholder;
+    }
+
+    static TemplateField forPlaceholder(String placeholder) {
+        return BY_PLACEHOLDER.get(placeholder);
+    }
+}
@@ -40,6 +40,26 @@ public final class TemplateRegistry {
             </body>
             </html>
             """),
+        Map.entry("account-payment-receipt",
+            """
+            <html>
+            <body>
+                <p>Dear {{customerName}},</p>
+                <p>We have received your payment for account <strong>{{accountNumber}}</strong>.</p>
+                <p>
+                    Receipt Number: <strong>{{receiptNumber}}</strong><br/>
+                    Date: {{paymentDate}}<br/>
+                    Amount: Rs {{paymentAmount}}<br/>
+                    Convenience Fee: Rs {{convenienceFee}}<br/>
+                    Net Amount: Rs {{netAmount}}
+                </p>
+                <p>The payment was applied as follows:</p>
+                <ul>{{{allocations}}}</ul>
+                <p>Thank you for staying current with your electricity bills.</p>
+                <p>Regards,<br/>VIT Billing Team</p>
+            </body>
+            </html>
+            """),
         Map.entry("bill-reminder",
             """
             <html>
@@ -62,7 +82,32 @@ public final class TemplateRegistry {
                 <p>Regards,<br/>VIT Billing Team</p>
             </body>
             </html>
-            """ )
+            """ ),
+        Map.entry("bill-reminder-digest",
+            """
+            <html>
+            <body>
+                <p>Dear {{customerName}},</p>
+                <p>This is a friendly reminder that {{billCount}} of your electricity bills are due soon:</p>
+                <ul>{{{billLines}}}</ul>
+                <p>The total outstanding amount is Rs {{totalDue}}. Please make the payments before the due dates to avoid late fees.</p>
+                <p>Thank you,<br/>VIT Billing Team</p>
+            </body>
+            </html>
+            """),
+        Map.entry("bill-overdue-digest",
+            """
+            <html>
+            <body>
+                <p>Dear {{customerName}},</p>
+                <p>{{billCount}} of your electricity bills are now overdue:</p>
+                <ul>{{{billLines}}}</ul>
+                <p>The total outstanding amount is Rs {{totalDue}} including any applicable late fees. Kindly clear the dues immediately to avoid service interruption.</p>
+                <p>If you have already paid, please ignore this message.</p>
+                <p>Regards,<br/>VIT Billing Team</p>
+            </body>
+            </html>
+            """)
     );
 
     private TemplateRegistry() {
@@ -71,5 +116,9 @@ public final class TemplateRegistry {
     public static String getTemplate(String templateName) {
         return TEMPLATES.get(templateName);
     }
+
+    public static Map<String, String> templates() {
+        return TEMPLATES;
+    }
 }
 
@@ -1,30 +1,57 @@
 package com.msedcl.billing.shared.service.template;
 
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.BiConsumer;
 
+/**
+ * Renders the notification templates from {@link TemplateRegistry}. Every template is
+ * compiled once at startup; a render is a walk over its literal segments and slots
+ * into a pre-sized buffer, with values HTML-escaped on the way.
+ */
 @Component
 public class TemplateRenderer {
 
-    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{(.*?)}}", Pattern.DOTALL);
+    private final Map<String, CompiledTemplate> templates = new HashMap<>();
 
-    public String render(String templateName, Map<String, Object> model) {
-    String template = TemplateRegistry.getTemplate(templateName);
-        if (!StringUtils.hasText(template)) {
+    public TemplateRenderer() {
+        TemplateRegistry.templates().forEach((name, source) -> templates.put(name, CompiledTemplate.compile(name, source)));
+    }
+
+    public String render(String templateName, TemplateValues values) {
+        CompiledTemplate template = templates.get(templateName);
+        if (template == null) {
             return "";
         }
-        Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
-        StringBuffer sb = new StringBuffer();
-        while (matcher.find()) {
-            String key = matcher.group(1).trim();
-            Object value = model.getOrDefault(key, "");
-            matcher.appendReplacement(sb, Matcher.quoteReplacement(String.valueOf(value)));
+        StringBuilder out = new StringBuilder(template.estimatedLength());
+        template.render(values, out);
+        return out.toString();
+    }
+
+    /**
+     * Renders {@code templateName} once per item, reusing one value holder and one
+     * buffer for the whole run. {@code binder} fills the values for an item and
+     * {@code sink} receives the rendered text.
+     */
+    public <T> void renderAll(String templateName,
+                              List<T> items,
+                              BiConsumer<T, TemplateValues> binder,
+                              BiConsumer<T, String> sink) {
+        CompiledTemplate template = templates.get(templateName);
+        TemplateValues values = new TemplateValues();
+        StringBuilder out = new StringBuilder(template != null ? template.estimatedLength() : 0);
+        for (T item : items) {
+            String rendered = "";
+            if (template != null) {
+                binder.accept(item, values.clear());
+                out.setLength(0);
+                template.render(values, out);
+                rendered = out.toString();
+            }
+            sink.accept(item, rendered);
         }
-        matcher.appendTail(sb);
-        return sb.toString();
     }
 }
@@ -0,0 +1,30 @@
+package com.msedcl.billing.shared.service.template;
+
+import java.util.Arrays;
+
+/**
+ * Values for one render, held in an array indexed by {@link TemplateField}. Bulk
+ * renders reuse a single instance, calling {@link #clear()} between items.
+ */
+public final class TemplateValues {
+
+    private final Object[] values = new Object[TemplateField.values().length];
+
+    public TemplateValues set(TemplateField field, Object value) {
+        values[field.ordinal()] = value;
+        return this;
+    }
+
+    public Object get(TemplateField field) {
+        return values[field.ordinal()];
+    }
+
+    public TemplateValues clear() {
+        Arrays.fill(values, null);
+        return this;
+    }
+
+    Object get(int ordinal) {
+        return values[ordinal];
+    }
+}
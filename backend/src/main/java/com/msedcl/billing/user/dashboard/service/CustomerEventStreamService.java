@@ -0,0 +1,358 @@
+package com.msedcl.billing.user.dashboard.service;
+
+import com.msedcl.billing.admin.billing.repository.BillRepository;
+import com.msedcl.billing.admin.customer.dto.customer.CustomerBalanceEvent;
+import com.msedcl.billing.admin.customer.dto.customer.CustomerQuickSummary;
+import com.msedcl.billing.admin.customer.repository.CustomerRepository;
+import com.msedcl.billing.shared.config.ExecutorRegistry;
+import com.msedcl.billing.shared.event.BillGeneratedEvent;
+import com.msedcl.billing.shared.event.PaymentPostedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Pushes bill and payment changes to connected customer portals over server-sent
+ * events. Each customer keeps a short replay ring so a reconnect carrying
+ * {@code Last-Event-ID} receives only what it missed; when the gap is no longer
+ * covered the client gets a fresh snapshot instead. Every connection has a bounded
+ * send queue drained off the publishing thread, and a connection that falls that far
+ * behind is closed so the browser reconnects and resyncs.
+ */
+@Service
+@Slf4j
+public class CustomerEventStreamService {
+
+    private final CustomerPortalService customerPortalService;
+    private final CustomerRepository customerRepository;
+    private final BillRepository billRepository;
+    private final ExecutorService senders;
+
+    // Seeded from the clock so ids handed out before a restart never look current afterwards
+    private final AtomicLong eventIds = new AtomicLong(System.currentTimeMillis());
+    private final Map<Long, CustomerChannel> channels = new ConcurrentHashMap<>();
+
+    @Value("${portal.events.timeout-ms:1800000}")
+    private long emitterTimeoutMillis;
+
+    @Value("${portal.events.replay-size:32}")
+    private int replaySize;
+
+    @Value("${portal.events.queue-size:64}")
+    private int queueSize;
+
+    @Value("${portal.events.max-connections-per-customer:5}")
+    private int maxConnectionsPerCustomer;
+
+    @Value("${portal.events.idle-channel-ms:600000}")
+    private long idleChannelMillis;
+
+    public CustomerEventStreamService(CustomerPortalService customerPortalService,
+                                      CustomerRepository customerRepository,
+                                      BillRepository billRepository,
+                                      ExecutorRegistry executorRegistry) {
+        this.customerPortalService = customerPortalService;
+        this.customerRepository = customerRepository;
+        this.billRepository = billRepository;
+        this.senders = executorRegistry.get(ExecutorRegistry.PORTAL_EVENTS);
+    }
+
+    public SseEmitter subscribe(String username, String lastEventId) {
+        Long customerId = customerRepository.findCustomerIdByUsername(username)
+            .orElseThrow(() -> new RuntimeException("No customer profile mapped to user: " + username));
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, queueSize);
+
+        // Attached inside compute so the idle sweep cannot drop the channel in between
+        long resumeFrom = parseEventId(lastEventId);
+        List<List<StreamEvent>> backlogHolder = new ArrayList<>(1);
+        CustomerChannel channel = channels.compute(customerId, (id, existing) -> {
+            CustomerChannel target = existing != null ? existing : new CustomerChannel(eventIds.get());
+            backlogHolder.add(target.attach(subscriber, resumeFrom, maxConnectionsPerCustomer));
+            return target;
+        });
+        List<StreamEvent> backlog = backlogHolder.get(0);
+        emitter.onCompletion(() -> channel.detach(subscriber));
+        emitter.onTimeout(() -> channel.detach(subscriber));
+        emitter.onError(error -> channel.detach(subscriber));
+
+        if (backlog == null) {
+            CustomerQuickSummary summary = customerPortalService.getQuickSummary(username);
+            enqueue(subscriber, SseEmitter.event()
+                .id(String.valueOf(eventIds.get()))
+                .name("snapshot")
+                .data(summary, MediaType.APPLICATION_JSON));
+        } else {
+            for (StreamEvent event : backlog) {
+                enqueue(subscriber, event.toSse());
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Runs on the committing thread, so only the subscriber check happens here; the
+     * outstanding-balance query and fan-out are handed to the sender pool.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBillGenerated(BillGeneratedEvent event) {
+        CustomerChannel channel = channels.get(event.customerId());
+        if (channel == null) {
+            skipEventId();
+            return;
+        }
+        publishAsync(channel, () -> new CustomerBalanceEvent(
+            "BILL_GENERATED",
+            event.billId(),
+            event.invoiceNumber(),
+            event.billStatus() != null ? event.billStatus().name() : null,
+            event.balanceAmount(),
+            null,
+            event.dueDate(),
+            outstandingFor(event.customerId())
+        ));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPaymentPosted(PaymentPostedEvent event) {
+        CustomerChannel channel = channels.get(event.customerId());
+        if (channel == null) {
+            skipEventId();
+            return;
+        }
+        publishAsync(channel, () -> new CustomerBalanceEvent(
+            "PAYMENT_POSTED",
+            event.billId(),
+            event.invoiceNumber(),
+            event.billStatus() != null ? event.billStatus().name() : null,
+            event.balanceAmount(),
+            event.paymentAmount(),
+            null,
+            outstandingFor(event.customerId())
+        ));
+    }
+
+    @Scheduled(fixedDelayString = "${portal.events.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        long cutoff = System.currentTimeMillis() - idleChannelMillis;
+        for (Long customerId : channels.keySet()) {
+            // Same bin lock as the attach in subscribe, so a channel gaining a subscriber is never dropped
+            channels.computeIfPresent(customerId, (id, channel) -> channel.isIdleSince(cutoff) ? null : channel);
+        }
+        for (CustomerChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                enqueue(subscriber, SseEmitter.event().comment("keepalive"));
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (CustomerChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private void publishAsync(CustomerChannel channel, Supplier<CustomerBalanceEvent> payload) {
+        try {
+            senders.execute(() -> {
+                try {
+                    publish(channel, payload.get());
+                } catch (RuntimeException ex) {
+                    log.warn("Unable to publish portal event: {}", ex.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.debug("Portal event senders unavailable: {}", ex.getMessage());
+            channel.skip(eventIds);
+        }
+    }
+
+    /**
+     * Consumes an id for an event nobody receives, so a client resuming from an id issued
+     * before it is below the floor of any channel created later and gets a fresh snapshot.
+     */
+    private long skipEventId() {
+        return eventIds.incrementAndGet();
+    }
+
+    /**
+     * Ids are allocated and fanned out under the channel lock, so the replay ring and every
+     * subscriber queue see a customer's events in id order.
+     */
+    private void publish(CustomerChannel channel, CustomerBalanceEvent payload) {
+        synchronized (channel) {
+            StreamEvent event = channel.record(eventIds, payload, replaySize);
+            for (Subscriber subscriber : channel.subscribers) {
+                enqueue(subscriber, event.toSse());
+            }
+        }
+    }
+
+    private BigDecimal outstandingFor(Long customerId) {
+        return Optional.ofNullable(billRepository.sumOutstandingAmountByCustomer(customerId))
+            .orElse(BigDecimal.ZERO)
+            .setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.queue.offer(event)) {
+            // The client is too far behind; closing makes it reconnect and resync from Last-Event-ID
+            log.debug("Closing slow portal event stream after {} queued events", subscriber.queue.size());
+            subscriber.queue.clear();
+            subscriber.emitter.complete();
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException ex) {
+            // Senders saturated: close the stream, the client resyncs from Last-Event-ID on reconnect
+            subscriber.queue.clear();
+            subscriber.draining.set(false);
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder next;
+            while ((next = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(next);
+            }
+        } catch (IOException | IllegalStateException ex) {
+            subscriber.queue.clear();
+            subscriber.emitter.completeWithError(ex);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private record StreamEvent(long id, CustomerBalanceEvent payload) {
+
+        SseEmitter.SseEventBuilder toSse() {
+            return SseEmitter.event()
+                .id(String.valueOf(id))
+                .name("balance")
+                .data(payload, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private static final class CustomerChannel {
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final Deque<StreamEvent> replay = new ArrayDeque<>();
+        // Reconnects whose Last-Event-ID is below this cannot be served from the ring
+        private long replayFloor;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private CustomerChannel(long replayFloor) {
+            this.replayFloor = replayFloor;
+        }
+
+        /**
+         * @return the events to replay, or {@code null} when a full snapshot is needed
+         */
+        private synchronized List<StreamEvent> attach(Subscriber subscriber, long lastEventId, int maxConnections) {
+            while (subscribers.size() >= maxConnections) {
+                subscribers.remove(0).emitter.complete();
+            }
+            subscribers.add(subscriber);
+            lastActivity = System.currentTimeMillis();
+
+            if (lastEventId < 0 || lastEventId < replayFloor) {
+                return null;
+            }
+            List<StreamEvent> missed = new ArrayList<>();
+            for (StreamEvent event : replay) {
+                if (event.id() > lastEventId) {
+                    missed.add(event);
+                }
+            }
+            return missed;
+        }
+
+        private void detach(Subscriber subscriber) {
+            subscribers.remove(subscriber);
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private synchronized StreamEvent record(AtomicLong ids, CustomerBalanceEvent payload, int capacity) {
+            StreamEvent event = new StreamEvent(ids.incrementAndGet(), payload);
+            replay.addLast(event);
+            while (replay.size() > capacity) {
+                replayFloor = replay.removeFirst().id();
+            }
+            lastActivity = System.currentTimeMillis();
+            return event;
+        }
+
+        /**
+         * Consumes the id of a dropped event, so resuming from before it needs a snapshot.
+         */
+        private synchronized void skip(AtomicLong ids) {
+            replayFloor = Math.max(replayFloor, ids.incrementAndGet());
+        }
+
+        private boolean isIdleSince(long cutoff) {
+            return subscribers.isEmpty() && lastActivity < cutoff;
+        }
+    }
+}
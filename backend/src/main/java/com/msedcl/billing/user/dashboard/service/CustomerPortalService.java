@@ -1,5 +1,6 @@
 package com.msedcl.billing.user.dashboard.service;
 
+import com.msedcl.billing.admin.billing.dto.BillDocumentProjection;
 import com.msedcl.billing.admin.customer.dto.customer.*;
 import com.msedcl.billing.shared.entity.*;
 import com.msedcl.billing.shared.repository.UserRepository;
@@ -9,6 +10,7 @@ import com.msedcl.billing.admin.billing.repository.BillRepository;
 import com.msedcl.billing.user.payment.repository.PaymentRepository;
 import com.msedcl.billing.admin.complaint.repository.ComplaintRepository;
 import com.msedcl.billing.admin.account.repository.MeterReadingRepository;
+import com.msedcl.billing.shared.service.WalletService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -46,6 +48,7 @@ public class CustomerPortalService {
     private final PaymentRepository paymentRepository;
     private final ComplaintRepository complaintRepository;
     private final MeterReadingRepository meterReadingRepository;
+    private final WalletService walletService;
 
     public CustomerDashboardResponse getDashboard(String username) {
         Customer customer = getCustomerForUser(username);
@@ -147,6 +150,20 @@ public class CustomerPortalService {
         return toBillDetail(bill);
     }
 
+    public BillDocumentProjection getBillDocument(String username, Long billId) {
+        Long customerId = customerRepository.findCustomerIdByUsername(username)
+            .orElseThrow(() -> new RuntimeException("No customer profile mapped to user: " + username));
+
+        BillDocumentProjection document = billRepository.findDocumentByBillId(billId)
+            .orElseThrow(() -> new RuntimeException("Bill not found with id: " + billId));
+
+        if (!document.getCustomerId().equals(customerId)) {
+            throw new RuntimeException("Bill does not belong to the authenticated customer");
+        }
+
+        return document;
+    }
+
     public List<PaymentSummaryDto> getAccountPayments(String username, Long accountId) {
         Customer customer = getCustomerForUser(username);
         Account account = getAccountForCustomer(customer, accountId);
@@ -321,7 +338,7 @@ public class CustomerPortalService {
             .transformerNo(areaDetails != null ? areaDetails.getTransformerNo() : null)
             .feederNo(areaDetails != null ? areaDetails.getFeederNo() : null)
             .poleNo(areaDetails != null ? areaDetails.getPoleNo() : null)
-            .advancePayment(customer.getAdvancePayment())
+            .advancePayment(walletService.getBalance(customer.getCustomerId()))
             .build();
     }
 
@@ -0,0 +1,35 @@
+package com.msedcl.billing.user.payment.controller;
+
+import com.msedcl.billing.user.payment.service.GatewaySimulatorService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "payments.webhook.simulator.enabled", havingValue = "true")
+public class GatewaySimulatorController {
+
+    private final GatewaySimulatorService gatewaySimulatorService;
+
+    @PostMapping("/admin/gateway-simulator/replay")
+    public ResponseEntity<?> replay(@RequestParam(defaultValue = "1000") int callbacks,
+                                    @RequestParam(defaultValue = "1") int perBill,
+                                    @RequestParam(defaultValue = "1.00") BigDecimal amount,
+                                    @RequestParam(defaultValue = "0.1") double duplicateRatio,
+                                    @RequestParam(defaultValue = "64") int concurrency) {
+        try {
+            return ResponseEntity.ok(gatewaySimulatorService.replay(callbacks, perBill, amount, duplicateRatio, concurrency));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
+    }
+}
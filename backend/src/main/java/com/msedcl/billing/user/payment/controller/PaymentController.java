@@ -1,17 +1,23 @@
 package com.msedcl.billing.user.payment.controller;
 
+import com.msedcl.billing.user.payment.dto.AccountPaymentReceipt;
+import com.msedcl.billing.user.payment.dto.AccountPaymentRequest;
+import com.msedcl.billing.user.payment.dto.PaymentLaneStats;
 import com.msedcl.billing.user.payment.dto.PaymentRequest;
 import com.msedcl.billing.shared.entity.Payment;
 import com.msedcl.billing.shared.entity.User;
 import com.msedcl.billing.user.payment.repository.PaymentRepository;
 import com.msedcl.billing.shared.repository.UserRepository;
+import com.msedcl.billing.user.payment.service.PaymentSequencer;
 import com.msedcl.billing.user.payment.service.PaymentService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -21,22 +27,49 @@ public class PaymentController {
     private final PaymentService paymentService;
     private final PaymentRepository paymentRepository;
     private final UserRepository userRepository;
+    private final PaymentSequencer paymentSequencer;
 
     @PostMapping("/payments")
     public ResponseEntity<?> recordPayment(@RequestBody PaymentRequest paymentRequest,
+                                           @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                            Authentication authentication,
                                            HttpServletRequest request) {
         User currentUser = userRepository.findByUsername(authentication.getName())
             .orElseThrow(() -> new RuntimeException("User not found"));
 
         try {
-            Payment savedPayment = paymentService.recordPayment(paymentRequest, currentUser, request.getRemoteAddr());
+            Payment savedPayment = paymentService.recordPayment(paymentRequest, idempotencyKey, currentUser, request.getRemoteAddr());
             return ResponseEntity.ok(savedPayment);
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
         }
     }
 
+    @PostMapping("/payments/account")
+    public ResponseEntity<?> recordAccountPayment(@RequestBody AccountPaymentRequest paymentRequest,
+                                                  @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                  Authentication authentication,
+                                                  HttpServletRequest request) {
+        User currentUser = userRepository.findByUsername(authentication.getName())
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        try {
+            AccountPaymentReceipt receipt = paymentService.recordAccountPayment(paymentRequest, idempotencyKey, currentUser, request.getRemoteAddr());
+            return ResponseEntity.ok(receipt);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
+    }
+
+    @GetMapping("/admin/payments/sequencer")
+    public ResponseEntity<List<PaymentLaneStats>> getSequencerStats() {
+        return ResponseEntity.ok(paymentSequencer.stats());
+    }
+
     @GetMapping("/admin/payments/bill/{billId}")
     public ResponseEntity<List<Payment>> getPaymentsForBill(@PathVariable Long billId) {
         return ResponseEntity.ok(paymentRepository.findByBill_BillIdOrderByPaymentDateDesc(billId));
@@ -79,11 +112,11 @@ public class PaymentController {
         User currentUser = userRepository.findByUsername(authentication.getName())
             .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Double advancePayment = paymentService.getAdvancePayment(currentUser);
+        BigDecimal advancePayment = paymentService.getAdvancePayment(currentUser);
         return ResponseEntity.ok(new AdvancePaymentResponse("Current advance payment", advancePayment));
     }
 
     // DTOs for advance payment
-    public record AdvancePaymentRequest(Double amount) {}
-    public record AdvancePaymentResponse(String message, Double balance) {}
+    public record AdvancePaymentRequest(BigDecimal amount) {}
+    public record AdvancePaymentResponse(String message, BigDecimal balance) {}
 }
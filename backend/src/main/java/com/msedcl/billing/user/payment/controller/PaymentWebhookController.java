@@ -0,0 +1,40 @@
+package com.msedcl.billing.user.payment.controller;
+
+import com.msedcl.billing.user.payment.service.PaymentWebhookService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Gateway payment callbacks. The body is taken as raw bytes so the signature is
+ * checked against exactly what the gateway signed.
+ */
+@RestController
+@RequiredArgsConstructor
+public class PaymentWebhookController {
+
+    private final PaymentWebhookService paymentWebhookService;
+
+    @PostMapping("/webhooks/payments/{gateway}")
+    public ResponseEntity<?> receive(@PathVariable String gateway,
+                                     @RequestHeader(value = "X-Webhook-Timestamp", required = false) String timestamp,
+                                     @RequestHeader(value = "X-Webhook-Signature", required = false) String signature,
+                                     @RequestBody byte[] body) {
+        if (!paymentWebhookService.verifySignature(timestamp, signature, body)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid webhook signature");
+        }
+        try {
+            PaymentWebhookService.Outcome outcome = paymentWebhookService.accept(gateway, body);
+            return ResponseEntity.ok(new WebhookAck(outcome.name()));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    public record WebhookAck(String status) {}
+}
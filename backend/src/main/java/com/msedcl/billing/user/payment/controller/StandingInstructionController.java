@@ -0,0 +1,69 @@
+package com.msedcl.billing.user.payment.controller;
+
+import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.shared.repository.UserRepository;
+import com.msedcl.billing.user.payment.dto.AutoDebitRunReport;
+import com.msedcl.billing.user.payment.dto.StandingInstructionRequest;
+import com.msedcl.billing.user.payment.dto.StandingInstructionResponse;
+import com.msedcl.billing.user.payment.service.AutoDebitService;
+import com.msedcl.billing.user.payment.service.StandingInstructionService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class StandingInstructionController {
+
+    private final StandingInstructionService standingInstructionService;
+    private final AutoDebitService autoDebitService;
+    private final UserRepository userRepository;
+
+    @GetMapping("/customer/standing-instructions")
+    public ResponseEntity<List<StandingInstructionResponse>> getInstructions(Authentication authentication) {
+        return ResponseEntity.ok(standingInstructionService.getInstructions(authentication.getName()));
+    }
+
+    @PutMapping("/customer/standing-instructions")
+    public ResponseEntity<?> register(@RequestBody StandingInstructionRequest instructionRequest,
+                                      Authentication authentication,
+                                      HttpServletRequest request) {
+        User currentUser = userRepository.findByUsername(authentication.getName())
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        try {
+            return ResponseEntity.ok(standingInstructionService.register(instructionRequest, currentUser, request.getRemoteAddr()));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    @DeleteMapping("/customer/standing-instructions/{instructionId}")
+    public ResponseEntity<Void> cancel(@PathVariable Long instructionId,
+                                       Authentication authentication,
+                                       HttpServletRequest request) {
+        User currentUser = userRepository.findByUsername(authentication.getName())
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        standingInstructionService.cancel(instructionId, currentUser, request.getRemoteAddr());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/admin/auto-debit/run")
+    public ResponseEntity<?> runAutoDebit(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                          Authentication authentication) {
+        try {
+            AutoDebitRunReport report = autoDebitService.run(date != null ? date : LocalDate.now(), authentication.getName());
+            return ResponseEntity.ok(report);
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        }
+    }
+}
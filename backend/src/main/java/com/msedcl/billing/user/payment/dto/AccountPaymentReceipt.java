@@ -0,0 +1,28 @@
+package com.msedcl.billing.user.payment.dto;
+
+import com.msedcl.billing.shared.entity.Bill;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record AccountPaymentReceipt(String receiptNumber,
+                                    Long accountId,
+                                    String accountNumber,
+                                    LocalDateTime paymentDate,
+                                    String paymentMode,
+                                    String transactionId,
+                                    BigDecimal paymentAmount,
+                                    BigDecimal convenienceFee,
+                                    BigDecimal netAmount,
+                                    BigDecimal creditedToWallet,
+                                    List<Allocation> allocations) {
+
+    public record Allocation(Long paymentId,
+                             Long billId,
+                             String invoiceNumber,
+                             BigDecimal amountApplied,
+                             BigDecimal balanceAfter,
+                             Bill.BillStatus billStatus) {
+    }
+}
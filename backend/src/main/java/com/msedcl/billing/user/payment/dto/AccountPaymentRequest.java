@@ -0,0 +1,22 @@
+package com.msedcl.billing.user.payment.dto;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class AccountPaymentRequest {
+    private Long accountId;
+    private BigDecimal paymentAmount;
+    private String paymentMode;
+    // OLDEST_FIRST (default), OVERDUE_FIRST or SMALLEST_FIRST
+    private String allocationPolicy;
+    private Boolean creditExcessToWallet;
+    private String transactionId;
+    private String chequeNumber;
+    private String chequeDate;
+    private String bankName;
+    private String remarks;
+    private String paymentChannel;
+    private String upiReference;
+    private String idempotencyKey;
+}
@@ -0,0 +1,16 @@
+package com.msedcl.billing.user.payment.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record AutoDebitRunReport(LocalDate runDate,
+                                 long billsSelected,
+                                 long settled,
+                                 long partial,
+                                 long insufficientFunds,
+                                 long limitExceeded,
+                                 long failed,
+                                 long instructionsSuspended,
+                                 BigDecimal amountCollected,
+                                 long elapsedMillis) {
+}
@@ -0,0 +1,11 @@
+package com.msedcl.billing.user.payment.dto;
+
+public interface ClaimedWebhookEventProjection {
+    Long getEventId();
+    String getGateway();
+    String getGatewayEventId();
+    Long getBillId();
+    Long getAccountId();
+    String getPayload();
+    Integer getAttempts();
+}
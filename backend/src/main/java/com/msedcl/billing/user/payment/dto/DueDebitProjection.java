@@ -0,0 +1,12 @@
+package com.msedcl.billing.user.payment.dto;
+
+import java.math.BigDecimal;
+
+public interface DueDebitProjection {
+    Long getBillId();
+    Long getCustomerId();
+    Long getInstructionId();
+    String getSource();
+    BigDecimal getMaxAmount();
+    BigDecimal getBalanceAmount();
+}
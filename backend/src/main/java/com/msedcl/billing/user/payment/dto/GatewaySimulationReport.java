@@ -0,0 +1,11 @@
+package com.msedcl.billing.user.payment.dto;
+
+public record GatewaySimulationReport(int bills,
+                                      int callbacksSent,
+                                      int accepted,
+                                      int duplicates,
+                                      int rejected,
+                                      int errors,
+                                      long elapsedMillis,
+                                      double callbacksPerSecond) {
+}
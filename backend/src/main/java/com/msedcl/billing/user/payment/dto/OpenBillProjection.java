@@ -0,0 +1,18 @@
+package com.msedcl.billing.user.payment.dto;
+
+import com.msedcl.billing.shared.entity.Bill;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface OpenBillProjection {
+    Long getBillId();
+    String getInvoiceNumber();
+    LocalDate getBillDate();
+    LocalDate getDueDate();
+    BigDecimal getNetPayable();
+    BigDecimal getAmountPaid();
+    BigDecimal getBalanceAmount();
+    Bill.BillStatus getBillStatus();
+    Long getVersion();
+}
@@ -0,0 +1,14 @@
+package com.msedcl.billing.user.payment.dto;
+
+public record PaymentLaneStats(int lane,
+                               int queueDepth,
+                               int queueCapacity,
+                               long submitted,
+                               long completed,
+                               long failed,
+                               long rejected,
+                               double averageWaitMillis,
+                               double averageServiceMillis,
+                               double maxWaitMillis,
+                               double maxServiceMillis) {
+}
@@ -15,4 +15,5 @@ public class PaymentRequest {
     private String remarks;
     private String paymentChannel;
     private String upiReference;
+    private String idempotencyKey;
 }
@@ -0,0 +1,22 @@
+package com.msedcl.billing.user.payment.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Body of a gateway payment callback. Only {@code SUCCESS} callbacks are queued for
+ * posting; other statuses are acknowledged and dropped.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PaymentWebhookPayload {
+    private String eventId;
+    private String status;
+    private Long billId;
+    private BigDecimal amount;
+    private String paymentMode;
+    private String transactionId;
+    private String upiReference;
+}
@@ -0,0 +1,13 @@
+package com.msedcl.billing.user.payment.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class StandingInstructionRequest {
+    private Long accountId;
+    private String source;
+    private String mandateReference;
+    private BigDecimal maxAmount;
+}
@@ -0,0 +1,33 @@
+package com.msedcl.billing.user.payment.dto;
+
+import com.msedcl.billing.shared.entity.StandingInstruction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record StandingInstructionResponse(Long instructionId,
+                                          Long accountId,
+                                          String accountNumber,
+                                          String source,
+                                          String mandateReference,
+                                          BigDecimal maxAmount,
+                                          String status,
+                                          int consecutiveFailures,
+                                          LocalDate lastRunDate,
+                                          String lastOutcome) {
+
+    public static StandingInstructionResponse of(StandingInstruction instruction) {
+        return new StandingInstructionResponse(
+            instruction.getInstructionId(),
+            instruction.getAccount().getAccountId(),
+            instruction.getAccount().getAccountNumber(),
+            instruction.getSource().name(),
+            instruction.getMandateReference(),
+            instruction.getMaxAmount(),
+            instruction.getStatus().name(),
+            instruction.getConsecutiveFailures(),
+            instruction.getLastRunDate(),
+            instruction.getLastOutcome()
+        );
+    }
+}
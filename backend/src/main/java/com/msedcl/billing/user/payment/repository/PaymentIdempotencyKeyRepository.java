@@ -0,0 +1,31 @@
+package com.msedcl.billing.user.payment.repository;
+
+import com.msedcl.billing.shared.entity.PaymentIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PaymentIdempotencyKeyRepository extends JpaRepository<PaymentIdempotencyKey, String> {
+
+    /**
+     * Plain insert so a concurrent request with the same key blocks on the primary key
+     * and fails with a duplicate-key error once the first one commits.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment_idempotency_keys (idempotency_key, request_hash, created_at) " +
+                   "VALUES (:key, :requestHash, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash);
+
+    @Modifying
+    @Query("UPDATE PaymentIdempotencyKey k SET k.paymentId = :paymentId WHERE k.idempotencyKey = :key")
+    int attachPayment(@Param("key") String key, @Param("paymentId") Long paymentId);
+
+    @Modifying
+    @Query("DELETE FROM PaymentIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
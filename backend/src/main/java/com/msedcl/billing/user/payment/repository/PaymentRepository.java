@@ -2,12 +2,14 @@ package com.msedcl.billing.user.payment.repository;
 
 import com.msedcl.billing.shared.entity.Payment;
 import com.msedcl.billing.user.payment.dto.MonthlyCollectionProjection;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,4 +32,24 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
            "FROM Payment p WHERE p.paymentStatus = 'SUCCESS' AND p.paymentDate >= :since " +
            "GROUP BY YEAR(p.paymentDate), MONTH(p.paymentDate) ORDER BY year, month")
     List<MonthlyCollectionProjection> findMonthlyCollections(LocalDateTime since);
+
+    @Query("SELECT YEAR(p.paymentDate) AS year, MONTH(p.paymentDate) AS month, COALESCE(SUM(p.paymentAmount), 0) AS totalAmount " +
+           "FROM Payment p WHERE p.paymentStatus = 'SUCCESS' AND p.paymentDate >= :since AND p.paymentDate < :until " +
+           "GROUP BY YEAR(p.paymentDate), MONTH(p.paymentDate) ORDER BY year, month")
+    List<MonthlyCollectionProjection> findMonthlyCollectionsBetween(LocalDateTime since, LocalDateTime until);
+
+    @Query("SELECT p.transactionId FROM Payment p WHERE p.transactionId IN :transactionIds")
+    List<String> findExistingTransactionIds(Collection<String> transactionIds);
+
+    @Query("SELECT p.upiReference FROM Payment p WHERE p.upiReference IN :upiReferences")
+    List<String> findExistingUpiReferences(Collection<String> upiReferences);
+
+    @EntityGraph(attributePaths = {"bill"})
+    List<Payment> findByReceiptNumberOrderByPaymentIdAsc(String receiptNumber);
+
+    boolean existsByTransactionId(String transactionId);
+
+    boolean existsByUpiReference(String upiReference);
+
+    boolean existsByPaymentReference(String paymentReference);
 }
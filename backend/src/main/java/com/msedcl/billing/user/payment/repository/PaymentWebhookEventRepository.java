@@ -0,0 +1,87 @@
+package com.msedcl.billing.user.payment.repository;
+
+import com.msedcl.billing.shared.entity.PaymentWebhookEvent;
+import com.msedcl.billing.user.payment.dto.ClaimedWebhookEventProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, Long> {
+
+    /**
+     * Stores a callback unless the same gateway event was already received.
+     * Returns 0 for a gateway retry.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO payment_webhook_events (gateway, gateway_event_id, bill_id, payload) " +
+                   "VALUES (:gateway, :gatewayEventId, :billId, :payload)", nativeQuery = true)
+    int enqueue(@Param("gateway") String gateway,
+                @Param("gatewayEventId") String gatewayEventId,
+                @Param("billId") Long billId,
+                @Param("payload") String payload);
+
+    /**
+     * Marks the oldest due events as claimed by this worker, skipping any event whose
+     * account has an earlier event claimed or backing off. Because the rows are claimed
+     * with one UPDATE that re-checks their status, two application instances never get
+     * the same event.
+     */
+    @Modifying
+    @Query(value = "UPDATE payment_webhook_events SET status = 'PROCESSING', claimed_by = :worker, claimed_at = :now " +
+                   "WHERE event_id IN (SELECT event_id FROM (" +
+                   "SELECT e.event_id FROM payment_webhook_events e LEFT JOIN bills b ON b.bill_id = e.bill_id " +
+                   "WHERE e.status = 'PENDING' AND e.next_attempt_at <= :now " +
+                   // An earlier event of the same account that is in flight or backing off holds the rest back
+                   "AND NOT EXISTS (SELECT 1 FROM bills ab JOIN payment_webhook_events p ON p.bill_id = ab.bill_id " +
+                   "WHERE ab.account_id = b.account_id AND p.event_id < e.event_id " +
+                   "AND (p.status = 'PROCESSING' OR (p.status = 'PENDING' AND p.next_attempt_at > :now))) " +
+                   "ORDER BY e.event_id LIMIT :limit) due) AND status = 'PENDING'", nativeQuery = true)
+    int claimDue(@Param("worker") String worker, @Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query("SELECT e.eventId AS eventId, e.gateway AS gateway, e.gatewayEventId AS gatewayEventId, " +
+           "e.billId AS billId, b.account.accountId AS accountId, e.payload AS payload, e.attempts AS attempts " +
+           "FROM PaymentWebhookEvent e LEFT JOIN Bill b ON b.billId = e.billId " +
+           "WHERE e.claimedBy = :worker AND e.status = 'PROCESSING' ORDER BY e.eventId")
+    List<ClaimedWebhookEventProjection> findClaimed(@Param("worker") String worker);
+
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = 'POSTED', e.paymentId = :paymentId, e.attempts = e.attempts + 1, " +
+           "e.claimedBy = NULL, e.lastError = NULL, e.processedAt = :now WHERE e.eventId = :eventId")
+    int markPosted(@Param("eventId") Long eventId, @Param("paymentId") Long paymentId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = :status, e.attempts = e.attempts + 1, e.claimedBy = NULL, " +
+           "e.lastError = :error, e.processedAt = :now WHERE e.eventId = :eventId")
+    int markFinished(@Param("eventId") Long eventId,
+                     @Param("status") PaymentWebhookEvent.Status status,
+                     @Param("error") String error,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = 'PENDING', e.attempts = e.attempts + 1, e.claimedBy = NULL, " +
+           "e.lastError = :error, e.nextAttemptAt = :nextAttemptAt WHERE e.eventId = :eventId")
+    int scheduleRetry(@Param("eventId") Long eventId,
+                      @Param("error") String error,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Hands claimed events back without counting an attempt, used to keep an account's
+     * later callbacks behind one that is waiting for a retry.
+     */
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = 'PENDING', e.claimedBy = NULL, e.nextAttemptAt = :nextAttemptAt " +
+           "WHERE e.eventId IN :eventIds AND e.status = 'PROCESSING'")
+    int release(@Param("eventIds") Collection<Long> eventIds, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = 'PENDING', e.claimedBy = NULL " +
+           "WHERE e.status = 'PROCESSING' AND e.claimedAt < :cutoff")
+    int releaseStale(@Param("cutoff") LocalDateTime cutoff);
+}
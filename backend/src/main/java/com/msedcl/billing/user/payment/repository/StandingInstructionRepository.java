@@ -0,0 +1,45 @@
+package com.msedcl.billing.user.payment.repository;
+
+import com.msedcl.billing.shared.entity.StandingInstruction;
+import com.msedcl.billing.user.payment.dto.DueDebitProjection;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StandingInstructionRepository extends JpaRepository<StandingInstruction, Long> {
+
+    Optional<StandingInstruction> findByAccountAccountId(Long accountId);
+
+    @EntityGraph(attributePaths = "account")
+    List<StandingInstruction> findByAccountCustomerCustomerIdOrderByInstructionIdAsc(Long customerId);
+
+    /**
+     * Every open bill due in {@code [from, runDate]} on an account with an active
+     * instruction, skipping bills already attempted on {@code runDate} and bills that were
+     * already debited up to the instruction's limit. Driven by idx_bill_due_status.
+     */
+    @Query(value = "SELECT b.bill_id AS billId, a.customer_id AS customerId, si.instruction_id AS instructionId, " +
+                   "si.source AS source, si.max_amount AS maxAmount, " +
+                   "COALESCE(b.balance_amount, b.net_payable) AS balanceAmount " +
+                   "FROM bills b " +
+                   "JOIN standing_instructions si ON si.account_id = b.account_id AND si.status = 'ACTIVE' " +
+                   "JOIN accounts a ON a.account_id = b.account_id " +
+                   "WHERE b.due_date BETWEEN :from AND :runDate " +
+                   "AND b.bill_status IN ('UNPAID', 'PARTIALLY_PAID', 'OVERDUE') " +
+                   "AND COALESCE(b.balance_amount, b.net_payable) > 0 " +
+                   "AND NOT EXISTS (SELECT 1 FROM auto_debit_attempts ada WHERE ada.bill_id = b.bill_id " +
+                   "AND (ada.run_date = :runDate OR ada.outcome = 'LIMIT_EXCEEDED')) " +
+                   "ORDER BY a.customer_id, b.due_date, b.bill_id", nativeQuery = true)
+    List<DueDebitProjection> findDueDebits(@Param("from") LocalDate from, @Param("runDate") LocalDate runDate);
+
+    @Query(value = "SELECT COUNT(*) FROM standing_instructions WHERE status = 'SUSPENDED' " +
+                   "AND last_run_date = :runDate AND consecutive_failures >= :threshold", nativeQuery = true)
+    long countSuspendedOn(@Param("runDate") LocalDate runDate, @Param("threshold") int threshold);
+}
@@ -0,0 +1,322 @@
+package com.msedcl.billing.user.payment.service;
+
+import com.msedcl.billing.admin.audit.service.AuditLogService;
+import com.msedcl.billing.shared.entity.Payment;
+import com.msedcl.billing.shared.entity.StandingInstruction;
+import com.msedcl.billing.shared.service.WalletService;
+import com.msedcl.billing.user.payment.dto.AutoDebitRunReport;
+import com.msedcl.billing.user.payment.dto.DueDebitProjection;
+import com.msedcl.billing.user.payment.repository.StandingInstructionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Settles due bills from standing instructions. One query selects every eligible bill
+ * for the run; bills are then posted through {@link PaymentService} in chunks, each
+ * chunk in its own transaction. A chunk that hits a version conflict is retried, and
+ * one that keeps failing is replayed bill by bill so a single bad bill cannot hold
+ * back the rest.
+ * <p>
+ * Retry policy: a bill that could not be settled is attempted again on each following
+ * day until {@code auto-debit.retry-days} after its due date, except when the amount due
+ * exceeds the instruction's maximum: that much is debited once and the rest is left to
+ * the customer (LIMIT_EXCEEDED). Only wallet instructions
+ * are debited; a mandate instruction registered earlier fails on every run until it is
+ * suspended.
+ * <p>
+ * Each instruction is updated once per run, after all its bills have been tried: the run
+ * counts as a success if any of its bills settled, leaves the failure streak unchanged if
+ * money was collected without settling anything (PARTIAL, LIMIT_EXCEEDED), and counts as
+ * one failure otherwise. An instruction that fails
+ * {@code auto-debit.max-consecutive-failures} runs in a row is suspended.
+ */
+@Service
+@Slf4j
+public class AutoDebitService {
+
+    public enum Outcome {
+        SETTLED, PARTIAL, INSUFFICIENT_FUNDS, LIMIT_EXCEEDED, FAILED
+    }
+
+    private static final String INSERT_ATTEMPT =
+        "INSERT IGNORE INTO auto_debit_attempts (instruction_id, bill_id, run_date, outcome, amount, message) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_INSTRUCTION =
+        "UPDATE standing_instructions SET last_run_date = ?, last_outcome = ?, " +
+        "consecutive_failures = CASE WHEN ? THEN 0 WHEN ? THEN consecutive_failures + 1 ELSE consecutive_failures END, " +
+        // MySQL applies SET assignments left to right, so this sees the incremented count
+        "status = CASE WHEN status = 'ACTIVE' AND ? AND consecutive_failures >= ? THEN 'SUSPENDED' ELSE status END " +
+        // A run already recorded for this day is not counted twice
+        "WHERE instruction_id = ? AND (last_run_date IS NULL OR last_run_date < ?)";
+
+    private final StandingInstructionRepository standingInstructionRepository;
+    private final PaymentService paymentService;
+    private final WalletService walletService;
+    private final AuditLogService auditLogService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${auto-debit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auto-debit.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${auto-debit.retry-days:3}")
+    private int retryDays;
+
+    @Value("${auto-debit.max-consecutive-failures:3}")
+    private int maxConsecutiveFailures;
+
+    @Value("${auto-debit.max-chunk-attempts:3}")
+    private int maxChunkAttempts;
+
+    public AutoDebitService(StandingInstructionRepository standingInstructionRepository,
+                            PaymentService paymentService,
+                            WalletService walletService,
+                            AuditLogService auditLogService,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager) {
+        this.standingInstructionRepository = standingInstructionRepository;
+        this.paymentService = paymentService;
+        this.walletService = walletService;
+        this.auditLogService = auditLogService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${auto-debit.cron:0 0 6 * * ?}")
+    public void runScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            run(LocalDate.now(), "SYSTEM");
+        } catch (IllegalStateException ex) {
+            log.warn("Skipping scheduled auto-debit run: {}", ex.getMessage());
+        }
+    }
+
+    public AutoDebitRunReport run(LocalDate runDate, String triggeredBy) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An auto-debit run is already in progress");
+        }
+        try {
+            long started = System.currentTimeMillis();
+            List<DueDebitProjection> due = standingInstructionRepository.findDueDebits(runDate.minusDays(retryDays), runDate);
+            Tally tally = new Tally();
+            for (int from = 0; from < due.size(); from += chunkSize) {
+                processChunk(due.subList(from, Math.min(from + chunkSize, due.size())), runDate, tally);
+            }
+            transactionTemplate.executeWithoutResult(status -> updateInstructions(tally.instructionOutcomes, runDate));
+
+            AutoDebitRunReport report = new AutoDebitRunReport(
+                runDate,
+                due.size(),
+                tally.count(Outcome.SETTLED),
+                tally.count(Outcome.PARTIAL),
+                tally.count(Outcome.INSUFFICIENT_FUNDS),
+                tally.count(Outcome.LIMIT_EXCEEDED),
+                tally.count(Outcome.FAILED),
+                standingInstructionRepository.countSuspendedOn(runDate, maxConsecutiveFailures),
+                tally.amountCollected.setScale(2, RoundingMode.HALF_UP),
+                System.currentTimeMillis() - started
+            );
+
+            auditLogService.record(triggeredBy,
+                "AUTO_DEBIT_RUN",
+                "StandingInstruction",
+                null,
+                String.format("Auto-debit run for %s: %d bills, %d settled, %d partial, %d insufficient funds, %d over limit, %d failed, ₹%s collected, %d instructions suspended",
+                    runDate, report.billsSelected(), report.settled(), report.partial(), report.insufficientFunds(),
+                    report.limitExceeded(), report.failed(), report.amountCollected(), report.instructionsSuspended()),
+                null);
+            log.info("Auto-debit run for {} finished in {} ms: {} bills, {} settled", runDate, report.elapsedMillis(),
+                report.billsSelected(), report.settled());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void processChunk(List<DueDebitProjection> chunk, LocalDate runDate, Tally tally) {
+        for (int attempt = 1; attempt <= maxChunkAttempts; attempt++) {
+            try {
+                tally.record(transactionTemplate.execute(status -> postChunk(chunk, runDate)));
+                return;
+            } catch (OptimisticLockingFailureException ex) {
+                // A counter or online payment touched one of the chunk's bills; re-read and try again
+                log.debug("Retrying auto-debit chunk after version conflict (attempt {})", attempt);
+            } catch (RuntimeException ex) {
+                log.warn("Auto-debit chunk failed, posting its bills one at a time: {}", ex.getMessage());
+                break;
+            }
+        }
+        for (DueDebitProjection debit : chunk) {
+            try {
+                tally.record(transactionTemplate.execute(status -> postChunk(List.of(debit), runDate)));
+            } catch (RuntimeException ex) {
+                log.warn("Auto-debit of bill {} failed: {}", debit.getBillId(), ex.getMessage());
+                tally.record(transactionTemplate.execute(status ->
+                    recordResults(List.of(new DebitResult(debit, Outcome.FAILED, BigDecimal.ZERO, ex.getMessage())), runDate)));
+            }
+        }
+    }
+
+    private ChunkResult postChunk(List<DueDebitProjection> chunk, LocalDate runDate) {
+        Set<Long> customerIds = new HashSet<>();
+        for (DueDebitProjection debit : chunk) {
+            customerIds.add(debit.getCustomerId());
+        }
+        Map<Long, BigDecimal> wallets = walletService.getBalances(customerIds);
+
+        List<DebitResult> results = new ArrayList<>(chunk.size());
+        for (DueDebitProjection debit : chunk) {
+            BigDecimal balance = debit.getBalanceAmount().setScale(2, RoundingMode.HALF_UP);
+            BigDecimal available = wallets.getOrDefault(debit.getCustomerId(), BigDecimal.ZERO).max(BigDecimal.ZERO).min(balance);
+            boolean capped = debit.getMaxAmount() != null && available.compareTo(debit.getMaxAmount()) > 0;
+            BigDecimal walletShare = capped ? debit.getMaxAmount() : available;
+            StandingInstruction.Source source = StandingInstruction.Source.valueOf(debit.getSource());
+
+            if (source == StandingInstruction.Source.WALLET && walletShare.compareTo(BigDecimal.ZERO) <= 0) {
+                results.add(new DebitResult(debit, Outcome.INSUFFICIENT_FUNDS, BigDecimal.ZERO, "Wallet balance is empty"));
+                continue;
+            }
+            if (source == StandingInstruction.Source.MANDATE) {
+                results.add(new DebitResult(debit, Outcome.FAILED, BigDecimal.ZERO,
+                    "Bank mandate debits are not supported; register a wallet instruction"));
+                continue;
+            }
+
+            BigDecimal collected = BigDecimal.ZERO;
+            for (Payment payment : paymentService.postStandingInstructionDebit(debit.getBillId(), source,
+                    debit.getInstructionId(), debit.getMaxAmount())) {
+                collected = collected.add(payment.getPaymentAmount());
+            }
+            wallets.merge(debit.getCustomerId(), walletShare.negate(), BigDecimal::add);
+
+            if (capped && collected.compareTo(balance) < 0) {
+                results.add(new DebitResult(debit, Outcome.LIMIT_EXCEEDED, collected,
+                    "Debited the instruction limit of ₹" + debit.getMaxAmount() + "; ₹" + balance.subtract(collected)
+                        + " remains due"));
+                continue;
+            }
+            Outcome outcome = collected.compareTo(balance) >= 0
+                ? Outcome.SETTLED
+                : collected.compareTo(BigDecimal.ZERO) > 0 ? Outcome.PARTIAL : Outcome.INSUFFICIENT_FUNDS;
+            results.add(new DebitResult(debit, outcome, collected, null));
+        }
+        return recordResults(results, runDate);
+    }
+
+    private ChunkResult recordResults(List<DebitResult> results, LocalDate runDate) {
+        Date day = Date.valueOf(runDate);
+        List<Object[]> attemptRows = new ArrayList<>(results.size());
+        ChunkResult chunkResult = new ChunkResult();
+        for (DebitResult result : results) {
+            attemptRows.add(new Object[]{
+                result.debit.getInstructionId(),
+                result.debit.getBillId(),
+                day,
+                result.outcome.name(),
+                result.amount,
+                truncate(result.message)
+            });
+            chunkResult.add(result);
+        }
+        jdbcTemplate.batchUpdate(INSERT_ATTEMPT, attemptRows);
+        return chunkResult;
+    }
+
+    private void updateInstructions(Map<Long, Outcome> outcomes, LocalDate runDate) {
+        if (outcomes.isEmpty()) {
+            return;
+        }
+        Date day = Date.valueOf(runDate);
+        List<Object[]> rows = new ArrayList<>(outcomes.size());
+        for (Map.Entry<Long, Outcome> entry : outcomes.entrySet()) {
+            Outcome outcome = entry.getValue();
+            boolean success = outcome == Outcome.SETTLED;
+            boolean failure = outcome == Outcome.INSUFFICIENT_FUNDS || outcome == Outcome.FAILED;
+            rows.add(new Object[]{day, outcome.name(), success, failure, failure, maxConsecutiveFailures,
+                entry.getKey(), day});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_INSTRUCTION, rows);
+    }
+
+    /**
+     * Orders outcomes for summarising an instruction's run: the lower rank wins, so one
+     * settled bill makes the run a success and any collection outranks a failure.
+     */
+    private static int rank(Outcome outcome) {
+        return switch (outcome) {
+            case SETTLED -> 0;
+            case PARTIAL -> 1;
+            case LIMIT_EXCEEDED -> 2;
+            case INSUFFICIENT_FUNDS -> 3;
+            case FAILED -> 4;
+        };
+    }
+
+    private static Outcome better(Outcome a, Outcome b) {
+        return rank(a) <= rank(b) ? a : b;
+    }
+
+    private static String truncate(String message) {
+        return message == null || message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    private record DebitResult(DueDebitProjection debit, Outcome outcome, BigDecimal amount, String message) {
+    }
+
+    private static final class ChunkResult {
+        private final long[] counts = new long[Outcome.values().length];
+        private final Map<Long, Outcome> instructionOutcomes = new HashMap<>();
+        private BigDecimal amountCollected = BigDecimal.ZERO;
+
+        private void add(DebitResult result) {
+            counts[result.outcome.ordinal()]++;
+            amountCollected = amountCollected.add(result.amount);
+            instructionOutcomes.merge(result.debit.getInstructionId(), result.outcome, AutoDebitService::better);
+        }
+    }
+
+    private static final class Tally {
+        private final long[] counts = new long[Outcome.values().length];
+        private final Map<Long, Outcome> instructionOutcomes = new HashMap<>();
+        private BigDecimal amountCollected = BigDecimal.ZERO;
+
+        private void record(ChunkResult result) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += result.counts[i];
+            }
+            amountCollected = amountCollected.add(result.amountCollected);
+            result.instructionOutcomes.forEach((id, outcome) -> instructionOutcomes.merge(id, outcome, AutoDebitService::better));
+        }
+
+        private long count(Outcome outcome) {
+            return counts[outcome.ordinal()];
+        }
+    }
+}
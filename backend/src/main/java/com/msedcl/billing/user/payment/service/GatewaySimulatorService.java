@@ -0,0 +1,160 @@
+package com.msedcl.billing.user.payment.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msedcl.billing.admin.billing.repository.BillRepository;
+import com.msedcl.billing.user.payment.dto.GatewaySimulationReport;
+import com.msedcl.billing.user.payment.dto.PaymentWebhookPayload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a payment gateway, enabled only with
+ * {@code payments.webhook.simulator.enabled=true}. It signs callbacks for open bills
+ * with the configured webhook secret and fires them at this application's webhook
+ * endpoint, re-sending a share of them to exercise deduplication.
+ */
+@Service
+@ConditionalOnProperty(name = "payments.webhook.simulator.enabled", havingValue = "true")
+@Slf4j
+public class GatewaySimulatorService {
+
+    public static final String GATEWAY = "simulator";
+
+    private final BillRepository billRepository;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    @Value("${payments.webhook.secret:}")
+    private String secret;
+
+    @Value("${payments.webhook.simulator.target-url:http://localhost:${server.port:8080}${server.servlet.context-path:}/webhooks/payments/simulator}")
+    private String targetUrl;
+
+    public GatewaySimulatorService(BillRepository billRepository, ObjectMapper objectMapper) {
+        this.billRepository = billRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param callbacks      callbacks to send, duplicates included
+     * @param perBill        successful callbacks per bill, so several land on the same account
+     * @param amount         amount paid by each callback
+     * @param duplicateRatio share of callbacks that repeat an earlier event verbatim
+     * @param concurrency    requests in flight at once
+     */
+    public GatewaySimulationReport replay(int callbacks, int perBill, BigDecimal amount,
+                                          double duplicateRatio, int concurrency) {
+        if (callbacks <= 0 || perBill <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("callbacks, perBill and concurrency must be positive");
+        }
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("amount must be greater than zero");
+        }
+        if (duplicateRatio < 0 || duplicateRatio >= 1) {
+            throw new IllegalArgumentException("duplicateRatio must be in [0, 1)");
+        }
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("payments.webhook.secret is not configured");
+        }
+
+        BigDecimal perPayment = amount.setScale(2, RoundingMode.HALF_UP);
+        int unique = Math.max(1, (int) Math.round(callbacks * (1 - duplicateRatio)));
+        int billCount = (unique + perBill - 1) / perBill;
+        List<Long> billIds = billRepository.findOpenBillIds(
+            perPayment.multiply(BigDecimal.valueOf(perBill)), PageRequest.of(0, billCount));
+        if (billIds.isEmpty()) {
+            throw new IllegalStateException("No open bills with enough balance to simulate against");
+        }
+
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        List<byte[]> bodies = new ArrayList<>(unique);
+        for (int i = 0; i < unique && i < billIds.size() * perBill; i++) {
+            bodies.add(body(runId, i, billIds.get(i % billIds.size()), perPayment));
+        }
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+        List<CompletableFuture<Void>> sends = new ArrayList<>(callbacks);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < callbacks; i++) {
+            byte[] payload = i < bodies.size()
+                ? bodies.get(i)
+                : bodies.get(ThreadLocalRandom.current().nextInt(bodies.size()));
+            inFlight.acquireUninterruptibly();
+            sends.add(httpClient.sendAsync(signedRequest(payload), HttpResponse.BodyHandlers.ofString())
+                .handle((response, failure) -> {
+                    inFlight.release();
+                    if (failure != null) {
+                        errors.incrementAndGet();
+                    } else if (response.statusCode() != 200) {
+                        rejected.incrementAndGet();
+                    } else if (response.body().contains("DUPLICATE")) {
+                        duplicates.incrementAndGet();
+                    } else {
+                        accepted.incrementAndGet();
+                    }
+                    return null;
+                }));
+        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+
+        log.info("Gateway simulation {}: {} callbacks in {} ms ({} accepted, {} duplicates, {} rejected, {} errors)",
+            runId, callbacks, elapsedMillis, accepted.get(), duplicates.get(), rejected.get(), errors.get());
+        return new GatewaySimulationReport(billIds.size(), callbacks, accepted.get(), duplicates.get(),
+            rejected.get(), errors.get(), elapsedMillis, callbacks * 1000.0 / elapsedMillis);
+    }
+
+    private byte[] body(String runId, int sequence, Long billId, BigDecimal amount) {
+        PaymentWebhookPayload payload = new PaymentWebhookPayload();
+        payload.setEventId("sim-" + runId + "-" + sequence);
+        payload.setStatus("SUCCESS");
+        payload.setBillId(billId);
+        payload.setAmount(amount);
+        payload.setPaymentMode("ONLINE");
+        payload.setTransactionId("SIM-" + runId + "-" + sequence);
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to serialise simulated callback", ex);
+        }
+    }
+
+    private HttpRequest signedRequest(byte[] body) {
+        String timestamp = Long.toString(System.currentTimeMillis() / 1000);
+        String signature = HexFormat.of().formatHex(PaymentWebhookService.sign(secret, timestamp, body));
+        return HttpRequest.newBuilder(URI.create(targetUrl))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .header("X-Webhook-Timestamp", timestamp)
+            .header("X-Webhook-Signature", signature)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.msedcl.billing.user.payment.service;
+
+import com.msedcl.billing.user.payment.dto.PaymentLaneStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs payment postings on a fixed set of single-threaded lanes chosen by account id.
+ * Postings for one account execute one at a time in submission order, so they no
+ * longer collide on the same bill row, while different accounts proceed on other
+ * lanes. Each lane has a bounded queue; a full lane rejects instead of piling up
+ * request threads. Per-lane queue depth and latency are exposed through {@link #stats()}.
+ */
+@Component
+@Slf4j
+public class PaymentSequencer {
+
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final List<Lane> lanes;
+
+    public PaymentSequencer(@Value("${payments.sequencer.enabled:true}") boolean enabled,
+                            @Value("${payments.sequencer.lanes:8}") int laneCount,
+                            @Value("${payments.sequencer.queue-capacity:256}") int queueCapacity,
+                            @Value("${payments.sequencer.timeout-ms:30000}") long timeoutMillis) {
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+        this.queueCapacity = queueCapacity;
+        this.lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new Lane(i, queueCapacity));
+        }
+    }
+
+    /**
+     * Runs {@code posting} on the lane owning {@code accountId} and waits for its result.
+     * Calls made from a lane thread (or with the sequencer disabled) run inline.
+     */
+    public <T> T execute(Long accountId, Supplier<T> posting) {
+        if (!enabled || accountId == null || Thread.currentThread() instanceof LaneThread) {
+            return posting.get();
+        }
+
+        Lane lane = lanes.get(laneFor(accountId));
+        long enqueuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = lane.executor.submit(() -> lane.run(enqueuedAt, posting));
+        } catch (RejectedExecutionException ex) {
+            lane.rejected.incrementAndGet();
+            throw new IllegalStateException("Payment processing is busy, please retry shortly");
+        }
+        lane.submitted.incrementAndGet();
+
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Payment posting failed", cause);
+        } catch (TimeoutException ex) {
+            // The posting may still complete; an idempotent retry returns its result
+            throw new IllegalStateException("Payment is still being processed, please retry with the same idempotency key");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for payment posting", ex);
+        }
+    }
+
+    public List<PaymentLaneStats> stats() {
+        List<PaymentLaneStats> stats = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes) {
+            long completed = lane.completed.get() + lane.failed.get();
+            stats.add(new PaymentLaneStats(
+                lane.index,
+                lane.executor.getQueue().size(),
+                queueCapacity,
+                lane.submitted.get(),
+                lane.completed.get(),
+                lane.failed.get(),
+                lane.rejected.get(),
+                completed == 0 ? 0 : lane.waitNanos.get() / 1_000_000.0 / completed,
+                completed == 0 ? 0 : lane.serviceNanos.get() / 1_000_000.0 / completed,
+                lane.maxWaitNanos.get() / 1_000_000.0,
+                lane.maxServiceNanos.get() / 1_000_000.0
+            ));
+        }
+        return stats;
+    }
+
+    int laneFor(long accountId) {
+        long mixed = accountId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (mixed ^ (mixed >>> 32)), lanes.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : lanes) {
+            try {
+                if (!lane.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn("Payment lane {} still had {} queued postings at shutdown", lane.index, lane.executor.getQueue().size());
+                    lane.executor.shutdownNow();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                lane.executor.shutdownNow();
+            }
+        }
+    }
+
+    private static final class LaneThread extends Thread {
+        private LaneThread(Runnable runnable, String name) {
+            super(runnable, name);
+            setDaemon(true);
+        }
+    }
+
+    private static final class Lane {
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong serviceNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong maxServiceNanos = new AtomicLong();
+
+        private Lane(int index, int queueCapacity) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new LaneThread(runnable, "payment-lane-" + index),
+                new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        private <T> T run(long enqueuedAt, Supplier<T> posting) {
+            long startedAt = System.nanoTime();
+            record(waitNanos, maxWaitNanos, startedAt - enqueuedAt);
+            try {
+                T result = posting.get();
+                completed.incrementAndGet();
+                return result;
+            } catch (RuntimeException | Error ex) {
+                failed.incrementAndGet();
+                throw ex;
+            } finally {
+                record(serviceNanos, maxServiceNanos, System.nanoTime() - startedAt);
+            }
+        }
+
+        private static void record(AtomicLong total, AtomicLong max, long nanos) {
+            total.addAndGet(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
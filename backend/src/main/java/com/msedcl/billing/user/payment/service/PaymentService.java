@@ -1,36 +1,77 @@
 package com.msedcl.billing.user.payment.service;
 
+import com.msedcl.billing.user.payment.dto.AccountPaymentReceipt;
+import com.msedcl.billing.user.payment.dto.AccountPaymentRequest;
+import com.msedcl.billing.user.payment.dto.OpenBillProjection;
 import com.msedcl.billing.user.payment.dto.PaymentRequest;
+import com.msedcl.billing.shared.entity.Account;
 import com.msedcl.billing.shared.entity.AdditionalCharge;
 import com.msedcl.billing.shared.entity.Bill;
 import com.msedcl.billing.shared.entity.Customer;
 import com.msedcl.billing.shared.entity.Payment;
+import com.msedcl.billing.shared.entity.StandingInstruction;
 import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.shared.entity.WalletLedgerEntry;
+import com.msedcl.billing.admin.account.repository.AccountRepository;
 import com.msedcl.billing.admin.tariff.repository.AdditionalChargeRepository;
 import com.msedcl.billing.admin.billing.repository.BillRepository;
 import com.msedcl.billing.admin.customer.repository.CustomerRepository;
+import com.msedcl.billing.user.payment.repository.PaymentIdempotencyKeyRepository;
 import com.msedcl.billing.user.payment.repository.PaymentRepository;
 import com.msedcl.billing.admin.audit.service.AuditLogService;
+import com.msedcl.billing.shared.event.PaymentPostedEvent;
 import com.msedcl.billing.shared.service.NotificationService;
+import com.msedcl.billing.shared.service.WalletService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class PaymentService {
 
     private static final DateTimeFormatter CHEQUE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    // Leaves room for the scope prefix within payment_idempotency_keys.idempotency_key (VARCHAR(128))
+    private static final int MAX_CLIENT_KEY_LENGTH = 64;
+
+    private static final String INSERT_ALLOCATED_PAYMENT =
+        "INSERT INTO payments (bill_id, account_id, payment_reference, receipt_number, payment_date, payment_amount, " +
+        "convenience_fee, net_amount, payment_mode, payment_channel, payment_status, transaction_id, upi_reference, " +
+        "cheque_number, cheque_date, bank_name, remarks, processed_by, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'SUCCESS', ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    private static final String UPDATE_ALLOCATED_BILL =
+        "UPDATE bills SET amount_paid = ?, balance_amount = ?, bill_status = ?, version = version + 1, " +
+        "updated_at = CURRENT_TIMESTAMP WHERE bill_id = ? AND version = ?";
 
     private final PaymentRepository paymentRepository;
     private final BillRepository billRepository;
@@ -38,30 +79,128 @@ public class PaymentService {
     private final CustomerRepository customerRepository;
     private final AuditLogService auditLogService;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentIdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletService walletService;
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentSequencer paymentSequencer;
+
+    @Value("${payments.optimistic-lock.max-attempts:4}")
+    private int maxLockAttempts;
+
+    @Value("${payments.idempotency.retention-days:30}")
+    private int idempotencyRetentionDays;
 
-    @Transactional
     public Payment recordPayment(PaymentRequest request, User processedBy, String ipAddress) {
+        return recordPayment(request, null, processedBy, ipAddress);
+    }
+
+    /**
+     * Posts a payment exactly once per idempotency key. The key comes from the
+     * {@code Idempotency-Key} header, the request body or, failing both, the channel's
+     * transaction id, and is scoped to the user posting the payment; a repeated key
+     * returns the payment created the first time. Version conflicts on the bill or
+     * customer are retried in a fresh transaction; the receipt is queued in the outbox
+     * by the same transaction that posts the payment. Postings run on the account's {@link PaymentSequencer} lane.
+     */
+    public Payment recordPayment(PaymentRequest request, String idempotencyKey, User processedBy, String ipAddress) {
+        Long accountId = request.getBillId() == null ? null : billRepository.findAccountIdByBillId(request.getBillId())
+            .orElseThrow(() -> new RuntimeException("Bill not found with id: " + request.getBillId()));
+        return paymentSequencer.execute(accountId, () -> recordPaymentInLane(request, idempotencyKey, processedBy, ipAddress));
+    }
+
+    private Payment recordPaymentInLane(PaymentRequest request, String idempotencyKey, User processedBy, String ipAddress) {
+        String key = resolveIdempotencyKey(idempotencyKey, request.getIdempotencyKey(), request.getTransactionId(), processedBy);
+        String requestHash = key != null ? fingerprint(request) : null;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Payment result = transactionTemplate.execute(status -> {
+                    if (key != null) {
+                        Optional<Payment> previous = findPreviousPayment(key, requestHash);
+                        if (previous.isPresent()) {
+                            return previous.get();
+                        }
+                        idempotencyKeyRepository.claim(key, requestHash);
+                    }
+                    Payment payment = postPayment(request, processedBy, ipAddress);
+                    if (key != null) {
+                        idempotencyKeyRepository.attachPayment(key, payment.getPaymentId());
+                    }
+                    notificationService.sendPaymentReceiptEmail(payment);
+                    return payment;
+                });
+                return result;
+            } catch (DataIntegrityViolationException ex) {
+                if (key == null) {
+                    throw ex;
+                }
+                // A concurrent request with the same key committed first
+                Optional<Payment> winner = transactionTemplate.execute(status -> findPreviousPayment(key, requestHash));
+                if (winner == null || winner.isEmpty()) {
+                    throw ex;
+                }
+                return winner.get();
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= maxLockAttempts) {
+                    throw new IllegalStateException("Bill was updated concurrently, please retry the payment", ex);
+                }
+                log.debug("Version conflict posting payment for bill {} (attempt {})", request.getBillId(), attempt);
+                backOff(attempt);
+            }
+        }
+    }
+
+    private Payment postPayment(PaymentRequest request, User processedBy, String ipAddress) {
         Bill bill = billRepository.findById(request.getBillId())
             .orElseThrow(() -> new RuntimeException("Bill not found with id: " + request.getBillId()));
 
         // First: apply any available advance (customer wallet) to reduce outstanding balance
-        BigDecimal outstandingBefore = Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable());
-        Customer customer = bill.getAccount().getCustomer();
+        Payment advanceAdjustmentPayment = applyAdvance(bill, null, processedBy, ipAddress);
+        return settleBill(bill, request, advanceAdjustmentPayment, processedBy, ipAddress);
+    }
 
-        BigDecimal advanceAvailable = BigDecimal.ZERO;
-        if (customer.getAdvancePayment() != null && customer.getAdvancePayment() > 0) {
-            advanceAvailable = BigDecimal.valueOf(customer.getAdvancePayment()).setScale(2, RoundingMode.HALF_UP);
+    /**
+     * Settles a due bill for a standing instruction inside the caller's transaction by
+     * applying the customer's wallet, up to {@code maxAmount} when the instruction has
+     * one. Mandates are refused: there is no presentment to the bank yet, so nothing
+     * would actually be charged. The receipt is queued in the same transaction. Returns
+     * the postings made, empty when nothing was taken.
+     */
+    public List<Payment> postStandingInstructionDebit(Long billId, StandingInstruction.Source source, Long instructionId,
+                                                      BigDecimal maxAmount) {
+        if (source != StandingInstruction.Source.WALLET) {
+            throw new IllegalArgumentException("Standing instruction " + instructionId + " uses an unsupported source: " + source);
         }
+        Bill bill = billRepository.findById(billId)
+            .orElseThrow(() -> new RuntimeException("Bill not found with id: " + billId));
+
+        List<Payment> postings = new ArrayList<>(2);
+        Payment advanceAdjustmentPayment = applyAdvance(bill, maxAmount, null, null);
+        if (advanceAdjustmentPayment != null) {
+            postings.add(advanceAdjustmentPayment);
+            notificationService.sendPaymentReceiptEmail(advanceAdjustmentPayment);
+            eventPublisher.publishEvent(PaymentPostedEvent.of(advanceAdjustmentPayment));
+        }
+        return postings;
+    }
 
-        Payment advanceAdjustmentPayment = null;
-        if (advanceAvailable.compareTo(BigDecimal.ZERO) > 0 && outstandingBefore.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal applyFromAdvance = advanceAvailable.min(outstandingBefore).setScale(2, RoundingMode.HALF_UP);
-
-            // deduct from customer wallet
-            double newAdvance = customer.getAdvancePayment() - applyFromAdvance.doubleValue();
-            customer.setAdvancePayment(newAdvance);
-            customerRepository.save(customer);
+    /**
+     * Applies the customer's wallet to the bill, at most {@code limit} when one is given.
+     */
+    private Payment applyAdvance(Bill bill, BigDecimal limit, User processedBy, String ipAddress) {
+        BigDecimal outstandingBefore = Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable());
+        Customer customer = bill.getAccount().getCustomer();
 
+        Payment advanceAdjustmentPayment = null;
+        BigDecimal applyFromAdvance = outstandingBefore.compareTo(BigDecimal.ZERO) > 0
+            ? walletService.debitForBill(customer.getCustomerId(),
+                limit != null ? outstandingBefore.min(limit) : outstandingBefore, bill,
+                "Applied to invoice " + bill.getInvoiceNumber(), processedBy)
+            : BigDecimal.ZERO;
+        if (applyFromAdvance.compareTo(BigDecimal.ZERO) > 0) {
             // update bill amounts/status
             BigDecimal safeAmountPaid = Optional.ofNullable(bill.getAmountPaid()).orElse(BigDecimal.ZERO);
             BigDecimal newAmountPaid = safeAmountPaid.add(applyFromAdvance).setScale(2, RoundingMode.HALF_UP);
@@ -101,6 +240,11 @@ public class PaymentService {
                 ipAddress);
         }
 
+        return advanceAdjustmentPayment;
+    }
+
+    private Payment settleBill(Bill bill, PaymentRequest request, Payment advanceAdjustmentPayment,
+                               User processedBy, String ipAddress) {
         // Recompute outstanding after applying advance
         BigDecimal outstanding = Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable());
 
@@ -110,8 +254,7 @@ public class PaymentService {
         if (paymentAmount.compareTo(BigDecimal.ZERO) <= 0) {
             // If no external payment requested but advance fully covered bill, return the adjustment payment
             if (outstanding.compareTo(BigDecimal.ZERO) == 0 && advanceAdjustmentPayment != null) {
-                // send notification for the adjustment
-                try { notificationService.sendPaymentReceiptEmail(advanceAdjustmentPayment); } catch (Exception ignored) {}
+                eventPublisher.publishEvent(PaymentPostedEvent.of(advanceAdjustmentPayment));
                 return advanceAdjustmentPayment;
             }
             throw new IllegalArgumentException("Payment amount must be greater than zero");
@@ -141,8 +284,10 @@ public class PaymentService {
         payment.setPaymentChannel(Optional.ofNullable(request.getPaymentChannel()).filter(StringUtils::hasText).orElse(paymentMode.name()));
         payment.setPaymentStatus(Payment.PaymentStatus.SUCCESS);
         payment.setPaymentDate(LocalDateTime.now());
-        payment.setTransactionId(resolveTransactionId(request));
-        payment.setUpiReference(resolveUpiReference(request, paymentMode));
+        rejectDuplicateTransactionId(request.getTransactionId());
+        payment.setTransactionId(resolveTransactionId(request.getTransactionId()));
+        payment.setUpiReference(resolveUpiReference(request.getUpiReference(), paymentMode));
+        rejectDuplicateUpiReference(payment.getUpiReference());
         payment.setChequeNumber(request.getChequeNumber());
         payment.setChequeDate(resolveChequeDate(request.getChequeDate()));
         payment.setBankName(request.getBankName());
@@ -162,11 +307,344 @@ public class PaymentService {
             "Recorded payment " + savedPayment.getPaymentReference() + " for invoice " + bill.getInvoiceNumber(),
             ipAddress);
 
-        notificationService.sendPaymentReceiptEmail(savedPayment);
+        eventPublisher.publishEvent(PaymentPostedEvent.of(savedPayment));
 
         return savedPayment;
     }
 
+    /**
+     * Settles an account's open bills from one amount in a single transaction: the
+     * amount is spread over the bills in policy order (oldest first by default), all
+     * bill updates and payment rows go out as JDBC batches, and the customer gets one
+     * receipt and one audit entry. Idempotency and version-conflict retries work as in
+     * {@link #recordPayment(PaymentRequest, String, User, String)}.
+     */
+    public AccountPaymentReceipt recordAccountPayment(AccountPaymentRequest request, String idempotencyKey,
+                                                      User processedBy, String ipAddress) {
+        if (request.getAccountId() == null) {
+            throw new IllegalArgumentException("Account is required");
+        }
+        requireAccountAccess(request.getAccountId(), processedBy);
+        return paymentSequencer.execute(request.getAccountId(),
+            () -> recordAccountPaymentInLane(request, idempotencyKey, processedBy, ipAddress));
+    }
+
+    private AccountPaymentReceipt recordAccountPaymentInLane(AccountPaymentRequest request, String idempotencyKey,
+                                                             User processedBy, String ipAddress) {
+        String key = resolveIdempotencyKey(idempotencyKey, request.getIdempotencyKey(), request.getTransactionId(), processedBy);
+        String requestHash = key != null ? fingerprint(request) : null;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                AccountPaymentReceipt result = transactionTemplate.execute(status -> {
+                    if (key != null) {
+                        Optional<Payment> previous = findPreviousPayment(key, requestHash);
+                        if (previous.isPresent()) {
+                            return replayReceipt(previous.get(), request);
+                        }
+                        idempotencyKeyRepository.claim(key, requestHash);
+                    }
+                    AccountPaymentReceipt receipt = postAccountPayment(request, processedBy, ipAddress);
+                    if (key != null) {
+                        idempotencyKeyRepository.attachPayment(key, receipt.allocations().get(0).paymentId());
+                    }
+                    queueAccountPaymentReceipt(receipt);
+                    return receipt;
+                });
+                return result;
+            } catch (DataIntegrityViolationException ex) {
+                if (key == null) {
+                    throw ex;
+                }
+                AccountPaymentReceipt winner = transactionTemplate.execute(status ->
+                    findPreviousPayment(key, requestHash).map(payment -> replayReceipt(payment, request)).orElse(null));
+                if (winner == null) {
+                    throw ex;
+                }
+                return winner;
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= maxLockAttempts) {
+                    throw new IllegalStateException("Bills were updated concurrently, please retry the payment", ex);
+                }
+                log.debug("Version conflict posting account payment for account {} (attempt {})", request.getAccountId(), attempt);
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * A customer may only pay into their own accounts: the receipt lists every open bill
+     * of the account. Administrators post against any account.
+     */
+    private void requireAccountAccess(Long accountId, User processedBy) {
+        if (processedBy.getRole() == User.UserRole.ADMIN) {
+            return;
+        }
+        Long customerId = customerRepository.findCustomerIdByUsername(processedBy.getUsername())
+            .orElseThrow(() -> new IllegalArgumentException("Customer profile not found"));
+        if (!Boolean.TRUE.equals(accountRepository.existsByAccountIdAndCustomerCustomerId(accountId, customerId))) {
+            throw new IllegalArgumentException("Account not found with id: " + accountId);
+        }
+    }
+
+    private AccountPaymentReceipt postAccountPayment(AccountPaymentRequest request, User processedBy, String ipAddress) {
+        Account account = accountRepository.findByAccountId(request.getAccountId())
+            .orElseThrow(() -> new RuntimeException("Account not found with id: " + request.getAccountId()));
+
+        BigDecimal paymentAmount = Optional.ofNullable(request.getPaymentAmount()).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
+        if (paymentAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Payment amount must be greater than zero");
+        }
+
+        Payment.PaymentMode paymentMode;
+        try {
+            paymentMode = Payment.PaymentMode.valueOf(request.getPaymentMode().toUpperCase(Locale.ROOT));
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Unsupported payment mode: " + request.getPaymentMode());
+        }
+
+        List<OpenBillProjection> openBills = new ArrayList<>(billRepository.findOpenBillsForAccount(account.getAccountId()));
+        if (openBills.isEmpty()) {
+            throw new IllegalArgumentException("Account " + account.getAccountNumber() + " has no open bills");
+        }
+        openBills.sort(allocationOrder(request.getAllocationPolicy()));
+
+        BigDecimal outstanding = openBills.stream()
+            .map(this::openBalance)
+            .reduce(BigDecimal.ZERO, BigDecimal::add)
+            .setScale(2, RoundingMode.HALF_UP);
+        BigDecimal excess = paymentAmount.subtract(outstanding).max(BigDecimal.ZERO);
+        if (excess.compareTo(BigDecimal.ZERO) > 0 && !Boolean.TRUE.equals(request.getCreditExcessToWallet())) {
+            throw new IllegalArgumentException("Payment amount cannot exceed outstanding balance of ₹" + outstanding);
+        }
+
+        BigDecimal convenienceFee = calculateConvenienceFee(paymentMode, paymentAmount, account.getTariffCategory());
+        String receiptNumber = "RCT-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12).toUpperCase(Locale.ROOT);
+        Timestamp paidAt = Timestamp.valueOf(LocalDateTime.now());
+        String channel = Optional.ofNullable(request.getPaymentChannel()).filter(StringUtils::hasText).orElse(paymentMode.name());
+        rejectDuplicateTransactionId(request.getTransactionId());
+        String transactionId = resolveTransactionId(request.getTransactionId());
+        String upiReference = resolveUpiReference(request.getUpiReference(), paymentMode);
+        rejectDuplicateUpiReference(upiReference);
+        LocalDate chequeDate = resolveChequeDate(request.getChequeDate());
+        Long processedById = processedBy != null ? processedBy.getUserId() : null;
+
+        List<Object[]> paymentRows = new ArrayList<>();
+        List<Object[]> billRows = new ArrayList<>();
+        List<Long> billIds = new ArrayList<>();
+        BigDecimal remaining = paymentAmount.subtract(excess);
+        for (OpenBillProjection bill : openBills) {
+            if (remaining.compareTo(BigDecimal.ZERO) <= 0) {
+                break;
+            }
+            BigDecimal balance = openBalance(bill);
+            BigDecimal applied = remaining.min(balance);
+            remaining = remaining.subtract(applied);
+
+            BigDecimal newBalance = balance.subtract(applied).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal newAmountPaid = Optional.ofNullable(bill.getAmountPaid()).orElse(BigDecimal.ZERO)
+                .add(applied).setScale(2, RoundingMode.HALF_UP);
+            Bill.BillStatus newStatus = newBalance.compareTo(BigDecimal.ZERO) <= 0
+                ? Bill.BillStatus.PAID
+                : Bill.BillStatus.PARTIALLY_PAID;
+            // The whole convenience fee is carried on the first allocation of the receipt
+            BigDecimal fee = paymentRows.isEmpty() ? convenienceFee : BigDecimal.ZERO.setScale(2);
+
+            paymentRows.add(new Object[]{
+                bill.getBillId(),
+                account.getAccountId(),
+                receiptNumber + "-" + (paymentRows.size() + 1),
+                receiptNumber,
+                paidAt,
+                applied,
+                fee,
+                applied.add(fee),
+                paymentMode.name(),
+                channel,
+                transactionId,
+                upiReference,
+                request.getChequeNumber(),
+                chequeDate != null ? Date.valueOf(chequeDate) : null,
+                request.getBankName(),
+                request.getRemarks(),
+                processedById
+            });
+            billRows.add(new Object[]{newAmountPaid, newBalance, newStatus.name(), bill.getBillId(), bill.getVersion()});
+            billIds.add(bill.getBillId());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ALLOCATED_PAYMENT, paymentRows);
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_ALLOCATED_BILL, billRows);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new OptimisticLockingFailureException("Bill " + billIds.get(i) + " changed while allocating receipt " + receiptNumber);
+            }
+        }
+
+        Customer customer = account.getCustomer();
+        if (excess.compareTo(BigDecimal.ZERO) > 0) {
+            walletService.credit(customer.getCustomerId(), excess, WalletLedgerEntry.EntryType.OVERPAYMENT,
+                "Excess of receipt " + receiptNumber, processedBy);
+        }
+
+        List<Payment> payments = paymentRepository.findByReceiptNumberOrderByPaymentIdAsc(receiptNumber);
+        AccountPaymentReceipt receipt = toReceipt(account, payments, excess);
+
+        auditLogService.record(processedBy,
+            "RECORD_ACCOUNT_PAYMENT",
+            "Account",
+            account.getAccountId(),
+            String.format("Recorded receipt %s of ₹%s across %d bill(s) of account %s%s", receiptNumber, paymentAmount,
+                payments.size(), account.getAccountNumber(),
+                excess.compareTo(BigDecimal.ZERO) > 0 ? "; ₹" + excess + " credited to wallet" : ""),
+            ipAddress);
+
+        for (AccountPaymentReceipt.Allocation allocation : receipt.allocations()) {
+            eventPublisher.publishEvent(new PaymentPostedEvent(customer.getCustomerId(), allocation.billId(),
+                allocation.invoiceNumber(), allocation.paymentId(), allocation.amountApplied(),
+                allocation.billStatus(), allocation.balanceAfter()));
+        }
+        return receipt;
+    }
+
+    private AccountPaymentReceipt replayReceipt(Payment previous, AccountPaymentRequest request) {
+        if (previous.getReceiptNumber() == null) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different payment");
+        }
+        List<Payment> payments = paymentRepository.findByReceiptNumberOrderByPaymentIdAsc(previous.getReceiptNumber());
+        BigDecimal allocated = payments.stream().map(Payment::getPaymentAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal excess = request.getPaymentAmount().setScale(2, RoundingMode.HALF_UP).subtract(allocated).max(BigDecimal.ZERO);
+        return toReceipt(previous.getAccount(), payments, excess);
+    }
+
+    private AccountPaymentReceipt toReceipt(Account account, List<Payment> payments, BigDecimal creditedToWallet) {
+        BigDecimal applied = BigDecimal.ZERO;
+        BigDecimal fees = BigDecimal.ZERO;
+        List<AccountPaymentReceipt.Allocation> allocations = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            Bill bill = payment.getBill();
+            applied = applied.add(payment.getPaymentAmount());
+            fees = fees.add(payment.getConvenienceFee());
+            allocations.add(new AccountPaymentReceipt.Allocation(payment.getPaymentId(), bill.getBillId(),
+                bill.getInvoiceNumber(), payment.getPaymentAmount(),
+                Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable()), bill.getBillStatus()));
+        }
+        Payment first = payments.get(0);
+        BigDecimal total = applied.add(creditedToWallet);
+        return new AccountPaymentReceipt(first.getReceiptNumber(), account.getAccountId(), account.getAccountNumber(),
+            first.getPaymentDate(), first.getPaymentMode().name(), first.getTransactionId(),
+            total, fees, total.add(fees), creditedToWallet, allocations);
+    }
+
+    private BigDecimal openBalance(OpenBillProjection bill) {
+        return Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable()).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private Comparator<OpenBillProjection> allocationOrder(String policy) {
+        Comparator<OpenBillProjection> oldestFirst = Comparator
+            .comparing(OpenBillProjection::getDueDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(OpenBillProjection::getBillId);
+        if (!StringUtils.hasText(policy) || "OLDEST_FIRST".equalsIgnoreCase(policy)) {
+            return oldestFirst;
+        }
+        if ("OVERDUE_FIRST".equalsIgnoreCase(policy)) {
+            LocalDate today = LocalDate.now();
+            return Comparator.<OpenBillProjection, Boolean>comparing(bill ->
+                    !(bill.getBillStatus() == Bill.BillStatus.OVERDUE || (bill.getDueDate() != null && bill.getDueDate().isBefore(today))))
+                .thenComparing(oldestFirst);
+        }
+        if ("SMALLEST_FIRST".equalsIgnoreCase(policy)) {
+            return Comparator.comparing(this::openBalance).thenComparing(oldestFirst);
+        }
+        throw new IllegalArgumentException("Unsupported allocation policy: " + policy);
+    }
+
+    @Scheduled(cron = "0 45 2 * * ?")
+    @Transactional
+    public void purgeIdempotencyKeys() {
+        int removed = idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusDays(idempotencyRetentionDays));
+        if (removed > 0) {
+            log.info("Purged {} payment idempotency keys", removed);
+        }
+    }
+
+    private Optional<Payment> findPreviousPayment(String key, String requestHash) {
+        return idempotencyKeyRepository.findById(key)
+            .map(existing -> {
+                if (!existing.getRequestHash().equals(requestHash)) {
+                    throw new IllegalArgumentException("Idempotency key was already used for a different payment");
+                }
+                return existing.getPaymentId();
+            })
+            .flatMap(paymentRepository::findById);
+    }
+
+    /**
+     * Queued in the posting transaction, on the branch that posts: an idempotent replay
+     * queues nothing, and a conflict retry rolls its outbox rows back with the attempt.
+     */
+    private void queueAccountPaymentReceipt(AccountPaymentReceipt receipt) {
+        accountRepository.findByAccountId(receipt.accountId())
+            .ifPresent(account -> notificationService.sendAccountPaymentReceiptEmail(account.getCustomer(), receipt));
+    }
+
+    /**
+     * Keys are scoped to the posting user so one customer's key can never return another
+     * customer's payment. Client keys longer than {@value #MAX_CLIENT_KEY_LENGTH}
+     * characters are rejected; long transaction ids are hashed.
+     */
+    private String resolveIdempotencyKey(String headerKey, String bodyKey, String transactionId, User processedBy) {
+        String scope = processedBy != null && processedBy.getUserId() != null ? "u" + processedBy.getUserId() : "system";
+        String clientKey = StringUtils.hasText(headerKey) ? headerKey.trim()
+            : StringUtils.hasText(bodyKey) ? bodyKey.trim() : null;
+        if (clientKey != null) {
+            if (clientKey.length() > MAX_CLIENT_KEY_LENGTH) {
+                throw new IllegalArgumentException("Idempotency key must be at most " + MAX_CLIENT_KEY_LENGTH + " characters");
+            }
+            return "req:" + scope + ":" + clientKey;
+        }
+        if (StringUtils.hasText(transactionId)) {
+            String txn = transactionId.trim();
+            return "txn:" + scope + ":" + (txn.length() > MAX_CLIENT_KEY_LENGTH ? sha256(txn) : txn);
+        }
+        return null;
+    }
+
+    private String fingerprint(PaymentRequest request) {
+        return sha256(request.getBillId() + "|"
+            + Optional.ofNullable(request.getPaymentAmount()).map(amount -> amount.setScale(2, RoundingMode.HALF_UP).toPlainString()).orElse("") + "|"
+            + Optional.ofNullable(request.getPaymentMode()).map(mode -> mode.toUpperCase(Locale.ROOT)).orElse("") + "|"
+            + Optional.ofNullable(request.getTransactionId()).orElse(""));
+    }
+
+    private String fingerprint(AccountPaymentRequest request) {
+        return sha256("account:" + request.getAccountId() + "|"
+            + Optional.ofNullable(request.getPaymentAmount()).map(amount -> amount.setScale(2, RoundingMode.HALF_UP).toPlainString()).orElse("") + "|"
+            + Optional.ofNullable(request.getPaymentMode()).map(mode -> mode.toUpperCase(Locale.ROOT)).orElse("") + "|"
+            + Optional.ofNullable(request.getAllocationPolicy()).filter(StringUtils::hasText)
+                .map(policy -> policy.trim().toUpperCase(Locale.ROOT)).orElse("OLDEST_FIRST") + "|"
+            + Boolean.TRUE.equals(request.getCreditExcessToWallet()) + "|"
+            + Optional.ofNullable(request.getTransactionId()).orElse(""));
+    }
+
+    private String sha256(String canonical) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L * attempt));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying payment", ex);
+        }
+    }
+
     private void updateBillSettlement(Bill bill, BigDecimal paymentAmount) {
         BigDecimal safeAmountPaid = Optional.ofNullable(bill.getAmountPaid()).orElse(BigDecimal.ZERO);
         BigDecimal safeBalance = Optional.ofNullable(bill.getBalanceAmount()).orElse(bill.getNetPayable());
@@ -206,19 +684,19 @@ public class PaymentService {
         return Optional.ofNullable(charge.getChargeValue()).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
     }
 
-    private String resolveTransactionId(PaymentRequest request) {
-        if (StringUtils.hasText(request.getTransactionId())) {
-            return request.getTransactionId();
+    private String resolveTransactionId(String transactionId) {
+        if (StringUtils.hasText(transactionId)) {
+            return transactionId;
         }
         return "TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase(Locale.ROOT);
     }
 
-    private String resolveUpiReference(PaymentRequest request, Payment.PaymentMode mode) {
+    private String resolveUpiReference(String upiReference, Payment.PaymentMode mode) {
         if (mode != Payment.PaymentMode.UPI) {
-            return request.getUpiReference();
+            return upiReference;
         }
-        if (StringUtils.hasText(request.getUpiReference())) {
-            return request.getUpiReference();
+        if (StringUtils.hasText(upiReference)) {
+            return upiReference;
         }
         return "UPI-" + UUID.randomUUID().toString().substring(0, 10).toUpperCase(Locale.ROOT);
     }
@@ -231,56 +709,80 @@ public class PaymentService {
     }
 
     private String generatePaymentReference() {
-        return "PAY-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase(Locale.ROOT);
+        String reference;
+        do {
+            reference = "PAY-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase(Locale.ROOT);
+        } while (paymentRepository.existsByPaymentReference(reference));
+        return reference;
+    }
+
+    /**
+     * A channel transaction id identifies one charge, whoever posts it: the customer's
+     * own call and the gateway callback carry differently scoped idempotency keys, so
+     * this check is what stops the second of them. Postings for an account are
+     * serialised on its lane, so the check cannot race another posting for the same bill.
+     */
+    private void rejectDuplicateTransactionId(String transactionId) {
+        if (StringUtils.hasText(transactionId)
+            && paymentRepository.existsByTransactionId(transactionId)) {
+            throw new IllegalArgumentException("Transaction " + transactionId + " has already been posted");
+        }
+    }
+
+    /**
+     * A UPI reference identifies exactly one transfer at the bank, so a second posting
+     * against it is a replay. Checked against the indexed column.
+     */
+    private void rejectDuplicateUpiReference(String upiReference) {
+        if (StringUtils.hasText(upiReference) && paymentRepository.existsByUpiReference(upiReference)) {
+            throw new IllegalArgumentException("UPI reference " + upiReference + " has already been used for a payment");
+        }
     }
 
     @Transactional
-    public void addAdvancePayment(Double amount, User user, String ipAddress) {
-        if (amount == null || amount <= 0) {
+    public void addAdvancePayment(BigDecimal amount, User user, String ipAddress) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Advance payment amount must be greater than zero");
         }
 
         Customer customer = customerRepository.findByUserUserId(user.getUserId())
             .orElseThrow(() -> new RuntimeException("Customer profile not found"));
 
-        Double currentAdvance = customer.getAdvancePayment() != null ? customer.getAdvancePayment() : 0.00;
-        customer.setAdvancePayment(currentAdvance + amount);
-        customerRepository.save(customer);
+        walletService.credit(customer.getCustomerId(), amount, WalletLedgerEntry.EntryType.TOP_UP, "Customer top-up", user);
 
         auditLogService.record(user,
             "ADD_ADVANCE_PAYMENT",
             "Customer",
             customer.getCustomerId(),
-            String.format("Added advance payment of ₹%.2f. New balance: ₹%.2f", amount, customer.getAdvancePayment()),
+            String.format("Added advance payment of ₹%.2f. New balance: ₹%.2f", amount, walletService.getBalance(customer.getCustomerId())),
             ipAddress);
     }
 
     @Transactional
-    public void addAdvancePaymentForCustomer(Long customerId, Double amount, User processedBy, String ipAddress) {
-        if (amount == null || amount <= 0) {
+    public void addAdvancePaymentForCustomer(Long customerId, BigDecimal amount, User processedBy, String ipAddress) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Advance payment amount must be greater than zero");
         }
 
-        com.msedcl.billing.shared.entity.Customer customer = customerRepository.findById(customerId)
+        Customer customer = customerRepository.findById(customerId)
             .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
 
-        Double currentAdvance = customer.getAdvancePayment() != null ? customer.getAdvancePayment() : 0.00;
-        customer.setAdvancePayment(currentAdvance + amount);
-        customerRepository.save(customer);
+        walletService.credit(customer.getCustomerId(), amount, WalletLedgerEntry.EntryType.ADMIN_CREDIT,
+            "Credited by " + processedBy.getUsername(), processedBy);
 
         auditLogService.record(processedBy,
             "ADMIN_ADD_ADVANCE",
             "Customer",
             customer.getCustomerId(),
-            String.format("Admin %s added advance payment of ₹%.2f to customer %s. New balance: ₹%.2f", processedBy.getUsername(), amount, customer.getCustomerNumber(), customer.getAdvancePayment()),
+            String.format("Admin %s added advance payment of ₹%.2f to customer %s. New balance: ₹%.2f", processedBy.getUsername(), amount, customer.getCustomerNumber(), walletService.getBalance(customer.getCustomerId())),
             ipAddress);
     }
 
     @Transactional(readOnly = true)
-    public Double getAdvancePayment(User user) {
+    public BigDecimal getAdvancePayment(User user) {
         Customer customer = customerRepository.findByUserUserId(user.getUserId())
             .orElseThrow(() -> new RuntimeException("Customer profile not found"));
-        
-        return customer.getAdvancePayment() != null ? customer.getAdvancePayment() : 0.00;
+
+        return walletService.getBalance(customer.getCustomerId());
     }
 }
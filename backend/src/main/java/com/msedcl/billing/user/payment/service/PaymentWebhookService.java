@@ -0,0 +1,135 @@
+package com.msedcl.billing.user.payment.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msedcl.billing.user.payment.dto.PaymentWebhookPayload;
+import com.msedcl.billing.user.payment.repository.PaymentWebhookEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Receiving side of gateway payment callbacks. A callback is verified against
+ * {@code HMAC-SHA256(secret, timestamp + "." + body)}, written to the
+ * payment_webhook_events queue and acknowledged; posting happens later in
+ * {@link PaymentWebhookWorker} so a month-end burst only costs one insert per request.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentWebhookService {
+
+    private static final Pattern GATEWAY_NAME = Pattern.compile("[a-z0-9_-]{1,32}");
+
+    private final PaymentWebhookEventRepository webhookEventRepository;
+    private final PaymentWebhookWorker webhookWorker;
+    private final ObjectMapper objectMapper;
+
+    @Value("${payments.webhook.secret:}")
+    private String secret;
+
+    @Value("${payments.webhook.tolerance-seconds:300}")
+    private long toleranceSeconds;
+
+    public enum Outcome { ACCEPTED, DUPLICATE, IGNORED }
+
+    public boolean verifySignature(String timestamp, String signature, byte[] body) {
+        if (!StringUtils.hasText(secret) || !StringUtils.hasText(timestamp) || !StringUtils.hasText(signature)) {
+            return false;
+        }
+        long sentAt;
+        try {
+            sentAt = Long.parseLong(timestamp.trim());
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        if (Math.abs(System.currentTimeMillis() / 1000 - sentAt) > toleranceSeconds) {
+            return false;
+        }
+        byte[] expected = sign(secret, timestamp.trim(), body);
+        byte[] provided;
+        try {
+            provided = HexFormat.of().parseHex(signature.trim().toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, provided);
+    }
+
+    @Transactional
+    public Outcome accept(String gateway, byte[] body) {
+        if (gateway == null || !GATEWAY_NAME.matcher(gateway).matches()) {
+            throw new IllegalArgumentException("Unknown gateway");
+        }
+
+        PaymentWebhookPayload payload;
+        try {
+            payload = objectMapper.readValue(body, PaymentWebhookPayload.class);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Malformed webhook payload");
+        }
+        if (!StringUtils.hasText(payload.getEventId()) || payload.getEventId().length() > 128) {
+            throw new IllegalArgumentException("eventId is required");
+        }
+        if (!"SUCCESS".equalsIgnoreCase(payload.getStatus())) {
+            log.debug("Ignoring {} callback {} with status {}", gateway, payload.getEventId(), payload.getStatus());
+            return Outcome.IGNORED;
+        }
+        if (payload.getBillId() == null) {
+            throw new IllegalArgumentException("billId is required");
+        }
+        if (payload.getAmount() == null || payload.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("amount must be greater than zero");
+        }
+        if (!StringUtils.hasText(payload.getTransactionId())) {
+            throw new IllegalArgumentException("transactionId is required");
+        }
+
+        String stored;
+        try {
+            stored = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Malformed webhook payload");
+        }
+
+        int inserted = webhookEventRepository.enqueue(gateway, payload.getEventId(), payload.getBillId(), stored);
+        if (inserted == 0) {
+            return Outcome.DUPLICATE;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                webhookWorker.wake();
+            }
+        });
+        return Outcome.ACCEPTED;
+    }
+
+    static byte[] sign(String secret, String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) '.');
+            return mac.doFinal(body);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 not available", ex);
+        }
+    }
+}
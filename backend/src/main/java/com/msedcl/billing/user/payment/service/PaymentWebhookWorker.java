@@ -0,0 +1,265 @@
+package com.msedcl.billing.user.payment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msedcl.billing.shared.config.ExecutorRegistry;
+import com.msedcl.billing.shared.entity.Payment;
+import com.msedcl.billing.shared.entity.PaymentWebhookEvent;
+import com.msedcl.billing.user.payment.dto.ClaimedWebhookEventProjection;
+import com.msedcl.billing.user.payment.dto.PaymentRequest;
+import com.msedcl.billing.user.payment.dto.PaymentWebhookPayload;
+import com.msedcl.billing.user.payment.repository.PaymentWebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains the payment_webhook_events queue. Due events are claimed in batches, grouped
+ * by account and posted through {@link PaymentService}: accounts run in parallel while
+ * one account's callbacks are posted one after another in arrival order. Business
+ * rejections (unknown bill, overpayment) are final; database contention is retried
+ * with exponential back-off. An event is not claimed while an earlier event of the
+ * same account is claimed (by any worker) or waiting for a retry, so an account's
+ * callbacks stay in order across batches and instances.
+ * <p>
+ * Draining always runs on the worker's own dispatcher thread; the scheduled poll only
+ * hands it a wake-up, so a burst of callbacks never holds the shared scheduler.
+ */
+@Service
+@Slf4j
+public class PaymentWebhookWorker {
+
+    private final PaymentWebhookEventRepository webhookEventRepository;
+    private final PaymentService paymentService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService dispatcher;
+    private final ExecutorService lanes;
+    private final Semaphore laneSlots;
+
+    private final String workerId = "worker-" + UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+
+    @Value("${payments.webhook.batch-size:200}")
+    private int batchSize;
+
+    @Value("${payments.webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${payments.webhook.retry-base-ms:2000}")
+    private long retryBaseMillis;
+
+    @Value("${payments.webhook.claim-timeout-seconds:300}")
+    private long claimTimeoutSeconds;
+
+    public PaymentWebhookWorker(PaymentWebhookEventRepository webhookEventRepository,
+                                PaymentService paymentService,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                ExecutorRegistry executorRegistry,
+                                @Value("${payments.webhook.max-concurrency:8}") int maxConcurrency) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentService = paymentService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-webhook-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lanes = executorRegistry.get(ExecutorRegistry.INGESTION);
+        this.laneSlots = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Called after a callback commits so it is posted without waiting for the next poll.
+     */
+    public void wake() {
+        if (draining.get()) {
+            wakeRequested.set(true);
+            return;
+        }
+        // At most one drain waits in the dispatcher queue however often we are woken
+        if (!drainQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                drainQueued.set(false);
+                drain();
+            });
+        } catch (RuntimeException ex) {
+            drainQueued.set(false);
+            log.debug("Webhook dispatcher unavailable: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payments.webhook.poll-ms:1000}")
+    public void poll() {
+        wake();
+    }
+
+    @Scheduled(fixedDelayString = "${payments.webhook.reclaim-ms:60000}")
+    public void releaseStaleClaims() {
+        Integer released = transactionTemplate.execute(status ->
+            webhookEventRepository.releaseStale(LocalDateTime.now().minusSeconds(claimTimeoutSeconds)));
+        if (released != null && released > 0) {
+            log.warn("Released {} webhook events left claimed by a stopped worker", released);
+        }
+    }
+
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            wakeRequested.set(true);
+            return;
+        }
+        try {
+            do {
+                wakeRequested.set(false);
+                while (processBatch() > 0) {
+                    // keep draining while full batches are available
+                }
+            } while (wakeRequested.get());
+        } catch (RuntimeException ex) {
+            log.error("Webhook drain failed: {}", ex.getMessage(), ex);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private int processBatch() {
+        Integer claimed = transactionTemplate.execute(status ->
+            webhookEventRepository.claimDue(workerId, LocalDateTime.now(), batchSize));
+        if (claimed == null || claimed == 0) {
+            return 0;
+        }
+
+        Map<Long, List<ClaimedWebhookEventProjection>> byAccount = new LinkedHashMap<>();
+        for (ClaimedWebhookEventProjection event : webhookEventRepository.findClaimed(workerId)) {
+            // Callbacks for bills that do not exist get their own lane and are rejected there
+            Long laneKey = event.getAccountId() != null ? event.getAccountId() : -event.getEventId();
+            byAccount.computeIfAbsent(laneKey, key -> new ArrayList<>()).add(event);
+        }
+
+        List<CompletableFuture<Void>> running = new ArrayList<>(byAccount.size());
+        for (List<ClaimedWebhookEventProjection> events : byAccount.values()) {
+            laneSlots.acquireUninterruptibly();
+            running.add(CompletableFuture.runAsync(() -> {
+                try {
+                    processLane(events);
+                } finally {
+                    laneSlots.release();
+                }
+            }, lanes));
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+        return claimed;
+    }
+
+    private void processLane(List<ClaimedWebhookEventProjection> events) {
+        for (int i = 0; i < events.size(); i++) {
+            LocalDateTime retryAt = process(events.get(i));
+            if (retryAt != null && i + 1 < events.size()) {
+                List<Long> held = events.subList(i + 1, events.size()).stream()
+                    .map(ClaimedWebhookEventProjection::getEventId)
+                    .toList();
+                transactionTemplate.executeWithoutResult(status -> webhookEventRepository.release(held, retryAt));
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the retry time when the event was put back for another attempt, otherwise {@code null}
+     */
+    private LocalDateTime process(ClaimedWebhookEventProjection event) {
+        PaymentWebhookPayload payload;
+        try {
+            payload = objectMapper.readValue(event.getPayload(), PaymentWebhookPayload.class);
+        } catch (IOException ex) {
+            finish(event, PaymentWebhookEvent.Status.REJECTED, "Unreadable payload");
+            return null;
+        }
+
+        try {
+            Payment payment = paymentService.recordPayment(toPaymentRequest(event, payload), null, null,
+                "gateway:" + event.getGateway());
+            transactionTemplate.executeWithoutResult(status ->
+                webhookEventRepository.markPosted(event.getEventId(), payment.getPaymentId(), LocalDateTime.now()));
+            return null;
+        } catch (IllegalStateException | DataAccessException | TransactionException ex) {
+            int attempts = event.getAttempts() + 1;
+            if (attempts >= maxAttempts) {
+                log.error("Giving up on {} callback {} after {} attempts: {}",
+                    event.getGateway(), event.getGatewayEventId(), attempts, ex.getMessage());
+                finish(event, PaymentWebhookEvent.Status.FAILED, ex.getMessage());
+                return null;
+            }
+            LocalDateTime retryAt = LocalDateTime.now().plus(Duration.ofMillis(backOffMillis(attempts)));
+            transactionTemplate.executeWithoutResult(status ->
+                webhookEventRepository.scheduleRetry(event.getEventId(), truncate(ex.getMessage()), retryAt));
+            return retryAt;
+        } catch (RuntimeException ex) {
+            log.warn("Rejected {} callback {}: {}", event.getGateway(), event.getGatewayEventId(), ex.getMessage());
+            finish(event, PaymentWebhookEvent.Status.REJECTED, ex.getMessage());
+            return null;
+        }
+    }
+
+    private PaymentRequest toPaymentRequest(ClaimedWebhookEventProjection event, PaymentWebhookPayload payload) {
+        PaymentRequest request = new PaymentRequest();
+        request.setBillId(event.getBillId());
+        request.setPaymentAmount(payload.getAmount());
+        request.setPaymentMode(StringUtils.hasText(payload.getPaymentMode()) ? payload.getPaymentMode() : "ONLINE");
+        request.setPaymentChannel("GATEWAY_" + event.getGateway().toUpperCase(Locale.ROOT));
+        // Posting rejects a transaction id that is already on a payment, so a client that also called /payments is not charged twice
+        request.setTransactionId(payload.getTransactionId());
+        request.setUpiReference(payload.getUpiReference());
+        request.setRemarks("Gateway callback " + event.getGatewayEventId());
+        return request;
+    }
+
+    private void finish(ClaimedWebhookEventProjection event, PaymentWebhookEvent.Status status, String error) {
+        transactionTemplate.executeWithoutResult(tx ->
+            webhookEventRepository.markFinished(event.getEventId(), status, truncate(error), LocalDateTime.now()));
+    }
+
+    private long backOffMillis(int attempts) {
+        return retryBaseMillis << Math.min(attempts - 1, 10);
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+}
@@ -0,0 +1,107 @@
+package com.msedcl.billing.user.payment.service;
+
+import com.msedcl.billing.admin.account.repository.AccountRepository;
+import com.msedcl.billing.admin.audit.service.AuditLogService;
+import com.msedcl.billing.admin.customer.repository.CustomerRepository;
+import com.msedcl.billing.shared.entity.Account;
+import com.msedcl.billing.shared.entity.StandingInstruction;
+import com.msedcl.billing.shared.entity.User;
+import com.msedcl.billing.user.payment.dto.StandingInstructionRequest;
+import com.msedcl.billing.user.payment.dto.StandingInstructionResponse;
+import com.msedcl.billing.user.payment.repository.StandingInstructionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+@RequiredArgsConstructor
+public class StandingInstructionService {
+
+    private final StandingInstructionRepository standingInstructionRepository;
+    private final CustomerRepository customerRepository;
+    private final AccountRepository accountRepository;
+    private final AuditLogService auditLogService;
+
+    @Transactional(readOnly = true)
+    public List<StandingInstructionResponse> getInstructions(String username) {
+        Long customerId = resolveCustomerId(username);
+        return standingInstructionRepository.findByAccountCustomerCustomerIdOrderByInstructionIdAsc(customerId).stream()
+            .map(StandingInstructionResponse::of)
+            .toList();
+    }
+
+    /**
+     * Registers the account's standing instruction, replacing (and re-activating) any
+     * earlier one: an account is settled from a single source.
+     */
+    @Transactional
+    public StandingInstructionResponse register(StandingInstructionRequest request, User user, String ipAddress) {
+        Long customerId = resolveCustomerId(user.getUsername());
+        if (request.getAccountId() == null) {
+            throw new IllegalArgumentException("Account is required");
+        }
+        Account account = accountRepository.findByAccountId(request.getAccountId())
+            .filter(candidate -> candidate.getCustomer().getCustomerId().equals(customerId))
+            .orElseThrow(() -> new RuntimeException("Account not found with id: " + request.getAccountId()));
+
+        StandingInstruction.Source source;
+        try {
+            source = StandingInstruction.Source.valueOf(String.valueOf(request.getSource()).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unsupported standing instruction source: " + request.getSource());
+        }
+        if (source != StandingInstruction.Source.WALLET) {
+            // Nothing presents a mandate debit to the bank yet, so only the wallet can settle a bill
+            throw new IllegalArgumentException("Only wallet auto-debit is currently supported");
+        }
+        BigDecimal maxAmount = request.getMaxAmount();
+        if (maxAmount != null && maxAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Maximum debit amount must be greater than zero");
+        }
+
+        StandingInstruction instruction = standingInstructionRepository.findByAccountAccountId(account.getAccountId())
+            .orElseGet(StandingInstruction::new);
+        instruction.setAccount(account);
+        instruction.setSource(source);
+        instruction.setMandateReference(null);
+        instruction.setMaxAmount(maxAmount != null ? maxAmount.setScale(2, RoundingMode.HALF_UP) : null);
+        instruction.setStatus(StandingInstruction.Status.ACTIVE);
+        instruction.setConsecutiveFailures(0);
+        StandingInstruction saved = standingInstructionRepository.save(instruction);
+
+        auditLogService.record(user,
+            "REGISTER_STANDING_INSTRUCTION",
+            "StandingInstruction",
+            saved.getInstructionId(),
+            "Registered " + source.name().toLowerCase(Locale.ROOT) + " auto-debit for account " + account.getAccountNumber(),
+            ipAddress);
+        return StandingInstructionResponse.of(saved);
+    }
+
+    @Transactional
+    public void cancel(Long instructionId, User user, String ipAddress) {
+        Long customerId = resolveCustomerId(user.getUsername());
+        StandingInstruction instruction = standingInstructionRepository.findById(instructionId)
+            .filter(candidate -> candidate.getAccount().getCustomer().getCustomerId().equals(customerId))
+            .orElseThrow(() -> new RuntimeException("Standing instruction not found with id: " + instructionId));
+        instruction.setStatus(StandingInstruction.Status.CANCELLED);
+        standingInstructionRepository.save(instruction);
+
+        auditLogService.record(user,
+            "CANCEL_STANDING_INSTRUCTION",
+            "StandingInstruction",
+            instructionId,
+            "Cancelled auto-debit for account " + instruction.getAccount().getAccountNumber(),
+            ipAddress);
+    }
+
+    private Long resolveCustomerId(String username) {
+        return customerRepository.findCustomerIdByUsername(username)
+            .orElseThrow(() -> new RuntimeException("Customer profile not found"));
+    }
+}
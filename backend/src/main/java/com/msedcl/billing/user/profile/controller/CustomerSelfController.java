@@ -1,28 +1,39 @@
 package com.msedcl.billing.user.profile.controller;
 
-import com.msedcl.billing.admin.customer.dto.customer.BillDetailResponse;
+import com.msedcl.billing.admin.billing.dto.BillDocumentProjection;
 import com.msedcl.billing.admin.customer.dto.customer.ComplaintListItemDto;
 import com.msedcl.billing.admin.customer.dto.customer.ConsumptionPointDto;
 import com.msedcl.billing.admin.customer.dto.customer.CustomerBillListItem;
 import com.msedcl.billing.admin.customer.dto.customer.CustomerQuickSummary;
 import com.msedcl.billing.admin.customer.dto.customer.CustomerSelfSummaryResponse;
+import com.msedcl.billing.shared.service.BillPdfCacheService;
+import com.msedcl.billing.shared.service.DocumentDownloadService;
+import com.msedcl.billing.shared.service.QrCodeService;
+import com.msedcl.billing.user.dashboard.service.CustomerEventStreamService;
 import com.msedcl.billing.user.dashboard.service.CustomerPortalService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/customers/self")
@@ -30,6 +41,10 @@ import java.util.List;
 public class CustomerSelfController {
 
     private final CustomerPortalService customerPortalService;
+    private final DocumentDownloadService documentDownloadService;
+    private final BillPdfCacheService billPdfCacheService;
+    private final CustomerEventStreamService customerEventStreamService;
+    private final QrCodeService qrCodeService;
 
     @GetMapping("/summary")
     @PreAuthorize("hasAnyRole('CUSTOMER','ADMIN')")
@@ -44,6 +59,13 @@ public class CustomerSelfController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('CUSTOMER','ADMIN')")
+    public SseEmitter streamEvents(Authentication authentication,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return customerEventStreamService.subscribe(authentication.getName(), lastEventId);
+    }
+
     @GetMapping("/bills")
     @PreAuthorize("hasAnyRole('CUSTOMER','ADMIN')")
     public ResponseEntity<List<CustomerBillListItem>> getBills(Authentication authentication) {
@@ -52,42 +74,42 @@ public class CustomerSelfController {
 
     @GetMapping("/bills/{billId}/pdf")
     @PreAuthorize("hasAnyRole('CUSTOMER','ADMIN')")
-    public ResponseEntity<Resource> downloadBillPdf(Authentication authentication, @PathVariable Long billId) {
-        BillDetailResponse billDetail = customerPortalService.getBillDetail(authentication.getName(), billId);
-
-        if (!StringUtils.hasText(billDetail.getPdfPath())) {
-            return ResponseEntity.notFound().build();
-        }
-
-        FileSystemResource resource = new FileSystemResource(billDetail.getPdfPath());
-        if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        return ResponseEntity.ok()
-            .contentType(MediaType.APPLICATION_PDF)
-            .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=" + resource.getFilename())
-            .body(resource);
+    public void downloadBillPdf(Authentication authentication,
+                                @PathVariable Long billId,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        BillDocumentProjection document = customerPortalService.getBillDocument(authentication.getName(), billId);
+        Path pdfPath = billPdfCacheService.pinPdf(document);
+        documentDownloadService.serve(request, response, pdfPath.toString(), MediaType.APPLICATION_PDF_VALUE, true,
+            () -> billPdfCacheService.releaseDownload(pdfPath));
     }
 
     @GetMapping("/bills/{billId}/qr")
     @PreAuthorize("hasAnyRole('CUSTOMER','ADMIN')")
-    public ResponseEntity<Resource> getBillQr(Authentication authentication, @PathVariable Long billId) {
-        BillDetailResponse billDetail = customerPortalService.getBillDetail(authentication.getName(), billId);
-
-        if (!StringUtils.hasText(billDetail.getQrCodePath())) {
-            return ResponseEntity.notFound().build();
+    public void getBillQr(Authentication authentication,
+                          @PathVariable Long billId,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        BillDocumentProjection document = customerPortalService.getBillDocument(authentication.getName(), billId);
+        BigDecimal amountDue = Optional.ofNullable(document.getBalanceAmount()).orElse(document.getNetPayable());
+        if (amountDue == null || amountDue.compareTo(BigDecimal.ZERO) <= 0) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
         }
 
-        FileSystemResource resource = new FileSystemResource(billDetail.getQrCodePath());
-        if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
+        // Rendered for the current balance, so the QR stays right after partial payments
+        String etag = "\"qr-" + amountDue.setScale(2, RoundingMode.HALF_UP).toPlainString() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
         }
 
-        return ResponseEntity.ok()
-            .contentType(MediaType.IMAGE_PNG)
-            .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=" + resource.getFilename())
-            .body(resource);
+        byte[] png = qrCodeService.renderUpiQr(document.getInvoiceNumber(), amountDue);
+        response.setContentType(MediaType.IMAGE_PNG_VALUE);
+        response.setContentLength(png.length);
+        response.getOutputStream().write(png);
     }
 
     @GetMapping("/bills/pending")
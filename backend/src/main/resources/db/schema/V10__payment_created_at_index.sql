@@ -0,0 +1,3 @@
+-- The duplicate guard warms its filters from the payments created in the last
+-- few days at startup; this keeps that scan off the full table.
+CREATE INDEX idx_payment_created_at ON payments (created_at);
@@ -0,0 +1,35 @@
+-- Standing instructions let an account's bills be settled automatically on the due
+-- date, from the customer's wallet or a registered bank mandate.
+CREATE TABLE IF NOT EXISTS standing_instructions (
+    instruction_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    account_id BIGINT NOT NULL,
+    source ENUM('WALLET', 'MANDATE') NOT NULL,
+    mandate_reference VARCHAR(100),
+    max_amount DECIMAL(12, 2),
+    status ENUM('ACTIVE', 'SUSPENDED', 'CANCELLED') NOT NULL DEFAULT 'ACTIVE',
+    consecutive_failures INT NOT NULL DEFAULT 0,
+    last_run_date DATE,
+    last_outcome VARCHAR(32),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_standing_instruction_account (account_id),
+    FOREIGN KEY (account_id) REFERENCES accounts(account_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- One row per bill per run day; a rerun of the same day skips bills already attempted.
+CREATE TABLE IF NOT EXISTS auto_debit_attempts (
+    attempt_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    instruction_id BIGINT NOT NULL,
+    bill_id BIGINT NOT NULL,
+    run_date DATE NOT NULL,
+    outcome ENUM('SETTLED', 'PARTIAL', 'INSUFFICIENT_FUNDS', 'LIMIT_EXCEEDED', 'FAILED') NOT NULL,
+    amount DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    message VARCHAR(500),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_auto_debit_bill_day (bill_id, run_date),
+    INDEX idx_auto_debit_bill_outcome (bill_id, outcome),
+    FOREIGN KEY (instruction_id) REFERENCES standing_instructions(instruction_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- The due-date run selects open bills by a due date range and status in one query.
+CREATE INDEX idx_bill_due_status ON bills (due_date, bill_status);
@@ -0,0 +1,22 @@
+-- Emails and SMS are written here in the business transaction that triggers them
+-- and delivered afterwards by the notification dispatcher, so no bill run or payment
+-- waits on SMTP or the SMS gateway. Rows double as the delivery-status record.
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    message_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    channel ENUM('EMAIL', 'SMS') NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255),
+    body MEDIUMTEXT NOT NULL,
+    reference VARCHAR(100),
+    status ENUM('PENDING', 'PROCESSING', 'SENT', 'FAILED') NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_by VARCHAR(64),
+    claimed_at TIMESTAMP NULL,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP NULL,
+    INDEX idx_outbox_due (status, next_attempt_at, message_id),
+    INDEX idx_outbox_claim (claimed_by, status),
+    INDEX idx_outbox_reference (reference)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,21 @@
+-- One row per reminder run (type and day). The run walks open bills in bill_id order
+-- and records the last bill it fully queued, so a run that crashed resumes from there
+-- instead of starting over; the counters double as the run's throughput record.
+CREATE TABLE IF NOT EXISTS reminder_runs (
+    run_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    run_type ENUM('UPCOMING', 'OVERDUE') NOT NULL,
+    run_date DATE NOT NULL,
+    status ENUM('PENDING', 'RUNNING', 'COMPLETED', 'FAILED') NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    last_bill_id BIGINT NOT NULL DEFAULT 0,
+    pages INT NOT NULL DEFAULT 0,
+    bills_queued INT NOT NULL DEFAULT 0,
+    bills_skipped INT NOT NULL DEFAULT 0,
+    bills_failed INT NOT NULL DEFAULT 0,
+    elapsed_ms BIGINT NOT NULL DEFAULT 0,
+    last_error VARCHAR(500),
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP NULL,
+    UNIQUE KEY uk_reminder_run_day (run_type, run_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,18 @@
+-- Reminder runs now send one digest per customer and channel, so they page through
+-- customers rather than bills and checkpoint on the last customer fully planned.
+ALTER TABLE reminder_runs CHANGE last_bill_id last_customer_id BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE reminder_runs
+    ADD COLUMN messages_queued INT NOT NULL DEFAULT 0 AFTER bills_failed,
+    ADD COLUMN messages_suppressed INT NOT NULL DEFAULT 0 AFTER messages_queued;
+
+-- One row per customer and channel: when the last reminder digest went out and how
+-- many were sent in the current window. Drives quiet periods and frequency caps.
+CREATE TABLE IF NOT EXISTS notification_send_history (
+    customer_id BIGINT NOT NULL,
+    channel ENUM('EMAIL', 'SMS') NOT NULL,
+    last_sent_at TIMESTAMP NOT NULL,
+    window_start DATE NOT NULL,
+    window_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (customer_id, channel),
+    FOREIGN KEY (customer_id) REFERENCES customers(customer_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
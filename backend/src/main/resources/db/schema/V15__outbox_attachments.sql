@@ -0,0 +1,4 @@
+-- Bill emails can carry the bill PDF. Only the bill id is queued; the dispatcher
+-- resolves the stored (or re-rendered) PDF at send time and streams it from disk.
+ALTER TABLE notification_outbox
+    ADD COLUMN attachment_bill_id BIGINT NULL AFTER reference;
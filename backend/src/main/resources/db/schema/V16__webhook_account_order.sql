@@ -0,0 +1,3 @@
+-- Webhook claims skip events whose account still has an earlier event in flight or
+-- backing off; this index serves that per-bill lookup.
+CREATE INDEX idx_webhook_bill_status ON payment_webhook_events (bill_id, status, event_id);
@@ -0,0 +1,8 @@
+-- Single-row lock serialising day-end closes with back-dated postings. A close holds
+-- the row exclusively while it snapshots a day; settlement imports posting into past
+-- days hold it shared, so neither sees the other half-done.
+CREATE TABLE IF NOT EXISTS collection_close_lock (
+    lock_id TINYINT PRIMARY KEY
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT IGNORE INTO collection_close_lock (lock_id) VALUES (1);
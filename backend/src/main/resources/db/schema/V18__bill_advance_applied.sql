@@ -0,0 +1,13 @@
+-- Advance credit applied when a bill was generated. Bill PDFs render this snapshot
+-- rather than the live wallet balance, so a re-render matches the original document.
+ALTER TABLE bills ADD COLUMN advance_applied DECIMAL(10,2) NOT NULL DEFAULT 0 AFTER amount_paid;
+
+UPDATE bills b
+JOIN (
+    SELECT bill_id, SUM(payment_amount) AS applied
+    FROM payments
+    WHERE payment_channel = 'ADVANCE_ADJUSTMENT'
+      AND transaction_id LIKE 'ADVANCE-ADJ-VIT/%'
+    GROUP BY bill_id
+) adj ON adj.bill_id = b.bill_id
+SET b.advance_applied = adj.applied;
@@ -0,0 +1,5 @@
+-- Successor of a rotated refresh token, XOR-sealed with a pad derived from the rotated
+-- token itself. Lets a second tab that refreshes with the same token moments later get
+-- the successor already issued instead of tripping reuse detection; cleared once the
+-- grace window has passed.
+ALTER TABLE refresh_tokens ADD COLUMN sealed_successor VARCHAR(64) NULL AFTER replaced_by_hash;
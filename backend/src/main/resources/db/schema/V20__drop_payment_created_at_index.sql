@@ -0,0 +1,3 @@
+-- V10 indexed payments.created_at for a duplicate-guard warm-up scan that was never
+-- kept; nothing queries that column, so the index only slows payment inserts.
+DROP INDEX idx_payment_created_at ON payments;
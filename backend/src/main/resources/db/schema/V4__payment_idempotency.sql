@@ -0,0 +1,14 @@
+-- Optimistic locking for the rows mutated while posting payments, and a table
+-- remembering which payment each client idempotency key produced so retried
+-- requests are answered with the original result instead of posting twice.
+ALTER TABLE bills ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE customers ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS payment_idempotency_keys (
+    idempotency_key VARCHAR(128) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    payment_id BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (payment_id) REFERENCES payments(payment_id) ON DELETE SET NULL,
+    INDEX idx_idempotency_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
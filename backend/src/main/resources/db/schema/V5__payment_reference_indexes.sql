@@ -0,0 +1,4 @@
+-- Settlement reconciliation looks payments up by channel references in bulk;
+-- without these indexes every chunk scans the payments table.
+CREATE INDEX idx_payment_transaction_id ON payments (transaction_id);
+CREATE INDEX idx_payment_upi_reference ON payments (upi_reference);
@@ -0,0 +1,38 @@
+-- Append-only advance wallet. Amounts are whole paise; the balance is the
+-- checkpoint plus the sum of entries after its last_entry_id.
+CREATE TABLE IF NOT EXISTS wallet_ledger_entries (
+    entry_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    amount_paise BIGINT NOT NULL,
+    entry_type ENUM('OPENING_BALANCE', 'TOP_UP', 'ADMIN_CREDIT', 'BILL_ADJUSTMENT') NOT NULL,
+    bill_id BIGINT,
+    reference VARCHAR(255),
+    created_by BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (customer_id) REFERENCES customers(customer_id) ON DELETE CASCADE,
+    FOREIGN KEY (bill_id) REFERENCES bills(bill_id) ON DELETE SET NULL,
+    FOREIGN KEY (created_by) REFERENCES users(user_id) ON DELETE SET NULL,
+    INDEX idx_wallet_customer_entry (customer_id, entry_id),
+    INDEX idx_wallet_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS wallet_checkpoints (
+    customer_id BIGINT PRIMARY KEY,
+    balance_paise BIGINT NOT NULL DEFAULT 0,
+    last_entry_id BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NULL,
+    FOREIGN KEY (customer_id) REFERENCES customers(customer_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Carry existing advance balances over as opening entries
+INSERT INTO wallet_ledger_entries (customer_id, amount_paise, entry_type, reference, created_at)
+SELECT customer_id, ROUND(advance_payment * 100), 'OPENING_BALANCE', 'Migrated from customers.advance_payment', CURRENT_TIMESTAMP
+FROM customers
+WHERE advance_payment IS NOT NULL AND ROUND(advance_payment * 100) <> 0;
+
+INSERT INTO wallet_checkpoints (customer_id, balance_paise, last_entry_id, updated_at)
+SELECT customer_id, SUM(amount_paise), MAX(entry_id), CURRENT_TIMESTAMP
+FROM wallet_ledger_entries
+GROUP BY customer_id;
+
+ALTER TABLE customers DROP COLUMN advance_payment;
@@ -0,0 +1,22 @@
+-- Gateway payment callbacks are acknowledged as soon as they are stored here and
+-- posted asynchronously. The unique gateway event id absorbs gateway retries.
+CREATE TABLE IF NOT EXISTS payment_webhook_events (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    gateway VARCHAR(32) NOT NULL,
+    gateway_event_id VARCHAR(128) NOT NULL,
+    bill_id BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    status ENUM('PENDING', 'PROCESSING', 'POSTED', 'REJECTED', 'FAILED') NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_by VARCHAR(64),
+    claimed_at TIMESTAMP NULL,
+    payment_id BIGINT,
+    last_error VARCHAR(500),
+    received_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP NULL,
+    UNIQUE KEY uk_webhook_gateway_event (gateway, gateway_event_id),
+    INDEX idx_webhook_due (status, next_attempt_at, event_id),
+    INDEX idx_webhook_claim (claimed_by, status),
+    FOREIGN KEY (payment_id) REFERENCES payments(payment_id) ON DELETE SET NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
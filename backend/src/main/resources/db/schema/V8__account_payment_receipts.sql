@@ -0,0 +1,8 @@
+-- Account-level payments settle several bills under one receipt: each bill still gets
+-- its own payment row, grouped by receipt_number. Amounts beyond the open balance
+-- can be kept in the customer wallet.
+ALTER TABLE payments ADD COLUMN receipt_number VARCHAR(50) NULL AFTER payment_reference;
+CREATE INDEX idx_payment_receipt_number ON payments (receipt_number);
+
+ALTER TABLE wallet_ledger_entries
+    MODIFY entry_type ENUM('OPENING_BALANCE', 'TOP_UP', 'ADMIN_CREDIT', 'BILL_ADJUSTMENT', 'OVERPAYMENT') NOT NULL;
@@ -0,0 +1,28 @@
+-- Day-end collection close. Each closed business day gets one header row and its
+-- totals per payment mode, channel and processing user. Rows are written once by
+-- the close job and never updated; payments dated on or before the latest closed
+-- day are refused.
+CREATE TABLE IF NOT EXISTS collection_day_closes (
+    business_date DATE PRIMARY KEY,
+    payment_count INT NOT NULL,
+    total_amount DECIMAL(14,2) NOT NULL,
+    total_fee DECIMAL(14,2) NOT NULL,
+    total_net DECIMAL(14,2) NOT NULL,
+    last_payment_id BIGINT,
+    closed_by BIGINT,
+    closed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (closed_by) REFERENCES users(user_id) ON DELETE SET NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS collection_close_totals (
+    close_total_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    business_date DATE NOT NULL,
+    dimension ENUM('PAYMENT_MODE', 'CHANNEL', 'PROCESSED_BY') NOT NULL,
+    dimension_key VARCHAR(100) NOT NULL,
+    payment_count INT NOT NULL,
+    amount DECIMAL(14,2) NOT NULL,
+    fee DECIMAL(14,2) NOT NULL,
+    net DECIMAL(14,2) NOT NULL,
+    FOREIGN KEY (business_date) REFERENCES collection_day_closes(business_date) ON DELETE RESTRICT,
+    UNIQUE KEY uk_close_total (business_date, dimension, dimension_key)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
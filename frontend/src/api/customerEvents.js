@@ -0,0 +1,118 @@
+import api, { clearSession, refreshAccessToken } from './axiosConfig.js';
+
+const RECONNECT_DELAY_MS = 3000;
+const MAX_RECONNECT_DELAY_MS = 60000;
+
+// What the reconnect loop does after a connection attempt ends
+const RETRY = 'retry';
+const RETRY_NOW = 'retry-now';
+const STOP = 'stop';
+
+// EventSource cannot send the bearer token, so the stream is read with fetch and parsed here.
+const parseBlock = (block) => {
+  const event = { id: null, name: 'message', data: '' };
+  block.split('\n').forEach((line) => {
+    if (!line || line.startsWith(':')) {
+      return;
+    }
+    const separator = line.indexOf(':');
+    const field = separator === -1 ? line : line.slice(0, separator);
+    const value = separator === -1 ? '' : line.slice(separator + 1).replace(/^ /, '');
+    if (field === 'id') event.id = value;
+    if (field === 'event') event.name = value;
+    if (field === 'data') event.data += (event.data ? '\n' : '') + value;
+  });
+  return event.data ? event : null;
+};
+
+/**
+ * Subscribes to /customers/self/events. Returns a function that closes the stream.
+ * Reconnects with exponential backoff and resumes from the last received event id;
+ * gives up (and ends the session) once the access token can no longer be refreshed.
+ */
+export const subscribeToCustomerEvents = ({ onSnapshot, onBalance }) => {
+  let lastEventId = null;
+  let controller = null;
+  let stopped = false;
+  let delay = RECONNECT_DELAY_MS;
+  let justRefreshed = false;
+
+  const connect = async () => {
+    controller = new AbortController();
+    const headers = { Accept: 'text/event-stream' };
+    const token = localStorage.getItem('token');
+    if (token) headers.Authorization = `Bearer ${token}`;
+    if (lastEventId) headers['Last-Event-ID'] = lastEventId;
+
+    try {
+      const response = await fetch(`${api.defaults.baseURL}/customers/self/events`, {
+        headers,
+        signal: controller.signal
+      });
+      if (response.status === 401) {
+        // Still rejected with a freshly refreshed token: retrying will not help
+        if (justRefreshed) return STOP;
+        justRefreshed = true;
+        try {
+          await refreshAccessToken();
+          return RETRY_NOW;
+        } catch (refreshError) {
+          clearSession();
+          return STOP;
+        }
+      }
+      if (response.status === 403) {
+        return STOP;
+      }
+      if (!response.ok || !response.body) {
+        console.warn(`Customer event stream failed with status ${response.status}`);
+        return RETRY;
+      }
+
+      const reader = response.body.getReader();
+      const decoder = new TextDecoder();
+      let buffer = '';
+      while (!stopped) {
+        const { value, done } = await reader.read();
+        if (done) break;
+        buffer += decoder.decode(value, { stream: true }).replace(/\r\n/g, '\n');
+        let boundary = buffer.indexOf('\n\n');
+        while (boundary !== -1) {
+          const event = parseBlock(buffer.slice(0, boundary));
+          buffer = buffer.slice(boundary + 2);
+          boundary = buffer.indexOf('\n\n');
+          if (!event) continue;
+          delay = RECONNECT_DELAY_MS;
+          justRefreshed = false;
+          if (event.id) lastEventId = event.id;
+          const payload = JSON.parse(event.data);
+          if (event.name === 'snapshot' && onSnapshot) onSnapshot(payload);
+          if (event.name === 'balance' && onBalance) onBalance(payload);
+        }
+      }
+      return RETRY;
+    } catch (err) {
+      if (err.name === 'AbortError') return STOP;
+      console.warn('Customer event stream disconnected:', err);
+      return RETRY;
+    }
+  };
+
+  const run = async () => {
+    while (!stopped) {
+      const next = await connect();
+      if (next === STOP) break;
+      if (next === RETRY && !stopped) {
+        await new Promise((resolve) => setTimeout(resolve, delay));
+        delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+      }
+    }
+  };
+
+  run();
+
+  return () => {
+    stopped = true;
+    if (controller) controller.abort();
+  };
+};
@@ -43,9 +43,10 @@ export const AuthProvider = ({ children }) => {
   const login = async (username, password) => {
     setLoading(true);
     try {
-      const response = await api.post('/auth/login', { username, password });
-      const { token, userId, role, fullName, username: responseUsername } = response.data;
+      const response = await api.post('/auth/login', { username, password }, { skipAuthRefresh: true });
+      const { token, refreshToken, userId, role, fullName, username: responseUsername } = response.data;
       localStorage.setItem('token', token);
+      localStorage.setItem('refreshToken', refreshToken);
       const userPayload = normalizeUser({
         userId,
         username: responseUsername || username,
@@ -69,8 +70,9 @@ export const AuthProvider = ({ children }) => {
     setLoading(true);
     try {
       const response = await api.post('/auth/register', payload);
-      const { token, userId, role, fullName, username } = response.data;
+      const { token, refreshToken, userId, role, fullName, username } = response.data;
       localStorage.setItem('token', token);
+      localStorage.setItem('refreshToken', refreshToken);
       const userPayload = normalizeUser({ userId, username, role, fullName });
       setUser(userPayload);
       return { success: true };
@@ -86,7 +88,12 @@ export const AuthProvider = ({ children }) => {
   };
 
   const logout = () => {
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (refreshToken) {
+      api.post('/auth/logout', { refreshToken }, { skipAuthRefresh: true }).catch(() => {});
+    }
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     setUser(null);
   };
 
@@ -3,6 +3,7 @@ import { Link } from 'react-router-dom';
 import { Button, Card, Col, Row } from 'react-bootstrap';
 import { BsFileEarmarkMedicalFill, BsFileEarmarkCheckFill, BsLightningFill } from 'react-icons/bs';
 import api from '../../api/axiosConfig.js';
+import { subscribeToCustomerEvents } from '../../api/customerEvents.js';
 import { useAuth } from '../../context/AuthContext.js';
 import StatCard from '../../components/StatCard.js';
 import UsageChart from './UsageChart.js';
@@ -45,6 +46,25 @@ const CustomerDashboard = () => {
     fetchSummary();
   }, []);
 
+  // Live balance updates replace re-fetching the summary after payments or new bills
+  useEffect(() => subscribeToCustomerEvents({
+    onSnapshot: (payload) => {
+      setDashboardData({
+        amountDue: Number(payload.outstandingAmount || 0),
+        lastBill: Number(payload.lastBillAmount || 0),
+        lastUnits: Number(payload.averageConsumption || 0),
+        nextDueDate: payload.nextDueDate || null
+      });
+    },
+    onBalance: (event) => {
+      setDashboardData((current) => ({
+        ...current,
+        amountDue: Number(event.outstandingAmount ?? current.amountDue),
+        nextDueDate: event.dueDate || current.nextDueDate
+      }));
+    }
+  }), []);
+
   return (
     <div>
       <div className="page-header">
@@ -1,4 +1,4 @@
-import { useCallback, useEffect, useMemo, useState } from 'react';
+import { useCallback, useEffect, useMemo, useRef, useState } from 'react';
 import { FaQrcode } from 'react-icons/fa';
 import api from '../../api/axiosConfig.js';
 
@@ -12,6 +12,8 @@ const PayBill = () => {
   const [selectedBillDetail, setSelectedBillDetail] = useState(null);
   const [loadingBill, setLoadingBill] = useState(false);
   const [qrPreviewUrl, setQrPreviewUrl] = useState('');
+  // Kept across a retry after a network failure so the server can recognise the repeat
+  const idempotencyKeyRef = useRef(null);
   const [submitting, setSubmitting] = useState(false);
 
   const clearQrPreview = useCallback(() => {
@@ -121,13 +123,20 @@ const PayBill = () => {
       return;
     }
 
+    if (!idempotencyKeyRef.current) {
+      idempotencyKeyRef.current = crypto.randomUUID();
+    }
+
     setSubmitting(true);
     try {
       await api.post('/payments', {
         billId: Number(selectedBillId),
         paymentAmount: numericAmount,
         paymentMode: paymentMethod
+      }, {
+        headers: { 'Idempotency-Key': idempotencyKeyRef.current }
       });
+      idempotencyKeyRef.current = null;
 
       setMessage('Payment recorded successfully. You will receive a confirmation email shortly.');
       setSelectedBillId('');
@@ -137,6 +146,9 @@ const PayBill = () => {
 
       await loadPendingBills();
     } catch (err) {
+      if (err.response) {
+        idempotencyKeyRef.current = null;
+      }
       const data = err.response?.data;
       setError(typeof data === 'string' ? data : data?.message || 'Payment failed');
     } finally {